@@ -2,6 +2,7 @@
 -- TPI-Esquema.sql
 -- Esquema y tablas con cláusulas IF NOT EXISTS (idempotente).
 -- NOTA: No se hace DROP TABLE para no perder datos.
+-- Bases existentes: las tablas ya creadas no se modifican; ejecutar después TPI-Migracion.sql.
 -- =============================================
 
 SET @OLD_UNIQUE_CHECKS=@@UNIQUE_CHECKS, UNIQUE_CHECKS=0;
@@ -16,6 +17,13 @@ USE `pedido_envio_jdbc`;
 CREATE TABLE IF NOT EXISTS `Envio` (
   `id` BIGINT(64) NOT NULL AUTO_INCREMENT,
   `eliminado` TINYINT(1) NOT NULL DEFAULT 0,
+  -- Momento de la baja lógica (NULL mientras está activo); lo usa el archivado
+  `eliminadoEn` DATETIME NULL,
+  -- Control de concurrencia optimista: cada UPDATE exige la versión leída y la incrementa
+  `version` INT UNSIGNED NOT NULL DEFAULT 0,
+  -- Última modificación: la fija la BD en cada INSERT y UPDATE (incluida la baja lógica);
+  -- feed de cambios getChangedSince
+  `updatedAt` DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
   `tracking` VARCHAR(40) NOT NULL UNIQUE,
   `empresa` ENUM('ANDREANI', 'OCA', 'CORREO_ARG') NOT NULL,
   `tipo` ENUM('ESTANDAR', 'EXPRESS') NOT NULL,
@@ -23,14 +31,29 @@ CREATE TABLE IF NOT EXISTS `Envio` (
   `fechaDespacho` DATETIME NOT NULL,
   `fechaEstimada` DATETIME NOT NULL,
   `estado` ENUM('EN_PREPARACION', 'EN_TRANSITO', 'ENTREGADO') NOT NULL,
-  PRIMARY KEY (`id`)
-  
+  PRIMARY KEY (`id`),
+  -- Paginación por clave (WHERE eliminado = FALSE AND id > ? ORDER BY id LIMIT ?)
+  INDEX `envio_activo_idx` (`eliminado` ASC, `id` ASC) VISIBLE,
+  INDEX `envio_estado_idx` (`eliminado` ASC, `estado` ASC, `id` ASC) VISIBLE,
+  -- Reportes por rango de fechaDespacho (cubre empresa, tipo y costo: no lee la tabla)
+  INDEX `envio_despacho_idx` (`eliminado` ASC, `fechaDespacho` ASC, `empresa`, `tipo`, `costo`) VISIBLE,
+  -- Candidatas a archivar (WHERE eliminado = TRUE AND eliminadoEn < ?)
+  INDEX `envio_baja_idx` (`eliminado` ASC, `eliminadoEn` ASC, `id` ASC) VISIBLE,
+  -- Feed de cambios por clave (updatedAt, id) > (?, ?) ORDER BY updatedAt, id
+  INDEX `envio_cambios_idx` (`updatedAt` ASC, `id` ASC) VISIBLE
 ) ENGINE=InnoDB;
 
 -- Tabla Pedido
 CREATE TABLE IF NOT EXISTS `Pedido` (
   `id` BIGINT(64) NOT NULL AUTO_INCREMENT,
   `eliminado` TINYINT(1) NOT NULL DEFAULT 0,
+  -- Momento de la baja lógica (NULL mientras está activo); lo usa el archivado
+  `eliminadoEn` DATETIME NULL,
+  -- Control de concurrencia optimista: cada UPDATE exige la versión leída y la incrementa
+  `version` INT UNSIGNED NOT NULL DEFAULT 0,
+  -- Última modificación: la fija la BD en cada INSERT y UPDATE (incluida la baja lógica);
+  -- feed de cambios getChangedSince
+  `updatedAt` DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
   `numero` VARCHAR(20) NOT NULL UNIQUE,
   `fecha` DATETIME NOT NULL,
   `clienteNombre` VARCHAR(120) NOT NULL,
@@ -39,11 +62,64 @@ CREATE TABLE IF NOT EXISTS `Pedido` (
   `envio` BIGINT(64) NOT NULL UNIQUE,
   PRIMARY KEY (`id`),
   INDEX `envio_idx` (`envio` ASC) VISIBLE,
+  -- Paginación por clave (WHERE eliminado = FALSE AND id > ? ORDER BY id LIMIT ?)
+  INDEX `pedido_activo_idx` (`eliminado` ASC, `id` ASC) VISIBLE,
+  INDEX `pedido_estado_idx` (`eliminado` ASC, `estado` ASC, `id` ASC) VISIBLE,
+  -- Reportes por rango de fecha (cubre estado y total: no lee la tabla); el id explícito deja
+  -- el orden (fecha, id) que pagina PedidoDAO.buscar cuando el filtro es por fecha
+  INDEX `pedido_fecha_idx` (`eliminado` ASC, `fecha` ASC, `id` ASC, `estado`, `total`) VISIBLE,
+  -- Búsqueda por criterios (PedidoDAO.buscar): cada índice termina en id (implícito en InnoDB)
+  -- y entrega las filas en el orden de la paginación: (clienteNombre, id), (fecha, id), (total, id)
+  INDEX `pedido_cliente_idx` (`eliminado` ASC, `clienteNombre` ASC) VISIBLE,
+  INDEX `pedido_estado_fecha_idx` (`eliminado` ASC, `estado` ASC, `fecha` ASC) VISIBLE,
+  INDEX `pedido_total_idx` (`eliminado` ASC, `total` ASC) VISIBLE,
+  -- Candidatos a archivar (WHERE eliminado = TRUE AND eliminadoEn < ?)
+  INDEX `pedido_baja_idx` (`eliminado` ASC, `eliminadoEn` ASC, `id` ASC) VISIBLE,
+  -- Feed de cambios por clave (updatedAt, id) > (?, ?) ORDER BY updatedAt, id
+  INDEX `pedido_cambios_idx` (`updatedAt` ASC, `id` ASC) VISIBLE,
   CONSTRAINT `envio`
     FOREIGN KEY (`envio`) REFERENCES `Envio` (`id`)
     ON DELETE NO ACTION ON UPDATE NO ACTION
 ) ENGINE=InnoDB;
 
+-- Históricos: bajas lógicas archivadas (ver ArchivoDAO). Mismas columnas + archivadoEn;
+-- sin UNIQUE ni FK: un número/tracking archivado puede volver a usarse en la tabla viva.
+CREATE TABLE IF NOT EXISTS `Envio_hist` (
+  `id` BIGINT(64) NOT NULL,
+  `eliminado` TINYINT(1) NOT NULL,
+  `eliminadoEn` DATETIME NULL,
+  `version` INT UNSIGNED NOT NULL,
+  `updatedAt` DATETIME(3) NOT NULL,
+  `tracking` VARCHAR(40) NOT NULL,
+  `empresa` ENUM('ANDREANI', 'OCA', 'CORREO_ARG') NOT NULL,
+  `tipo` ENUM('ESTANDAR', 'EXPRESS') NOT NULL,
+  `costo` DOUBLE(10,2) NOT NULL,
+  `fechaDespacho` DATETIME NOT NULL,
+  `fechaEstimada` DATETIME NOT NULL,
+  `estado` ENUM('EN_PREPARACION', 'EN_TRANSITO', 'ENTREGADO') NOT NULL,
+  `archivadoEn` DATETIME NOT NULL,
+  PRIMARY KEY (`id`),
+  INDEX `envio_hist_tracking_idx` (`tracking` ASC) VISIBLE
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS `Pedido_hist` (
+  `id` BIGINT(64) NOT NULL,
+  `eliminado` TINYINT(1) NOT NULL,
+  `eliminadoEn` DATETIME NULL,
+  `version` INT UNSIGNED NOT NULL,
+  `updatedAt` DATETIME(3) NOT NULL,
+  `numero` VARCHAR(20) NOT NULL,
+  `fecha` DATETIME NOT NULL,
+  `clienteNombre` VARCHAR(120) NOT NULL,
+  `total` DOUBLE(12,2) NOT NULL,
+  `estado` ENUM('NUEVO', 'FACTURADO', 'ENVIADO') NOT NULL,
+  `envio` BIGINT(64) NOT NULL,
+  `archivadoEn` DATETIME NOT NULL,
+  PRIMARY KEY (`id`),
+  INDEX `pedido_hist_numero_idx` (`numero` ASC) VISIBLE,
+  INDEX `pedido_hist_envio_idx` (`envio` ASC) VISIBLE
+) ENGINE=InnoDB;
+
 -- Restricciones adicionales dentro de la  logica de cada campo (ej. montos de dinero no pueden ser 0 ni negativos)
 ALTER TABLE Pedido ADD CONSTRAINT total_positivo CHECK (total > 0);
 ALTER TABLE Envio ADD CONSTRAINT costo_positivo CHECK (costo > 0);
@@ -0,0 +1,98 @@
+-- =============================================
+-- TPI-Migracion.sql
+-- Lleva una base creada con una versión anterior de TPI-Esquema.sql a la actual.
+-- TPI-Esquema.sql usa CREATE TABLE IF NOT EXISTS: sobre tablas existentes no agrega
+-- columnas ni índices nuevos, y las consultas de los DAOs fallarían con "Unknown column".
+-- Idempotente: cada paso verifica en information_schema si ya está aplicado.
+-- Orden: ejecutar TPI-Esquema.sql (crea lo que falte) y después este script.
+-- =============================================
+
+USE `pedido_envio_jdbc`;
+
+DROP PROCEDURE IF EXISTS `migrar_columna`;
+DROP PROCEDURE IF EXISTS `migrar_indice`;
+
+DELIMITER $$
+
+-- Agrega la columna si la tabla no la tiene
+CREATE PROCEDURE `migrar_columna`(IN tabla VARCHAR(64), IN columna VARCHAR(64), IN definicion TEXT)
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = tabla AND COLUMN_NAME = columna) THEN
+    SET @ddl = CONCAT('ALTER TABLE `', tabla, '` ADD COLUMN `', columna, '` ', definicion);
+    PREPARE st FROM @ddl;
+    EXECUTE st;
+    DEALLOCATE PREPARE st;
+  END IF;
+END$$
+
+-- Crea el índice si la tabla no lo tiene; si existe con otras columnas, lo reemplaza
+CREATE PROCEDURE `migrar_indice`(IN tabla VARCHAR(64), IN indice VARCHAR(64), IN columnas TEXT)
+BEGIN
+  DECLARE actuales TEXT;
+  SELECT GROUP_CONCAT(COLUMN_NAME ORDER BY SEQ_IN_INDEX SEPARATOR ',') INTO actuales
+    FROM information_schema.STATISTICS
+   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = tabla AND INDEX_NAME = indice;
+  IF actuales IS NOT NULL AND actuales <> REPLACE(REPLACE(columnas, '`', ''), ' ', '') THEN
+    SET @ddl = CONCAT('DROP INDEX `', indice, '` ON `', tabla, '`');
+    PREPARE st FROM @ddl;
+    EXECUTE st;
+    DEALLOCATE PREPARE st;
+    SET actuales = NULL;
+  END IF;
+  IF actuales IS NULL THEN
+    SET @ddl = CONCAT('CREATE INDEX `', indice, '` ON `', tabla, '` (', columnas, ')');
+    PREPARE st FROM @ddl;
+    EXECUTE st;
+    DEALLOCATE PREPARE st;
+  END IF;
+END$$
+
+DELIMITER ;
+
+-- Paginación por clave
+CALL migrar_indice('Envio', 'envio_activo_idx', '`eliminado`, `id`');
+CALL migrar_indice('Envio', 'envio_estado_idx', '`eliminado`, `estado`, `id`');
+CALL migrar_indice('Pedido', 'pedido_activo_idx', '`eliminado`, `id`');
+CALL migrar_indice('Pedido', 'pedido_estado_idx', '`eliminado`, `estado`, `id`');
+
+-- Reportes por rango de fechas (índices de cobertura)
+CALL migrar_indice('Envio', 'envio_despacho_idx', '`eliminado`, `fechaDespacho`, `empresa`, `tipo`, `costo`');
+CALL migrar_indice('Pedido', 'pedido_fecha_idx', '`eliminado`, `fecha`, `id`, `estado`, `total`');
+
+-- Búsqueda de pedidos por criterios (PedidoDAO.buscar)
+CALL migrar_indice('Pedido', 'pedido_cliente_idx', '`eliminado`, `clienteNombre`');
+CALL migrar_indice('Pedido', 'pedido_estado_fecha_idx', '`eliminado`, `estado`, `fecha`');
+CALL migrar_indice('Pedido', 'pedido_total_idx', '`eliminado`, `total`');
+
+-- Control de concurrencia optimista (las filas existentes arrancan en versión 0)
+CALL migrar_columna('Envio', 'version', 'INT UNSIGNED NOT NULL DEFAULT 0 AFTER `eliminado`');
+CALL migrar_columna('Pedido', 'version', 'INT UNSIGNED NOT NULL DEFAULT 0 AFTER `eliminado`');
+
+-- Archivado de bajas lógicas (las tablas Envio_hist / Pedido_hist las crea TPI-Esquema.sql)
+CALL migrar_columna('Envio', 'eliminadoEn', 'DATETIME NULL AFTER `eliminado`');
+CALL migrar_columna('Pedido', 'eliminadoEn', 'DATETIME NULL AFTER `eliminado`');
+CALL migrar_indice('Envio', 'envio_baja_idx', '`eliminado`, `eliminadoEn`, `id`');
+CALL migrar_indice('Pedido', 'pedido_baja_idx', '`eliminado`, `eliminadoEn`, `id`');
+-- Bajas anteriores a la columna: sin fecha nunca cumplirían eliminadoEn < NOW() - INTERVAL ? DAY.
+-- Se toma NOW() (empiezan a contar los días de retención desde la migración).
+UPDATE Envio SET eliminadoEn = NOW() WHERE eliminado = TRUE AND eliminadoEn IS NULL;
+UPDATE Pedido SET eliminadoEn = NOW() WHERE eliminado = TRUE AND eliminadoEn IS NULL;
+
+-- Feed de cambios: las filas existentes toman como updatedAt el momento de la migración
+CALL migrar_columna('Envio', 'updatedAt',
+  'DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) AFTER `version`');
+CALL migrar_columna('Pedido', 'updatedAt',
+  'DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) AFTER `version`');
+CALL migrar_indice('Envio', 'envio_cambios_idx', '`updatedAt`, `id`');
+CALL migrar_indice('Pedido', 'pedido_cambios_idx', '`updatedAt`, `id`');
+-- Históricos creados antes de updatedAt: se completa con archivadoEn y recién después NOT NULL
+CALL migrar_columna('Envio_hist', 'updatedAt', 'DATETIME(3) NULL AFTER `version`');
+CALL migrar_columna('Pedido_hist', 'updatedAt', 'DATETIME(3) NULL AFTER `version`');
+UPDATE Envio_hist SET updatedAt = archivadoEn WHERE updatedAt IS NULL;
+UPDATE Pedido_hist SET updatedAt = archivadoEn WHERE updatedAt IS NULL;
+ALTER TABLE Envio_hist MODIFY `updatedAt` DATETIME(3) NOT NULL;
+ALTER TABLE Pedido_hist MODIFY `updatedAt` DATETIME(3) NOT NULL;
+
+DROP PROCEDURE `migrar_columna`;
+DROP PROCEDURE `migrar_indice`;
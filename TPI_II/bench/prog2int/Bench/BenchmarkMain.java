@@ -0,0 +1,366 @@
+package prog2int.Bench;
+
+import prog2int.Config.DatabaseConnection;
+import prog2int.Dao.EnvioDAO;
+import prog2int.Dao.PedidoDAO;
+import prog2int.Dao.PedidoFiltro;
+import prog2int.Dao.RowMapper;
+import prog2int.Models.Empresa;
+import prog2int.Models.Envio;
+import prog2int.Models.EstadoEnvio;
+import prog2int.Models.EstadoPedido;
+import prog2int.Models.Pedido;
+import prog2int.Models.TipoEnvio;
+import prog2int.Service.ConcurrentLongMap;
+import prog2int.Service.EnvioServiceImpl;
+import prog2int.Service.LongMap;
+import prog2int.Service.PedidoServiceImpl;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks de los caminos calientes de DAO y Service.
+ *
+ * Suites (propiedad bench.suites, separadas por coma; por defecto "map"):
+ * - map: costo por fila del mapeo de ResultSet (por nombre + valueOf vs por posición + EnumTables),
+ *        sobre un ResultSet en memoria. No requiere BD.
+ * - maps: mapas id -> entidad (HashMap / ConcurrentHashMap vs LongMap / ConcurrentLongMap) con
+ *         bench.maps.entries entradas (por defecto 1M): memoria retenida y latencia de get.
+ *         No requiere BD; conviene correrlo con -Xmx de sobra para que la medición de heap sea estable.
+ * - dao: CRUD de EnvioDAO/PedidoDAO, scans getAll/stream y PedidoServiceImpl.insertar,
+ *        más un chequeo de la paginación por fecha de PedidoDAO.buscar (falla si repite filas),
+ *        contra la BD configurada con db.url (crear con TPI-Esquema.sql y cargar TPI-Datos.sql).
+ *        ATENCIÓN: inserta filas; usar una base de pruebas.
+ *
+ * Fuentes en bench/ (fuera de src: no van al jar de la aplicación); las compila ant bench.
+ * Ejecución: ant bench  (o java -cp ... -Dbench.suites=map,dao prog2int.Bench.BenchmarkMain)
+ */
+public class BenchmarkMain {
+
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 5);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 10);
+    /** updatedAt de las filas en memoria de la suite map. */
+    private static final Instant MODIFICADO = Instant.parse("2025-01-01T00:00:00Z");
+
+    public static void main(String[] args) throws Exception {
+        String suites = System.getProperty("bench.suites", "map");
+        for (String suite : suites.split(",")) {
+            switch (suite.trim()) {
+                case "map" -> mapSuite();
+                case "maps" -> mapsSuite();
+                case "dao" -> daoSuite();
+                default -> System.err.println("Suite desconocida: " + suite);
+            }
+        }
+    }
+
+    /* ===================== Mapeo de filas ===================== */
+
+    private static void mapSuite() throws Exception {
+        System.out.println("\n== map: costo por fila (ns/op = ns por fila) ==");
+        int rows = 1024;
+        int ops = 100_000;
+
+        ResultSet enviosPorNombre = InMemoryResultSet.of(
+                new String[]{"id", "eliminado", "tracking", "empresa", "tipo", "costo", "fechaDespacho", "fechaEstimada", "estado", "version", "updatedAt"},
+                envioRows(rows, false));
+        ResultSet enviosPorPosicion = InMemoryResultSet.of(
+                new String[]{"id", "eliminado", "tracking", "empresa+0", "tipo+0", "costo", "fechaDespacho", "fechaEstimada", "estado+0", "version", "updatedAt"},
+                envioRows(rows, true));
+        MicroBench.run("Envio map por nombre + valueOf", WARMUP, ITERATIONS, ops,
+                () -> { enviosPorNombre.next(); MicroBench.consume(mapEnvioPorNombre(enviosPorNombre)); });
+        MicroBench.run("Envio map por posicion (EnvioDAO)", WARMUP, ITERATIONS, ops,
+                () -> { enviosPorPosicion.next(); MicroBench.consume(EnvioDAO.ROW_MAPPER.map(enviosPorPosicion)); });
+
+        ResultSet pedidosPorNombre = InMemoryResultSet.of(
+                new String[]{"id", "eliminado", "numero", "fecha", "clienteNombre", "total", "estado", "envio", "version", "updatedAt"},
+                pedidoRows(rows, false));
+        ResultSet pedidosPorPosicion = InMemoryResultSet.of(
+                new String[]{"id", "eliminado", "numero", "fecha", "clienteNombre", "total", "estado+0", "envio", "version", "updatedAt"},
+                pedidoRows(rows, true));
+        MicroBench.run("Pedido map por nombre + valueOf", WARMUP, ITERATIONS, ops,
+                () -> { pedidosPorNombre.next(); MicroBench.consume(mapPedidoPorNombre(pedidosPorNombre)); });
+        RowMapper<Pedido> pedidoMapper = PedidoDAO.ROW_MAPPER;
+        MicroBench.run("Pedido map por posicion (PedidoDAO)", WARMUP, ITERATIONS, ops,
+                () -> { pedidosPorPosicion.next(); MicroBench.consume(pedidoMapper.map(pedidosPorPosicion)); });
+    }
+
+    private static Object[][] envioRows(int n, boolean enumIndex) {
+        Object[][] rows = new Object[n][];
+        for (int i = 0; i < n; i++) {
+            Empresa empresa = Empresa.values()[i % Empresa.values().length];
+            TipoEnvio tipo = TipoEnvio.values()[i % TipoEnvio.values().length];
+            EstadoEnvio estado = EstadoEnvio.values()[i % EstadoEnvio.values().length];
+            LocalDate despacho = LocalDate.of(2025, 1, 1).plusDays(i % 365);
+            rows[i] = new Object[]{(long) i + 1, false, "TRK" + i,
+                    enumIndex ? (Object) (empresa.ordinal() + 1) : empresa.name(),
+                    enumIndex ? (Object) (tipo.ordinal() + 1) : tipo.name(),
+                    100.0 + i, despacho, despacho.plusDays(3),
+                    enumIndex ? (Object) (estado.ordinal() + 1) : estado.name(), 0L, MODIFICADO};
+        }
+        return rows;
+    }
+
+    private static Object[][] pedidoRows(int n, boolean enumIndex) {
+        Object[][] rows = new Object[n][];
+        for (int i = 0; i < n; i++) {
+            EstadoPedido estado = EstadoPedido.values()[i % EstadoPedido.values().length];
+            rows[i] = new Object[]{(long) i + 1, false, "PD" + i, LocalDate.of(2025, 1, 1).plusDays(i % 365),
+                    "Cliente " + i, 1000.0 + i, enumIndex ? (Object) (estado.ordinal() + 1) : estado.name(), (long) i + 1, 0L, MODIFICADO};
+        }
+        return rows;
+    }
+
+    /** Mapeo previo (por etiqueta, java.sql.Date y valueOf) conservado como línea base. */
+    private static Envio mapEnvioPorNombre(ResultSet rs) throws SQLException {
+        Envio e = new Envio();
+        e.setId(rs.getLong("id"));
+        e.setEliminado(rs.getBoolean("eliminado"));
+        e.setTracking(rs.getString("tracking"));
+        String empresa = rs.getString("empresa");
+        if (empresa != null) e.setEmpresa(Empresa.valueOf(empresa));
+        String tipo = rs.getString("tipo");
+        if (tipo != null) e.setTipo(TipoEnvio.valueOf(tipo));
+        e.setCosto(rs.getDouble("costo"));
+        Date fd = rs.getDate("fechaDespacho");
+        if (fd != null) e.setFechaDespacho(fd.toLocalDate());
+        Date fe = rs.getDate("fechaEstimada");
+        if (fe != null) e.setFechaEstimada(fe.toLocalDate());
+        String estado = rs.getString("estado");
+        if (estado != null) e.setEstado(EstadoEnvio.valueOf(estado));
+        return e;
+    }
+
+    private static Pedido mapPedidoPorNombre(ResultSet rs) throws SQLException {
+        Pedido p = new Pedido();
+        p.setId(rs.getLong("id"));
+        p.setEliminado(rs.getBoolean("eliminado"));
+        p.setNumero(rs.getString("numero"));
+        Date f = rs.getDate("fecha");
+        if (f != null) p.setFecha(f.toLocalDate());
+        p.setClienteNombre(rs.getString("clienteNombre"));
+        p.setTotal(rs.getDouble("total"));
+        String est = rs.getString("estado");
+        if (est != null) p.setEstado(EstadoPedido.valueOf(est));
+        Envio envio = new Envio();
+        envio.setId(rs.getLong("envio"));
+        p.setEnvio(envio);
+        return p;
+    }
+
+    /* ===================== Mapas por id ===================== */
+
+    private static void mapsSuite() throws Exception {
+        int n = Integer.getInteger("bench.maps.entries", 1_000_000);
+        System.out.println("\n== maps: " + n + " entradas id -> entidad (ns/op = ns por get) ==");
+        // Un único valor compartido: la memoria medida es solo la de la estructura (y las claves)
+        Object valor = new Object();
+        long[] consultas = new long[1 << 16];
+        Random random = new Random(42);
+        for (int i = 0; i < consultas.length; i++) consultas[i] = 1 + random.nextInt(n);
+        int mask = consultas.length - 1;
+        int[] cursor = {0};
+        int ops = 1_000_000;
+
+        HashMap<Long, Object> hashMap = huella("HashMap<Long, V>", n, () -> {
+            HashMap<Long, Object> m = new HashMap<>();
+            for (long id = 1; id <= n; id++) m.put(id, valor);
+            return m;
+        });
+        MicroBench.run("HashMap.get", WARMUP, ITERATIONS, ops,
+                () -> MicroBench.consume(hashMap.get(consultas[cursor[0]++ & mask])));
+        hashMap.clear();
+
+        ConcurrentHashMap<Long, Object> concurrentHashMap = huella("ConcurrentHashMap<Long, V>", n, () -> {
+            ConcurrentHashMap<Long, Object> m = new ConcurrentHashMap<>();
+            for (long id = 1; id <= n; id++) m.put(id, valor);
+            return m;
+        });
+        MicroBench.run("ConcurrentHashMap.get", WARMUP, ITERATIONS, ops,
+                () -> MicroBench.consume(concurrentHashMap.get(consultas[cursor[0]++ & mask])));
+        concurrentHashMap.clear();
+
+        LongMap<Object> longMap = huella("LongMap<V>", n, () -> {
+            LongMap<Object> m = new LongMap<>();
+            for (long id = 1; id <= n; id++) m.put(id, valor);
+            return m;
+        });
+        MicroBench.run("LongMap.get", WARMUP, ITERATIONS, ops,
+                () -> MicroBench.consume(longMap.get(consultas[cursor[0]++ & mask])));
+        longMap.clear();
+
+        ConcurrentLongMap<Object> concurrentLongMap = huella("ConcurrentLongMap<V>", n, () -> {
+            ConcurrentLongMap<Object> m = new ConcurrentLongMap<>();
+            for (long id = 1; id <= n; id++) m.put(id, valor);
+            return m;
+        });
+        MicroBench.run("ConcurrentLongMap.get", WARMUP, ITERATIONS, ops,
+                () -> MicroBench.consume(concurrentLongMap.get(consultas[cursor[0]++ & mask])));
+        concurrentLongMap.clear();
+    }
+
+    /** Construye la estructura y reporta el heap retenido (diferencia de heap usado tras GC). */
+    private static <T> T huella(String name, int entries, Supplier<T> builder) {
+        long before = usedHeap();
+        T result = builder.get();
+        long bytes = usedHeap() - before;
+        System.out.printf("%-40s %8.1f MB  %6.1f bytes/entrada%n", name + " (memoria)",
+                bytes / (1024.0 * 1024.0), (double) bytes / entries);
+        return result;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /* ===================== DAO / Service contra BD ===================== */
+
+    private static void daoSuite() throws Exception {
+        System.out.println("\n== dao: contra " + System.getProperty("db.url", "db.url por defecto") + " ==");
+        EnvioDAO envioDAO = new EnvioDAO();
+        PedidoDAO pedidoDAO = new PedidoDAO();
+        EnvioServiceImpl envioService = new EnvioServiceImpl(envioDAO);
+        PedidoServiceImpl pedidoService = new PedidoServiceImpl(pedidoDAO, envioService);
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        long[] seq = {0};
+
+        List<Pedido> muestra = pedidoDAO.getPage(0, 1000);
+        if (muestra.isEmpty()) {
+            List<Envio> envios = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) envios.add(nuevoEnvio(run, seq[0]++));
+            envioDAO.insertAll(envios);
+            List<Pedido> pedidos = new ArrayList<>();
+            for (Envio e : envios) pedidos.add(nuevoPedido(run, seq[0]++, e));
+            pedidoDAO.insertAll(pedidos);
+            muestra = pedidos;
+        }
+        List<Pedido> ids = muestra;
+
+        try {
+            verificarPaginacionPorFecha(envioDAO, pedidoDAO, run, seq);
+            MicroBench.run("PedidoDAO.getById", WARMUP, ITERATIONS, 200,
+                    () -> MicroBench.consume(pedidoDAO.getById(random(ids).getId())));
+            MicroBench.run("PedidoDAO.getByNumero", WARMUP, ITERATIONS, 200,
+                    () -> MicroBench.consume(pedidoDAO.getByNumero(random(ids).getNumero())));
+            MicroBench.run("PedidoDAO.getByIdWithEnvio", WARMUP, ITERATIONS, 200,
+                    () -> MicroBench.consume(pedidoDAO.getByIdWithEnvio(random(ids).getId())));
+            MicroBench.run("EnvioDAO.getById", WARMUP, ITERATIONS, 200,
+                    () -> MicroBench.consume(envioDAO.getById(random(ids).getEnvio().getId())));
+            MicroBench.run("PedidoDAO.getAll (scan)", 2, ITERATIONS, 1,
+                    () -> MicroBench.consume(pedidoDAO.getAll()));
+            MicroBench.run("EnvioDAO.getAll (scan)", 2, ITERATIONS, 1,
+                    () -> MicroBench.consume(envioDAO.getAll()));
+            MicroBench.run("PedidoDAO.stream (scan)", 2, ITERATIONS, 1, () -> {
+                try (Stream<Pedido> s = pedidoDAO.stream()) {
+                    MicroBench.consume(s.count());
+                }
+            });
+            MicroBench.run("Envio+Pedido insertar (service)", 2, ITERATIONS, 50, () -> {
+                Envio e = nuevoEnvio(run, seq[0]++);
+                envioService.insertar(e);
+                pedidoService.insertar(nuevoPedido(run, seq[0]++, e));
+            });
+            MicroBench.run("PedidoDAO.actualizar", 2, ITERATIONS, 100, () -> {
+                Pedido p = pedidoDAO.getById(random(ids).getId());
+                if (p != null) pedidoDAO.actualizar(p);
+            });
+        } finally {
+            System.out.println(DatabaseConnection.getPoolStats());
+            DatabaseConnection.shutdown();
+        }
+    }
+
+    /**
+     * Chequeo (no medición): PedidoDAO.buscar por fecha recorre un día con más filas que la
+     * página, con horas distintas y repetidas, sin devolver una fila dos veces ni saltear ninguna.
+     */
+    private static void verificarPaginacionPorFecha(EnvioDAO envioDAO, PedidoDAO pedidoDAO,
+                                                    String run, long[] seq) throws Exception {
+        final int pagina = 20;
+        List<Envio> envios = new ArrayList<>();
+        for (int i = 0; i < pagina * 3 + 1; i++) envios.add(nuevoEnvio(run, seq[0]++));
+        envioDAO.insertAll(envios);
+        List<Pedido> pedidos = new ArrayList<>();
+        for (Envio e : envios) pedidos.add(nuevoPedido(run, seq[0]++, e));
+        pedidoDAO.insertAll(pedidos);
+
+        // Mismo día, cinco horas posibles: empates de fecha que desempata el id
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "UPDATE Pedido SET fecha = TIMESTAMP(DATE(fecha), SEC_TO_TIME(3600 * (1 + id % 5)))"
+                     + " WHERE numero LIKE ?")) {
+            ps.setString(1, "B" + run + "%");
+            ps.executeUpdate();
+        }
+
+        LocalDate dia = pedidos.get(0).getFecha();
+        PedidoFiltro filtro = new PedidoFiltro().fecha(dia, dia);
+        Set<Long> vistos = new HashSet<>();
+        Pedido ultimo = null;
+        int paginas = 0;
+        while (true) {
+            Pedido despuesDe = ultimo;
+            List<Pedido> page = DatabaseConnection.readFromPrimary(() -> pedidoDAO.buscar(filtro, despuesDe, pagina));
+            for (Pedido p : page) {
+                if (!vistos.add(p.getId())) {
+                    throw new IllegalStateException("buscar por fecha repitió el pedido " + p.getId());
+                }
+            }
+            paginas++;
+            if (page.size() < pagina) break;
+            ultimo = page.get(page.size() - 1);
+        }
+        for (Pedido p : pedidos) {
+            if (!vistos.contains(p.getId())) {
+                throw new IllegalStateException("buscar por fecha salteó el pedido " + p.getId());
+            }
+        }
+        System.out.println("Paginación por fecha: " + vistos.size() + " pedidos del " + dia
+                + " en " + paginas + " páginas, sin repetidos");
+    }
+
+    private static Pedido random(List<Pedido> list) {
+        return list.get(ThreadLocalRandom.current().nextInt(list.size()));
+    }
+
+    private static Envio nuevoEnvio(String run, long n) {
+        Envio e = new Envio();
+        e.setTracking("BENCH-" + run + "-" + Long.toString(n, 36));
+        e.setEmpresa(Empresa.OCA);
+        e.setTipo(TipoEnvio.ESTANDAR);
+        e.setCosto(100.0);
+        e.setFechaDespacho(LocalDate.now());
+        e.setFechaEstimada(LocalDate.now().plusDays(3));
+        e.setEstado(EstadoEnvio.EN_PREPARACION);
+        return e;
+    }
+
+    private static Pedido nuevoPedido(String run, long n, Envio envio) {
+        Pedido p = new Pedido();
+        p.setNumero("B" + run + Long.toString(n, 36));
+        p.setFecha(LocalDate.now());
+        p.setClienteNombre("Bench " + n);
+        p.setTotal(1000.0);
+        p.setEstado(EstadoPedido.NUEVO);
+        p.setEnvio(envio);
+        return p;
+    }
+}
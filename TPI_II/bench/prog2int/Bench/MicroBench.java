@@ -0,0 +1,89 @@
+package prog2int.Bench;
+
+import java.util.Arrays;
+
+/**
+ * Mini arnés de micro-benchmarks (sin dependencias externas).
+ * - Fase de warmup para que el JIT compile el código medido
+ * - Cada iteración mide un lote de opsPerIter operaciones con System.nanoTime
+ * - Reporta ns/op promedio, p50, p99 y mínimo sobre las iteraciones medidas
+ *
+ * Los resultados deben consumirse con consume() para que el JIT no elimine el trabajo.
+ */
+public final class MicroBench {
+
+    /** Operación medida. */
+    @FunctionalInterface
+    public interface Op {
+        void run() throws Exception;
+    }
+
+    private static volatile Object sink;
+
+    private MicroBench() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    /** Evita la eliminación de código muerto: el JIT no puede descartar lo que se publica en un volatile. */
+    public static void consume(Object value) {
+        sink = value;
+    }
+
+    /**
+     * Ejecuta y reporta un benchmark.
+     * @param name          nombre mostrado en el reporte
+     * @param warmupIters   iteraciones de calentamiento (no se miden)
+     * @param measureIters  iteraciones medidas
+     * @param opsPerIter    operaciones por iteración
+     */
+    public static Result run(String name, int warmupIters, int measureIters, int opsPerIter, Op op) throws Exception {
+        for (int i = 0; i < warmupIters; i++) {
+            for (int j = 0; j < opsPerIter; j++) op.run();
+        }
+        double[] nsPerOp = new double[measureIters];
+        for (int i = 0; i < measureIters; i++) {
+            long start = System.nanoTime();
+            for (int j = 0; j < opsPerIter; j++) op.run();
+            nsPerOp[i] = (double) (System.nanoTime() - start) / opsPerIter;
+        }
+        Result r = new Result(name, nsPerOp);
+        System.out.println(r);
+        return r;
+    }
+
+    /** Resultado de un benchmark (ns/op por iteración). */
+    public static final class Result {
+        private final String name;
+        private final double mean;
+        private final double p50;
+        private final double p99;
+        private final double min;
+
+        Result(String name, double[] samples) {
+            double[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            this.name = name;
+            this.mean = Arrays.stream(sorted).average().orElse(0);
+            this.p50 = percentile(sorted, 0.50);
+            this.p99 = percentile(sorted, 0.99);
+            this.min = sorted.length == 0 ? 0 : sorted[0];
+        }
+
+        private static double percentile(double[] sorted, double q) {
+            if (sorted.length == 0) return 0;
+            int idx = (int) Math.ceil(q * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+        }
+
+        public String getName() { return name; }
+        public double getMean() { return mean; }
+        public double getP50() { return p50; }
+        public double getP99() { return p99; }
+        public double getMin() { return min; }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %12.1f ns/op  (p50=%.1f, p99=%.1f, min=%.1f)", name, mean, p50, p99, min);
+        }
+    }
+}
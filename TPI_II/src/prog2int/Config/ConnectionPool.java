@@ -0,0 +1,371 @@
+package prog2int.Config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool acotado de conexiones JDBC.
+ *
+ * - Máximo de conexiones controlado con un Semaphore (maxSize permisos)
+ * - Conexiones ociosas en una pila LIFO (se reutiliza la más "caliente")
+ * - Validación al prestar (Connection.isValid) solo si estuvo ociosa más de validateAfterIdleMillis:
+ *   una conexión devuelta hace instantes no paga el round trip del ping; timeout de adquisición
+ * - Un hilo daemon desaloja conexiones ociosas vencidas y repone hasta minSize
+ *
+ * Las conexiones entregadas son proxies: close() devuelve la conexión física al pool
+ * en lugar de cerrarla, por lo que los DAOs siguen usando try-with-resources sin cambios.
+ *
+ * Cada conexión física tiene su StatementCache: prepareStatement(sql) y
+ * prepareStatement(sql, autoGeneratedKeys) reutilizan la sentencia preparada en el
+ * servidor (useServerPrepStmts=true) entre préstamos de la misma conexión.
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long acquireTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final long validateAfterIdleMillis;
+    private final int statementCacheSize;
+
+    /** Conexiones físicas libres (protegido por synchronized(idle)). */
+    private final Deque<PooledEntry> idle = new ArrayDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    /* ===================== Métricas ===================== */
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final AtomicLong statementEvictions = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize, long idleTimeoutMillis,
+                          long acquireTimeoutMillis, int validationTimeoutSeconds, long validateAfterIdleMillis,
+                          int statementCacheSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("El tamaño máximo del pool debe ser > 0");
+        if (minSize < 0 || minSize > maxSize)
+            throw new IllegalArgumentException("El tamaño mínimo del pool debe estar entre 0 y " + maxSize);
+        if (acquireTimeoutMillis <= 0) throw new IllegalArgumentException("El timeout de adquisición debe ser > 0");
+        if (validateAfterIdleMillis < 0) throw new IllegalArgumentException("El umbral de validación no puede ser negativo");
+        if (statementCacheSize < 0) throw new IllegalArgumentException("El tamaño de la caché de sentencias no puede ser negativo");
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, idleTimeoutMillis > 0 ? idleTimeoutMillis / 2 : 30_000L);
+        evictor.scheduleWithFixedDelay(this::maintain, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Presta una conexión del pool (o crea una nueva si hay cupo).
+     * @throws SQLException si no hay conexión disponible dentro del timeout de adquisición
+     */
+    public Connection getConnection() throws SQLException {
+        return getConnection(null);
+    }
+
+    /**
+     * Igual que getConnection(), ejecutando onRelease en el hilo que la devuelva, después de
+     * devolverla (DatabaseConnection marca ahí el fin de una escritura en la primaria).
+     */
+    public Connection getConnection(Runnable onRelease) throws SQLException {
+        if (closed) throw new SQLException("El pool de conexiones está cerrado");
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timeout esperando una conexión del pool (" + acquireTimeoutMillis + " ms)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexión del pool", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledEntry entry = borrowValid();
+            active.incrementAndGet();
+            return wrap(entry, onRelease);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /** Conexiones prestadas en este momento (sin armar el snapshot completo de getStats). */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /** Snapshot de métricas para dimensionar el pool. */
+    public PoolStats getStats() {
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+        return new PoolStats(minSize, maxSize, active.get(), idleCount, permits.getQueueLength(),
+                acquisitions.get(), totalWaitNanos.get(), maxWaitNanos.get(), timeouts.get(),
+                created.get(), destroyed.get(), validationFailures.get(),
+                statementHits.get(), statementMisses.get(), statementEvictions.get());
+    }
+
+    /** Cierra todas las conexiones ociosas; las prestadas se cierran al devolverse. */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        List<PooledEntry> cerrar;
+        synchronized (idle) {
+            cerrar = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledEntry e : cerrar) destroy(e);
+    }
+
+    /* ===================== Internos ===================== */
+
+    private PooledEntry borrowValid() throws SQLException {
+        while (true) {
+            PooledEntry entry;
+            synchronized (idle) {
+                entry = idle.pollFirst();
+            }
+            if (entry == null) return create();
+            if (isUsable(entry)) return entry;
+            validationFailures.incrementAndGet();
+            destroy(entry);
+        }
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        try {
+            if (entry.raw.isClosed()) return false;
+            if (System.currentTimeMillis() - entry.lastUsed < validateAfterIdleMillis) return true;
+            return entry.raw.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledEntry create() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("user", user);
+        props.setProperty("password", password);
+        // Preparación del lado del servidor: solo tiene sentido si reutilizamos las sentencias
+        if (statementCacheSize > 0 && !url.contains("useServerPrepStmts")) {
+            props.setProperty("useServerPrepStmts", "true");
+        }
+        Connection raw = DriverManager.getConnection(url, props);
+        created.incrementAndGet();
+        StatementCache statements = statementCacheSize > 0
+                ? new StatementCache(raw, statementCacheSize, statementHits, statementMisses, statementEvictions)
+                : null;
+        return new PooledEntry(raw, statements);
+    }
+
+    private void destroy(PooledEntry entry) {
+        destroyed.incrementAndGet();
+        if (entry.statements != null) entry.statements.closeAll();
+        try {
+            entry.raw.close();
+        } catch (SQLException e) {
+            System.err.println("Error al cerrar conexión del pool: " + e.getMessage());
+        }
+    }
+
+    /** Devuelve la conexión física al pool, restaurando el estado por defecto. */
+    private void release(PooledEntry entry) {
+        active.decrementAndGet();
+        try {
+            boolean reusable = !closed && !entry.raw.isClosed();
+            if (reusable && !entry.raw.getAutoCommit()) {
+                entry.raw.rollback();
+                entry.raw.setAutoCommit(true);
+            }
+            if (reusable) {
+                entry.lastUsed = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.addFirst(entry);
+                }
+            } else {
+                destroy(entry);
+            }
+        } catch (SQLException e) {
+            destroy(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** Tarea periódica: desaloja ociosas vencidas (respetando minSize) y repone hasta minSize. */
+    private void maintain() {
+        if (closed) return;
+        long now = System.currentTimeMillis();
+        if (idleTimeoutMillis > 0) {
+            List<PooledEntry> vencidas = new ArrayList<>();
+            synchronized (idle) {
+                Iterator<PooledEntry> it = idle.descendingIterator(); // las más viejas al final
+                while (it.hasNext() && idle.size() + active.get() > minSize) {
+                    PooledEntry e = it.next();
+                    if (now - e.lastUsed < idleTimeoutMillis) break;
+                    it.remove();
+                    vencidas.add(e);
+                }
+            }
+            // Cerrar va al servidor: fuera del monitor, que también toman los hilos que piden conexión
+            for (PooledEntry e : vencidas) destroy(e);
+        }
+        try {
+            while (!closed && idleCount() + active.get() < minSize && permits.tryAcquire()) {
+                try {
+                    PooledEntry e = create();
+                    synchronized (idle) {
+                        idle.addLast(e);
+                    }
+                } finally {
+                    permits.release();
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("No se pudo precargar el pool de conexiones: " + e.getMessage());
+        }
+    }
+
+    private int idleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        acquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private Connection wrap(PooledEntry entry, Runnable onRelease) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(entry, onRelease));
+    }
+
+    /** Conexión física + sus sentencias cacheadas + momento del último uso (desalojo por inactividad). */
+    private static final class PooledEntry {
+        final Connection raw;
+        final StatementCache statements;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        PooledEntry(Connection raw, StatementCache statements) {
+            this.raw = raw;
+            this.statements = statements;
+        }
+    }
+
+    /**
+     * Intercepta close()/isClosed() del proxy y prepareStatement(sql[, autoGeneratedKeys])
+     * (caché de sentencias); el resto se delega a la conexión física.
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private final Runnable onRelease;
+        private boolean logicallyClosed;
+
+        PooledConnectionHandler(PooledEntry entry, Runnable onRelease) {
+            this.entry = entry;
+            this.onRelease = onRelease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        release(entry);
+                        if (onRelease != null) onRelease.run();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return logicallyClosed || entry.raw.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + entry.raw + "]";
+                }
+                case "prepareStatement" -> {
+                    if (logicallyClosed) throw new SQLException("La conexión ya fue devuelta al pool");
+                    if (entry.statements != null && args.length == 1) {
+                        return entry.statements.prepare((String) args[0], null, (Connection) proxy);
+                    }
+                    if (entry.statements != null && args.length == 2 && method.getParameterTypes()[1] == int.class) {
+                        return entry.statements.prepare((String) args[0], (Integer) args[1], (Connection) proxy);
+                    }
+                    return invokeRaw(method, args);
+                }
+                default -> {
+                    if (logicallyClosed) throw new SQLException("La conexión ya fue devuelta al pool");
+                    return invokeRaw(method, args);
+                }
+            }
+        }
+
+        private Object invokeRaw(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(entry.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,20 +1,48 @@
 package prog2int.Config;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Patrón: Factory con configuración estática
  * - No se puede instanciar (constructor privado)
  * - Proporciona conexiones mediante método estático getConnection()
  * - Configuración cargada una sola vez en bloque static
+ * - Las conexiones salen de un ConnectionPool acotado (close() las devuelve al pool)
  *
  * Configuración por defecto:
  * - URL: jdbc:mysql://localhost:3306/NOMBRE_BASE_DE_DATOS
  * - Usuario: root
  * - Contraseña: vacía (común en desarrollo local)
  *
+ * Pool (propiedades del sistema db.pool.*):
+ * - db.pool.min=2, db.pool.max=10
+ * - db.pool.idleTimeoutMs=300000 (desalojo de conexiones ociosas, 0 = nunca)
+ * - db.pool.acquireTimeoutMs=10000 (espera máxima por una conexión)
+ * - db.pool.validationTimeoutSec=2 (Connection.isValid al prestar)
+ * - db.pool.validateAfterIdleMs=500 (solo se valida la conexión ociosa por más tiempo; 0 = siempre)
+ * - db.stmtCache.size=64 (PreparedStatement cacheados por conexión, 0 = sin caché)
+ *
+ * Réplicas de lectura (opcional):
+ * - db.replica.urls=url1,url2 (vacío = todo a la primaria)
+ * - db.replica.selection=ROUND_ROBIN | LEAST_LOADED
+ * - db.replica.pool.min / db.replica.pool.max (por réplica; por defecto los de la primaria)
+ * - db.replica.readYourWritesMs=2000 (ventana de lectura en la primaria tras escribir)
+ * - db.replica.retryMs=5000 (pausa de una réplica que falló)
+ *
+ * getConnection() es siempre la primaria (escrituras y TransactionManager). Las lecturas de
+ * los DAOs usan getReadConnection(), que va a una réplica salvo que el mismo hilo haya usado
+ * la primaria hace menos de readYourWritesMs (o la tenga prestada en ese momento): así quien
+ * escribe lee su propia escritura aunque la réplica tenga retraso.
+ *
+ * Read-your-writes es por hilo: no cubre una escritura y una lectura hechas en hilos distintos
+ * (ej. dos llamadas de AsyncService, cada una en su hilo virtual), ni a otros hilos que lean el
+ * mismo id. Por eso lo que se guarda en una caché compartida se lee con readFromPrimary().
+ * Prueba local: -Ddb.url=jdbc:mysql://localhost:3307/pedido_envio_jdbc
+ *               -Ddb.replica.urls=jdbc:mysql://localhost:3308/pedido_envio_jdbc
  */
 public final class DatabaseConnection {
     /** URL de conexión JDBC.*/
@@ -26,6 +54,40 @@ public final class DatabaseConnection {
     /** Contraseña del usuario. UTILIZAR CONTRASEÑA PROPIA de usuario ROOT */
     private static final String PASSWORD = System.getProperty("db.password", "Excavatorutn19!");
 
+    /* ===================== Pool ===================== */
+    private static final int POOL_MIN = Integer.getInteger("db.pool.min", 2);
+    private static final int POOL_MAX = Integer.getInteger("db.pool.max", 10);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("db.pool.idleTimeoutMs", 300_000L);
+    private static final long POOL_ACQUIRE_TIMEOUT_MS = Long.getLong("db.pool.acquireTimeoutMs", 10_000L);
+    private static final int POOL_VALIDATION_TIMEOUT_SEC = Integer.getInteger("db.pool.validationTimeoutSec", 2);
+    private static final long POOL_VALIDATE_AFTER_IDLE_MS = Long.getLong("db.pool.validateAfterIdleMs", 500L);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("db.stmtCache.size", 64);
+
+    /* ===================== Réplicas ===================== */
+    private static final String REPLICA_URLS = System.getProperty("db.replica.urls", "");
+    private static final String REPLICA_SELECTION = System.getProperty("db.replica.selection", "ROUND_ROBIN");
+    private static final int REPLICA_POOL_MIN = Integer.getInteger("db.replica.pool.min", POOL_MIN);
+    private static final int REPLICA_POOL_MAX = Integer.getInteger("db.replica.pool.max", POOL_MAX);
+    private static final long READ_YOUR_WRITES_MS = Long.getLong("db.replica.readYourWritesMs", 2_000L);
+    private static final long REPLICA_RETRY_MS = Long.getLong("db.replica.retryMs", 5_000L);
+
+    private static final ConnectionPool POOL;
+
+    /** null = sin réplicas configuradas. */
+    private static final ReplicaRouter REPLICAS;
+
+    /**
+     * Por hilo: {conexiones de escritura prestadas, nanoTime de la última devolución (0 = nunca),
+     * readFromPrimary anidados}.
+     * Arreglo mutable para no crear objetos en cada préstamo.
+     */
+    private static final ThreadLocal<long[]> PRIMARY_USE = ThreadLocal.withInitial(() -> new long[3]);
+
+    /** Índice en PRIMARY_USE: profundidad de readFromPrimary en curso. */
+    private static final int FORCED = 2;
+
+    private static final AtomicLong PRIMARY_READS = new AtomicLong();
+
     /**
      * Bloque de inicialización estática.
      * Se ejecuta UNA SOLA VEZ cuando la clase se carga en memoria.
@@ -44,9 +106,14 @@ public final class DatabaseConnection {
 
             // Valida configuración tempranamente (fail-fast)
             validateConfiguration();
+
+            POOL = new ConnectionPool(URL, USER, PASSWORD, POOL_MIN, POOL_MAX,
+                    POOL_IDLE_TIMEOUT_MS, POOL_ACQUIRE_TIMEOUT_MS, POOL_VALIDATION_TIMEOUT_SEC,
+                    POOL_VALIDATE_AFTER_IDLE_MS, STATEMENT_CACHE_SIZE);
+            REPLICAS = createReplicas();
         } catch (ClassNotFoundException e) {
             throw new ExceptionInInitializerError("Error: No se encontró el driver JDBC de MySQL: " + e.getMessage());
-        } catch (IllegalStateException e) {
+        } catch (IllegalStateException | IllegalArgumentException e) {
             throw new ExceptionInInitializerError("Error en la configuración de la base de datos: " + e.getMessage());
         }
     }
@@ -58,8 +125,118 @@ public final class DatabaseConnection {
         throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
     }
 
+    /**
+     * Presta una conexión de la primaria. Cerrarla (try-with-resources) la devuelve al pool.
+     * Usar para escrituras y transacciones; abre la ventana de read-your-writes del hilo.
+     */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        Connection conn = POOL.getConnection(DatabaseConnection::primaryReleased);
+        PRIMARY_USE.get()[0]++;
+        return conn;
+    }
+
+    /**
+     * Conexión para una lectura que tolera el retraso de replicación (getById, getAll, listados...).
+     * Va a una réplica si hay, salvo dentro de la ventana de read-your-writes del hilo;
+     * sin réplicas disponibles, a la primaria.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        if (REPLICAS != null && !recentPrimaryUse()) {
+            Connection conn = REPLICAS.getConnection();
+            if (conn != null) return conn;
+        }
+        PRIMARY_READS.incrementAndGet();
+        return POOL.getConnection();
+    }
+
+    /** Lectura que debe ir a la primaria (ver readFromPrimary). */
+    @FunctionalInterface
+    public interface PrimaryRead<T> {
+        T read() throws Exception;
+    }
+
+    /**
+     * Ejecuta reader con todas las lecturas del hilo (getReadConnection) en la primaria.
+     * Para cargas que se cachean: una fila de una réplica atrasada no debe quedar en una caché
+     * que leen otros hilos (ni su version llegar a un UPDATE optimista).
+     */
+    public static <T> T readFromPrimary(PrimaryRead<T> reader) throws Exception {
+        long[] use = PRIMARY_USE.get();
+        use[FORCED]++;
+        try {
+            return reader.read();
+        } finally {
+            use[FORCED]--;
+        }
+    }
+
+    /** true si hay réplicas de lectura configuradas. */
+    public static boolean hasReplicas() {
+        return REPLICAS != null;
+    }
+
+    /** Métricas de cada pool de réplica (vacío si no hay réplicas). */
+    public static List<PoolStats> getReplicaStats() {
+        return REPLICAS == null ? List.of() : REPLICAS.getStats();
+    }
+
+    /** Resumen del ruteo de lecturas (réplica vs primaria) para diagnóstico. */
+    public static String getRoutingStats() {
+        if (REPLICAS == null) return "Ruteo{sin replicas, lecturas=primaria}";
+        return "Ruteo{estrategia=" + REPLICAS.getStrategy() + ", replicas=" + REPLICAS.getUrls() +
+                ", lecturasReplica=" + REPLICAS.getReplicaReads() + ", lecturasPrimaria=" + PRIMARY_READS.get() +
+                ", fallosReplica=" + REPLICAS.getFailures() + ", ventanaRYWms=" + READ_YOUR_WRITES_MS + "}";
+    }
+
+    /** Métricas actuales del pool (activas/ociosas, tiempos de espera, timeouts). */
+    public static PoolStats getPoolStats() {
+        return POOL.getStats();
+    }
+
+    /** Cierra las conexiones físicas del pool. Llamar al salir de la aplicación. */
+    public static void shutdown() {
+        POOL.close();
+        if (REPLICAS != null) REPLICAS.close();
+    }
+
+    /* ===================== Ruteo de lecturas ===================== */
+
+    /**
+     * Conexión de escritura prestada en este hilo o devuelta hace menos de READ_YOUR_WRITES_MS,
+     * o lectura dentro de readFromPrimary.
+     */
+    private static boolean recentPrimaryUse() {
+        long[] use = PRIMARY_USE.get();
+        return use[0] > 0 || use[FORCED] > 0 || (use[1] != 0 && System.nanoTime() - use[1] < READ_YOUR_WRITES_MS * 1_000_000L);
+    }
+
+    /** Al devolver una conexión de escritura: corre en el hilo que la devolvió. */
+    private static void primaryReleased() {
+        long[] use = PRIMARY_USE.get();
+        if (use[0] > 0) use[0]--;
+        use[1] = System.nanoTime();
+    }
+
+    private static ReplicaRouter createReplicas() {
+        List<String> urls = new ArrayList<>();
+        for (String u : REPLICA_URLS.split(",")) {
+            if (!u.isBlank()) urls.add(u.trim());
+        }
+        if (urls.isEmpty()) return null;
+        ReplicaRouter.Strategy strategy;
+        try {
+            strategy = ReplicaRouter.Strategy.valueOf(REPLICA_SELECTION.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("db.replica.selection invalido: " + REPLICA_SELECTION
+                    + " (ROUND_ROBIN o LEAST_LOADED)");
+        }
+        List<ConnectionPool> pools = new ArrayList<>(urls.size());
+        for (String u : urls) {
+            pools.add(new ConnectionPool(u, USER, PASSWORD, REPLICA_POOL_MIN, REPLICA_POOL_MAX,
+                    POOL_IDLE_TIMEOUT_MS, POOL_ACQUIRE_TIMEOUT_MS, POOL_VALIDATION_TIMEOUT_SEC,
+                    POOL_VALIDATE_AFTER_IDLE_MS, STATEMENT_CACHE_SIZE));
+        }
+        return new ReplicaRouter(urls, pools, strategy, REPLICA_RETRY_MS);
     }
 
     /**
@@ -0,0 +1,83 @@
+package prog2int.Config;
+
+/**
+ * Snapshot inmutable de las métricas del ConnectionPool.
+ * Los tiempos de espera se guardan en nanosegundos y se exponen en milisegundos.
+ */
+public final class PoolStats {
+
+    private final int minSize;
+    private final int maxSize;
+    private final int active;
+    private final int idle;
+    private final int waiting;
+    private final long acquisitions;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long timeouts;
+    private final long created;
+    private final long destroyed;
+    private final long validationFailures;
+    private final long statementHits;
+    private final long statementMisses;
+    private final long statementEvictions;
+
+    public PoolStats(int minSize, int maxSize, int active, int idle, int waiting,
+                     long acquisitions, long totalWaitNanos, long maxWaitNanos, long timeouts,
+                     long created, long destroyed, long validationFailures,
+                     long statementHits, long statementMisses, long statementEvictions) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.acquisitions = acquisitions;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.timeouts = timeouts;
+        this.created = created;
+        this.destroyed = destroyed;
+        this.validationFailures = validationFailures;
+        this.statementHits = statementHits;
+        this.statementMisses = statementMisses;
+        this.statementEvictions = statementEvictions;
+    }
+
+    public int getMinSize() { return minSize; }
+    public int getMaxSize() { return maxSize; }
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getWaiting() { return waiting; }
+    public long getAcquisitions() { return acquisitions; }
+    public long getTimeouts() { return timeouts; }
+    public long getCreated() { return created; }
+    public long getDestroyed() { return destroyed; }
+    public long getValidationFailures() { return validationFailures; }
+    public long getStatementHits() { return statementHits; }
+    public long getStatementMisses() { return statementMisses; }
+    public long getStatementEvictions() { return statementEvictions; }
+
+    /** Proporción de prepareStatement resueltos desde la caché de sentencias. */
+    public double getStatementHitRate() {
+        long total = statementHits + statementMisses;
+        return total == 0 ? 0 : (double) statementHits / total;
+    }
+
+    public double getAvgWaitMillis() {
+        return acquisitions == 0 ? 0 : totalWaitNanos / 1_000_000.0 / acquisitions;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Pool{min=%d, max=%d, activas=%d, ociosas=%d, esperando=%d, prestamos=%d, "
+                        + "esperaProm=%.3fms, esperaMax=%.3fms, timeouts=%d, creadas=%d, destruidas=%d, invalidas=%d, "
+                        + "sentencias{hits=%d, misses=%d, hitRate=%.1f%%, desalojos=%d}}",
+                minSize, maxSize, active, idle, waiting, acquisitions,
+                getAvgWaitMillis(), getMaxWaitMillis(), timeouts, created, destroyed, validationFailures,
+                statementHits, statementMisses, getStatementHitRate() * 100, statementEvictions);
+    }
+}
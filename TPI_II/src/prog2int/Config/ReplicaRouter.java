@@ -0,0 +1,122 @@
+package prog2int.Config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Elige la réplica de lectura para DatabaseConnection.getReadConnection().
+ *
+ * - ROUND_ROBIN: rota entre réplicas
+ * - LEAST_LOADED: la de menos conexiones prestadas (empates: rota)
+ *
+ * Una réplica que falla al prestar conexión queda en pausa retryMillis: mientras tanto no se
+ * le envían lecturas. Si ninguna réplica responde, getConnection devuelve null y la lectura
+ * va a la primaria.
+ */
+final class ReplicaRouter implements AutoCloseable {
+
+    enum Strategy { ROUND_ROBIN, LEAST_LOADED }
+
+    private final List<String> urls;
+    private final List<ConnectionPool> pools;
+    private final Strategy strategy;
+    private final long retryMillis;
+    /** Hasta cuándo (System.currentTimeMillis) se saltea cada réplica después de un fallo. */
+    private final long[] downUntil;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    ReplicaRouter(List<String> urls, List<ConnectionPool> pools, Strategy strategy, long retryMillis) {
+        if (urls.isEmpty() || urls.size() != pools.size())
+            throw new IllegalArgumentException("Cada URL de réplica necesita su pool");
+        this.urls = List.copyOf(urls);
+        this.pools = List.copyOf(pools);
+        this.strategy = strategy;
+        this.retryMillis = retryMillis;
+        this.downUntil = new long[pools.size()];
+    }
+
+    /** Conexión de alguna réplica disponible, o null si ninguna responde. */
+    Connection getConnection() {
+        int n = pools.size();
+        int first = strategy == Strategy.LEAST_LOADED ? leastLoaded() : Math.floorMod(next.getAndIncrement(), n);
+        long now = System.currentTimeMillis();
+        for (int k = 0; k < n; k++) {
+            int i = (first + k) % n;
+            if (isDown(i, now)) continue;
+            try {
+                Connection conn = pools.get(i).getConnection();
+                replicaReads.incrementAndGet();
+                return conn;
+            } catch (SQLException e) {
+                failures.incrementAndGet();
+                markDown(i, now);
+                System.err.println("Replica no disponible (" + urls.get(i) + "): " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    List<PoolStats> getStats() {
+        List<PoolStats> stats = new ArrayList<>(pools.size());
+        for (ConnectionPool p : pools) stats.add(p.getStats());
+        return stats;
+    }
+
+    List<String> getUrls() {
+        return urls;
+    }
+
+    long getReplicaReads() {
+        return replicaReads.get();
+    }
+
+    long getFailures() {
+        return failures.get();
+    }
+
+    Strategy getStrategy() {
+        return strategy;
+    }
+
+    @Override
+    public void close() {
+        for (ConnectionPool p : pools) p.close();
+    }
+
+    private int leastLoaded() {
+        int n = pools.size();
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        long now = System.currentTimeMillis();
+        int best = start;
+        int bestActive = Integer.MAX_VALUE;
+        for (int k = 0; k < n; k++) {
+            int i = (start + k) % n;
+            if (isDown(i, now)) continue;
+            int active = pools.get(i).getActiveCount();
+            if (active < bestActive) {
+                bestActive = active;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private boolean isDown(int i, long now) {
+        synchronized (downUntil) {
+            return downUntil[i] > now;
+        }
+    }
+
+    private void markDown(int i, long now) {
+        synchronized (downUntil) {
+            downUntil[i] = now + retryMillis;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package prog2int.Config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caché LRU de PreparedStatement de UNA conexión física del pool.
+ *
+ * - Clave: texto SQL + modo de claves generadas (prepareStatement(sql) / prepareStatement(sql, int))
+ * - El DAO recibe un proxy: close() limpia parámetros y devuelve la sentencia a la caché
+ * - Con useServerPrepStmts=true el parse/plan del servidor se paga una vez por conexión
+ * - Si la sentencia ya está prestada (uso anidado del mismo SQL) se entrega una no cacheada
+ * - Admisión: un SQL entra a la caché recién en su segundo uso. El SQL de un solo uso (ej. el
+ *   último bloque de un INSERT multi-fila, de tamaño variable) no desaloja a las sentencias de
+ *   siempre; las listas IN las acota además InClause (tamaños en potencias de dos)
+ * - Al devolverla se restauran parámetros, fetchSize, maxRows y queryTimeout: el próximo uso
+ *   del mismo SQL no hereda lo que haya configurado el anterior. (StreamingQuery no pasa por
+ *   acá: usa prepareStatement(sql, tipo, concurrencia), que el pool no cachea.)
+ *
+ * La conexión la usa un solo hilo a la vez (la presta el pool); el lock cubre el caso de un
+ * llamador que la comparta entre hilos. Es un ReentrantLock y no synchronized: prepareStatement
+ * va al servidor y un hilo virtual (AsyncExecutor) bloqueado dentro de un monitor fija su carrier.
+ */
+final class StatementCache {
+
+    /** Setters cuyo valor sobrevive a clearParameters (release los restaura). */
+    private static final Set<String> CONFIG_SETTERS =
+            Set.of("setFetchSize", "setMaxRows", "setLargeMaxRows", "setQueryTimeout");
+
+    private final Connection raw;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private final LinkedHashMap<String, Cached> statements;
+    /** SQL vistos una vez y todavía no admitidos (acotado, LRU); también los desalojados. */
+    private final LinkedHashMap<String, Boolean> seen;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    StatementCache(Connection raw, int maxSize, AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+        this.raw = raw;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                if (size() <= StatementCache.this.maxSize) return false;
+                StatementCache.this.evictions.incrementAndGet();
+                seen.put(eldest.getKey(), Boolean.TRUE); // si vuelve a usarse, se readmite enseguida
+                Cached c = eldest.getValue();
+                if (c.inUse) c.closeOnReturn = true;
+                else closeQuietly(c.statement);
+                return true;
+            }
+        };
+        this.seen = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > StatementCache.this.maxSize * 4;
+            }
+        };
+    }
+
+    /**
+     * Devuelve un proxy de PreparedStatement para sql.
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS / NO_GENERATED_KEYS, o null para prepareStatement(sql)
+     * @param connectionProxy   conexión lógica que devuelve ps.getConnection()
+     */
+    PreparedStatement prepare(String sql, Integer autoGeneratedKeys, Connection connectionProxy) throws SQLException {
+        lock.lock();
+        try {
+            String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + "\u0000" + sql;
+            Cached c = statements.get(key);
+            if (c != null && !c.inUse) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                PreparedStatement ps = autoGeneratedKeys == null
+                        ? raw.prepareStatement(sql)
+                        : raw.prepareStatement(sql, autoGeneratedKeys);
+                if (c != null) {
+                    // El mismo SQL ya está en uso en esta conexión: sentencia de un solo uso
+                    return ps;
+                }
+                if (seen.remove(key) == null) {
+                    // Primer uso: no se admite todavía (la cierra el llamador)
+                    seen.put(key, Boolean.TRUE);
+                    return ps;
+                }
+                try {
+                    c = new Cached(ps);
+                } catch (SQLException e) {
+                    closeQuietly(ps);
+                    throw e;
+                }
+                c.inUse = true;
+                statements.put(key, c);
+                return wrap(c, connectionProxy);
+            }
+            c.inUse = true;
+            return wrap(c, connectionProxy);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Cierra todas las sentencias (la conexión física se destruye). */
+    void closeAll() {
+        lock.lock();
+        try {
+            Iterator<Cached> it = statements.values().iterator();
+            while (it.hasNext()) {
+                closeQuietly(it.next().statement);
+                it.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Cached c) {
+        lock.lock();
+        try {
+            c.inUse = false;
+            if (c.closeOnReturn) {
+                closeQuietly(c.statement);
+                return;
+            }
+            try {
+                c.statement.clearParameters();
+                if (c.dirty) {
+                    c.statement.setFetchSize(c.fetchSize);
+                    c.statement.setMaxRows(c.maxRows);
+                    c.statement.setQueryTimeout(c.queryTimeout);
+                    c.dirty = false;
+                }
+            } catch (SQLException e) {
+                statements.values().remove(c);
+                closeQuietly(c.statement);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PreparedStatement wrap(Cached c, Connection connectionProxy) {
+        boolean[] closed = {false};
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                release(c);
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return closed[0] || c.statement.isClosed();
+                        }
+                        case "getConnection" -> {
+                            return connectionProxy;
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        default -> {
+                            if (closed[0]) throw new SQLException("La sentencia ya fue cerrada");
+                            if (CONFIG_SETTERS.contains(method.getName())) c.dirty = true;
+                            try {
+                                return method.invoke(c.statement, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        }
+                    }
+                });
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            System.err.println("Error al cerrar sentencia cacheada: " + e.getMessage());
+        }
+    }
+
+    private static final class Cached {
+        final PreparedStatement statement;
+        /** Valores iniciales de la sentencia, a los que vuelve en release si se cambiaron. */
+        final int fetchSize;
+        final int maxRows;
+        final int queryTimeout;
+        boolean inUse;
+        boolean closeOnReturn;
+        boolean dirty;
+
+        Cached(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.maxRows = statement.getMaxRows();
+            this.queryTimeout = statement.getQueryTimeout();
+        }
+    }
+}
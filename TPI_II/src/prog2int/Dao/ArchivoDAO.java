@@ -0,0 +1,105 @@
+package prog2int.Dao;
+
+import prog2int.Config.DatabaseConnection;
+import prog2int.Config.TransactionManager;
+import prog2int.Metrics.LatencyRecorder;
+import prog2int.Metrics.Metrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO de archivado: mueve filas dadas de baja (eliminado = TRUE) con más de N días desde
+ * eliminadoEn a Envio_hist / Pedido_hist, de a un lote por transacción.
+ *
+ * Cada lote:
+ * 1. SELECT id ... FOR UPDATE LIMIT lote: bloquea las filas a mover
+ * 2. INSERT INTO X_hist (...) SELECT ... WHERE id IN (...)
+ * 3. DELETE FROM X WHERE id IN (...)
+ *
+ * Orden respecto de la FK Pedido.envio -> Envio.id: primero se archivan pedidos; un Envio solo
+ * se archiva si ningún Pedido de la tabla viva lo referencia. El FOR UPDATE sobre el Envio hace
+ * esperar a un INSERT de Pedido que lo referencie hasta el commit (y entonces falla por FK).
+ */
+public class ArchivoDAO {
+
+    /* ===================== Métricas ===================== */
+    private static final LatencyRecorder M_ARCHIVAR_PEDIDOS = Metrics.recorder("ArchivoDAO.archivarPedidos");
+    private static final LatencyRecorder M_ARCHIVAR_ENVIOS = Metrics.recorder("ArchivoDAO.archivarEnvios");
+
+    private static final String ENVIO_COLUMNS =
+            "id, eliminado, version, updatedAt, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado, eliminadoEn";
+
+    private static final String PEDIDO_COLUMNS =
+            "id, eliminado, version, updatedAt, numero, fecha, clienteNombre, total, estado, envio, eliminadoEn";
+
+    /**
+     * Candidatos por índice (eliminado, eliminadoEn, id); NOW() de la BD evita depender del reloj local.
+     * ORDER BY eliminadoEn, id es el orden del índice dentro del rango: el LIMIT corta el recorrido
+     * y solo se leen y bloquean las filas del lote (ORDER BY id obligaría a leer, ordenar y
+     * bloquear todas las archivables en cada lote).
+     */
+    private static final String SELECT_PEDIDOS_SQL =
+            "SELECT id FROM Pedido WHERE eliminado = TRUE AND eliminadoEn < NOW() - INTERVAL ? DAY " +
+                    "ORDER BY eliminadoEn, id LIMIT ? FOR UPDATE";
+
+    private static final String SELECT_ENVIOS_SQL =
+            "SELECT e.id FROM Envio e WHERE e.eliminado = TRUE AND e.eliminadoEn < NOW() - INTERVAL ? DAY " +
+                    "AND NOT EXISTS (SELECT 1 FROM Pedido p WHERE p.envio = e.id) " +
+                    "ORDER BY e.eliminadoEn, e.id LIMIT ? FOR UPDATE";
+
+    /** Archiva hasta lote pedidos en una transacción; devuelve cuántos movió (0 = no quedan). */
+    public int archivarPedidos(int diasRetencion, int lote) throws Exception {
+        return M_ARCHIVAR_PEDIDOS.time(() -> archivarLote("Pedido", PEDIDO_COLUMNS, SELECT_PEDIDOS_SQL, diasRetencion, lote),
+                Integer::longValue);
+    }
+
+    /** Archiva hasta lote envíos sin pedidos que los referencien; devuelve cuántos movió. */
+    public int archivarEnvios(int diasRetencion, int lote) throws Exception {
+        return M_ARCHIVAR_ENVIOS.time(() -> archivarLote("Envio", ENVIO_COLUMNS, SELECT_ENVIOS_SQL, diasRetencion, lote),
+                Integer::longValue);
+    }
+
+    private int archivarLote(String table, String columns, String selectSql, int diasRetencion, int lote) throws Exception {
+        lote = Math.min(lote, InClause.MAX_IDS); // los ids del lote van después en una lista IN
+        try (TransactionManager tx = new TransactionManager(DatabaseConnection.getConnection())) {
+            tx.startTransaction();
+            Connection conn = tx.getConnection();
+
+            List<Long> ids = new ArrayList<>(lote);
+            try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+                ps.setInt(1, diasRetencion);
+                ps.setInt(2, lote);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) ids.add(rs.getLong(1));
+                }
+            }
+            if (ids.isEmpty()) {
+                tx.commit();
+                return 0;
+            }
+
+            String in = " WHERE id IN (" + InClause.placeholders(ids.size()) + ")";
+            int copied = executeWithIds(conn, "INSERT INTO " + table + "_hist (" + columns + ", archivadoEn) " +
+                    "SELECT " + columns + ", NOW() FROM " + table + in, ids);
+            int deleted = executeWithIds(conn, "DELETE FROM " + table + in, ids);
+            if (copied != ids.size() || deleted != ids.size()) {
+                throw new SQLException("Archivado inconsistente en " + table + ": " + ids.size() + " filas, "
+                        + copied + " copiadas y " + deleted + " borradas");
+            }
+            tx.commit();
+            return ids.size();
+        }
+    }
+
+    private static int executeWithIds(Connection conn, String sql, List<Long> ids) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            InClause.bind(ps, 0, ids);
+            return ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package prog2int.Dao;
+
+import prog2int.Models.Base;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Soporte para inserciones masivas con INSERT multi-fila.
+ * - Arma "INSERT ... VALUES (..), (..), ..." por bloques de hasta chunkSize filas
+ * - Un solo round trip por bloque (en lugar de uno por fila)
+ * - Asigna los IDs generados a las entidades en el mismo orden de inserción
+ *
+ * Tamaño de bloque por defecto: propiedad del sistema db.batch.size (500). Se recorta a
+ * MAX_PARAMS / paramsPerRow: MySQL rechaza una sentencia preparada con más de 65535 parámetros.
+ */
+final class BatchInsert {
+
+    static final int DEFAULT_CHUNK_SIZE = Integer.getInteger("db.batch.size", 500);
+
+    /** Máximo de marcadores '?' por sentencia preparada en MySQL. */
+    static final int MAX_PARAMS = 65_535;
+
+    /** Enlaza los parámetros de una fila a partir del índice offset + 1. */
+    @FunctionalInterface
+    interface RowBinder<T> {
+        void bind(PreparedStatement ps, T entity, int offset) throws SQLException;
+    }
+
+    private BatchInsert() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    /**
+     * Inserta todas las entidades usando la Connection recibida (NO se cierra aquí).
+     *
+     * @param insertPrefix   "INSERT INTO Tabla (cols) VALUES "
+     * @param rowPlaceholder "(FALSE, ?, ?, ...)"
+     * @param paramsPerRow   cantidad de '?' en rowPlaceholder
+     */
+    static <T extends Base> void insertAll(Connection conn, List<T> entities, String insertPrefix,
+                                           String rowPlaceholder, int paramsPerRow, int chunkSize,
+                                           RowBinder<T> binder) throws SQLException {
+        if (entities == null || entities.isEmpty()) return;
+        if (chunkSize <= 0) throw new IllegalArgumentException("El tamaño de bloque debe ser > 0");
+        chunkSize = Math.min(chunkSize, MAX_PARAMS / paramsPerRow);
+
+        String fullChunkSql = null;
+        for (int from = 0; from < entities.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, entities.size());
+            int rows = to - from;
+            String sql;
+            if (rows == chunkSize) {
+                if (fullChunkSql == null) fullChunkSql = buildSql(insertPrefix, rowPlaceholder, rows);
+                sql = fullChunkSql;
+            } else {
+                sql = buildSql(insertPrefix, rowPlaceholder, rows);
+            }
+
+            List<T> chunk = entities.subList(from, to);
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < rows; i++) {
+                    binder.bind(ps, chunk.get(i), i * paramsPerRow);
+                }
+                ps.executeUpdate();
+                assignGeneratedIds(ps, chunk);
+            }
+        }
+    }
+
+    private static String buildSql(String insertPrefix, String rowPlaceholder, int rows) {
+        StringBuilder sb = new StringBuilder(insertPrefix.length() + rows * (rowPlaceholder.length() + 2));
+        sb.append(insertPrefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(rowPlaceholder);
+        }
+        return sb.toString();
+    }
+
+    private static <T extends Base> void assignGeneratedIds(PreparedStatement ps, List<T> chunk) throws SQLException {
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            for (T entity : chunk) {
+                if (!keys.next()) throw new SQLException("INSERT masivo sin ID generado para todas las filas");
+                entity.setId(keys.getLong(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package prog2int.Dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cambio de estado masivo por conjuntos de ids (Envio.estado / Pedido.estado).
+ *
+ * Por cada bloque de hasta chunkSize ids, dos sentencias en lugar de 2 por id:
+ * 1. SELECT id, estado ... FOR UPDATE: bloquea las filas y clasifica cada id
+ * 2. UPDATE ... SET estado = nuevo WHERE estado = anterior AND id IN (...): escribe estado y
+ *    version; updatedAt lo actualiza la BD (ON UPDATE)
+ *
+ * Orden legal: los estados avanzan de a uno según el orden del ENUM (el anterior del
+ * nuevo estado es el único que puede pasar a él). La regla la aplica el WHERE del UPDATE.
+ */
+final class BulkStateUpdate {
+
+    private BulkStateUpdate() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    /**
+     * Aplica el cambio usando la Connection recibida (NO se cierra ni se confirma aquí).
+     *
+     * @param table    tabla con columnas id, eliminado y estado (ENUM)
+     * @param nuevo    estado destino
+     * @param anterior único estado desde el que se permite pasar a nuevo (null = ninguno)
+     * @return resultado por id, en el orden recibido (sin duplicados)
+     */
+    static <E extends Enum<E>> Map<Long, ResultadoTransicion> update(Connection conn, String table, Collection<Long> ids,
+                                                                     E nuevo, E anterior, int chunkSize) throws SQLException {
+        if (chunkSize <= 0) throw new IllegalArgumentException("El tamaño de bloque debe ser > 0");
+        chunkSize = Math.min(chunkSize, InClause.MAX_IDS);
+        for (Long id : ids) {
+            if (id == null) throw new IllegalArgumentException("La lista de ids no puede contener null");
+        }
+        List<Long> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, ResultadoTransicion> result = new LinkedHashMap<>(unique.size() * 2);
+        for (Long id : unique) result.put(id, ResultadoTransicion.NO_ENCONTRADO);
+
+        for (int from = 0; from < unique.size(); from += chunkSize) {
+            List<Long> chunk = unique.subList(from, Math.min(from + chunkSize, unique.size()));
+            Map<Long, Integer> current = lockCurrent(conn, table, chunk);
+
+            List<Long> candidates = new ArrayList<>();
+            for (Map.Entry<Long, Integer> e : current.entrySet()) {
+                int estado = e.getValue(); // índice del ENUM (1 = primer valor)
+                if (estado == nuevo.ordinal() + 1) {
+                    result.put(e.getKey(), ResultadoTransicion.SIN_CAMBIO);
+                } else if (anterior != null && estado == anterior.ordinal() + 1) {
+                    candidates.add(e.getKey());
+                } else {
+                    result.put(e.getKey(), ResultadoTransicion.TRANSICION_INVALIDA);
+                }
+            }
+            if (candidates.isEmpty()) continue;
+
+            int updated = applyUpdate(conn, table, candidates, nuevo, anterior);
+            if (updated != candidates.size()) {
+                throw new SQLException("Cambio de estado inconsistente en " + table + ": se esperaban "
+                        + candidates.size() + " filas y se actualizaron " + updated);
+            }
+            for (Long id : candidates) result.put(id, ResultadoTransicion.ACTUALIZADO);
+        }
+        return result;
+    }
+
+    private static Map<Long, Integer> lockCurrent(Connection conn, String table, List<Long> ids) throws SQLException {
+        String sql = "SELECT id, estado+0 FROM " + table + " WHERE eliminado = FALSE AND id IN ("
+                + InClause.placeholders(ids.size()) + ") FOR UPDATE";
+        Map<Long, Integer> current = new HashMap<>(ids.size() * 2);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            InClause.bind(ps, 0, ids);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) current.put(rs.getLong(1), rs.getInt(2));
+            }
+        }
+        return current;
+    }
+
+    private static <E extends Enum<E>> int applyUpdate(Connection conn, String table, List<Long> ids,
+                                                       E nuevo, E anterior) throws SQLException {
+        String sql = "UPDATE " + table + " SET estado = ?, version = version + 1 WHERE eliminado = FALSE AND estado = ? AND id IN ("
+                + InClause.placeholders(ids.size()) + ")";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, nuevo.name());
+            ps.setString(2, anterior.name());
+            InClause.bind(ps, 2, ids);
+            return ps.executeUpdate();
+        }
+    }
+}
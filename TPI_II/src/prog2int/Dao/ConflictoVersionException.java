@@ -0,0 +1,29 @@
+package prog2int.Dao;
+
+/**
+ * La fila cambió desde que se leyó: el UPDATE condicionado por version no encontró la
+ * versión esperada (control de concurrencia optimista). Releer y reintentar, o avisar al usuario.
+ */
+public class ConflictoVersionException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String entidad;
+    private final long id;
+    private final long versionEsperada;
+    private final long versionActual;
+
+    public ConflictoVersionException(String entidad, long id, long versionEsperada, long versionActual) {
+        super(entidad + " id=" + id + " fue modificado por otro usuario (version esperada " + versionEsperada
+                + ", actual " + versionActual + "). Vuelva a cargarlo e intente de nuevo.");
+        this.entidad = entidad;
+        this.id = id;
+        this.versionEsperada = versionEsperada;
+        this.versionActual = versionActual;
+    }
+
+    public String getEntidad() { return entidad; }
+    public long getId() { return id; }
+    public long getVersionEsperada() { return versionEsperada; }
+    public long getVersionActual() { return versionActual; }
+}
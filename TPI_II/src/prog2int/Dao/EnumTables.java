@@ -0,0 +1,51 @@
+package prog2int.Dao;
+
+import prog2int.Models.Empresa;
+import prog2int.Models.EstadoEnvio;
+import prog2int.Models.EstadoPedido;
+import prog2int.Models.TipoEnvio;
+
+/**
+ * Tablas de lookup de enums por índice de ENUM de MySQL.
+ *
+ * Las consultas de los DAOs seleccionan "columna+0", que en MySQL devuelve el índice
+ * (1-based) del valor dentro de la definición ENUM(...). Así el mapeo es un acceso a
+ * arreglo en lugar de rs.getString + valueOf (sin String ni hashing por fila).
+ *
+ * IMPORTANTE: el orden de las constantes Java debe coincidir con el ENUM de TPI-Esquema.sql.
+ * Índice 0 (valor vacío/inválido) o NULL (getInt devuelve 0) se mapean a null.
+ */
+final class EnumTables {
+
+    private static final Empresa[] EMPRESAS = Empresa.values();
+    private static final TipoEnvio[] TIPOS_ENVIO = TipoEnvio.values();
+    private static final EstadoEnvio[] ESTADOS_ENVIO = EstadoEnvio.values();
+    private static final EstadoPedido[] ESTADOS_PEDIDO = EstadoPedido.values();
+
+    private EnumTables() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    static Empresa empresa(int mysqlIndex) {
+        return lookup(EMPRESAS, mysqlIndex);
+    }
+
+    static TipoEnvio tipoEnvio(int mysqlIndex) {
+        return lookup(TIPOS_ENVIO, mysqlIndex);
+    }
+
+    static EstadoEnvio estadoEnvio(int mysqlIndex) {
+        return lookup(ESTADOS_ENVIO, mysqlIndex);
+    }
+
+    static EstadoPedido estadoPedido(int mysqlIndex) {
+        return lookup(ESTADOS_PEDIDO, mysqlIndex);
+    }
+
+    private static <E> E lookup(E[] table, int mysqlIndex) {
+        if (mysqlIndex <= 0) return null;
+        if (mysqlIndex > table.length)
+            throw new IllegalStateException("Indice de ENUM fuera de rango: " + mysqlIndex + " (revisar orden del enum)");
+        return table[mysqlIndex - 1];
+    }
+}
@@ -1,137 +1,321 @@
 package prog2int.Dao;
 
 import prog2int.Config.DatabaseConnection;
+import prog2int.Config.TransactionManager;
+import prog2int.Metrics.LatencyRecorder;
+import prog2int.Metrics.Metrics;
 import prog2int.Models.*;
 
 import java.sql.*;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * DAO Envio.
  * - CRUD con soft delete (eliminado = TRUE)
- * - Enums mapeados con valueOf() (coinciden con ENUM de MySQL)
- * - Fechas con LocalDate (usa DATE en BD)
+ * - Enums leídos por índice de ENUM de MySQL (ver EnumTables)
+ * - Fechas con LocalDate (lectura directa con getObject(LocalDate.class))
+ * - Mapeo por posición de columna (sin búsqueda por nombre)
  */
 public class EnvioDAO implements GenericDAO<Envio> {
 
-    private static final String INSERT_SQL =
-            "INSERT INTO Envio (eliminado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado) " +
-                    "VALUES (FALSE, ?, ?, ?, ?, ?, ?, ?)";
+    /** Filas por sentencia INSERT multi-fila en insertAll. */
+    private int batchSize = BatchInsert.DEFAULT_CHUNK_SIZE;
+
+    /* ===================== Métricas ===================== */
+    private static final LatencyRecorder M_INSERTAR = Metrics.recorder("EnvioDAO.insertar");
+    private static final LatencyRecorder M_INSERT_TX = Metrics.recorder("EnvioDAO.insertTx");
+    private static final LatencyRecorder M_INSERT_ALL = Metrics.recorder("EnvioDAO.insertAll");
+    private static final LatencyRecorder M_INSERT_ALL_TX = Metrics.recorder("EnvioDAO.insertAllTx");
+    private static final LatencyRecorder M_ACTUALIZAR = Metrics.recorder("EnvioDAO.actualizar");
+    private static final LatencyRecorder M_ACTUALIZAR_ESTADO = Metrics.recorder("EnvioDAO.actualizarEstado");
+    private static final LatencyRecorder M_ELIMINAR = Metrics.recorder("EnvioDAO.eliminar");
+    private static final LatencyRecorder M_GET_BY_ID = Metrics.recorder("EnvioDAO.getById");
+    private static final LatencyRecorder M_GET_ALL = Metrics.recorder("EnvioDAO.getAll");
+    private static final LatencyRecorder M_STREAM = Metrics.recorder("EnvioDAO.stream");
+    private static final LatencyRecorder M_GET_PAGE = Metrics.recorder("EnvioDAO.getPage");
+    private static final LatencyRecorder M_GET_CHANGED_SINCE = Metrics.recorder("EnvioDAO.getChangedSince");
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO Envio (eliminado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado) VALUES ";
+
+    private static final String INSERT_ROW = "(FALSE, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int INSERT_PARAMS = 7;
+
+    private static final String INSERT_SQL = INSERT_PREFIX + INSERT_ROW;
 
     private static final String UPDATE_SQL =
-            "UPDATE Envio SET tracking = ?, empresa = ?, tipo = ?, costo = ?, fechaDespacho = ?, fechaEstimada = ?, estado = ? " +
-                    "WHERE id = ? AND eliminado = FALSE";
+            "UPDATE Envio SET tracking = ?, empresa = ?, tipo = ?, costo = ?, fechaDespacho = ?, fechaEstimada = ?, estado = ?, " +
+                    "version = version + 1 WHERE id = ? AND version = ? AND eliminado = FALSE";
 
     private static final String DELETE_SQL =
-            "UPDATE Envio SET eliminado = TRUE WHERE id = ? AND eliminado = FALSE";
+            "UPDATE Envio SET eliminado = TRUE, eliminadoEn = NOW(), version = version + 1 WHERE id = ? AND eliminado = FALSE";
+
+    /**
+     * Columnas en el orden que espera map(rs, offset). Los ENUM se leen como índice (+0),
+     * ver EnumTables.
+     */
+    static final String SELECT_COLUMNS =
+            "id, eliminado, tracking, empresa+0, tipo+0, costo, fechaDespacho, fechaEstimada, estado+0, version, updatedAt";
+
+    /** Cantidad de columnas de SELECT_COLUMNS (offset para quien lo anteponga en un JOIN). */
+    static final int COLUMN_COUNT = 11;
+
+    /** Mapper de filas en el orden de SELECT_COLUMNS (expuesto para benchmarks). */
+    public static final RowMapper<Envio> ROW_MAPPER = rs -> map(rs, 0);
+
+    private static final String BASE_SELECT =
+            "SELECT " + SELECT_COLUMNS + " FROM Envio ";
 
     private static final String SELECT_BY_ID_SQL =
-            "SELECT id, eliminado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado " +
-                    "FROM Envio WHERE id = ? AND eliminado = FALSE";
+            BASE_SELECT + "WHERE id = ? AND eliminado = FALSE";
 
+    /** Ordenado por id sin costo extra (índice (eliminado, id)); EnvioSnapshot carga en ese orden. */
     private static final String SELECT_ALL_SQL =
-            "SELECT id, eliminado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado " +
-                    "FROM Envio WHERE eliminado = FALSE";
+            BASE_SELECT + "WHERE eliminado = FALSE ORDER BY id";
+
+    /** Paginación por clave (keyset): sin OFFSET, usa el índice (eliminado, id). */
+    private static final String SELECT_PAGE_SQL =
+            BASE_SELECT + "WHERE eliminado = FALSE AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_ESTADO_SQL =
+            BASE_SELECT + "WHERE eliminado = FALSE AND estado = ? AND id > ? ORDER BY id LIMIT ?";
+
+    /**
+     * Feed de cambios por clave (updatedAt, id), incluidas las bajas; usa envio_cambios_idx.
+     * (updatedAt, id) > (?, ?) escrito con updatedAt >= ? al frente: MySQL no arma un rango de
+     * índice con la comparación de filas y recorrería el índice desde el principio.
+     */
+    private static final String SELECT_CHANGED_SQL =
+            BASE_SELECT + "WHERE updatedAt >= ? AND (updatedAt > ? OR id > ?) ORDER BY updatedAt, id LIMIT ?";
 
     @Override
     public void insertar(Envio envio) throws Exception {
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        M_INSERTAR.time(() -> {
+            try (Connection conn = DatabaseConnection.getConnection()) {
             
-            conn.setAutoCommit(false);
-            try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
             
 
-            setParams(ps, envio);
-            int filasAfectadas = ps.executeUpdate();
-            if(filasAfectadas > 0) {
-                try(ResultSet generatedKeys = ps.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {                       
-                        conn.commit();                        
+                setParams(ps, envio);
+                int filasAfectadas = ps.executeUpdate();
+                if(filasAfectadas > 0) {
+                    try(ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {                       
+                            conn.commit();                        
+                        }
                     }
                 }
+                setGeneratedId(ps, envio);           
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e; // sin esto el llamador (y M_INSERTAR) lo toman como alta exitosa con id 0
+            } finally {
+                    conn.setAutoCommit(true);
+                }
             }
-            setGeneratedId(ps, envio);           
-        } catch (SQLException e) {
-            conn.rollback();
-            System.out.println("Error al hacer insert, transaccion revertida");
-        } finally {
-                conn.setAutoCommit(true);
-            }
-        }
+        }, 1);
     }
 
     @Override
     public void insertTx(Envio envio, Connection conn) throws Exception {
-        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            setParams(ps, envio);
-            ps.executeUpdate();
-            setGeneratedId(ps, envio);
+        M_INSERT_TX.time(() -> {
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                setParams(ps, envio);
+                ps.executeUpdate();
+                setGeneratedId(ps, envio);
+            }
+        }, 1);
+    }
+
+    @Override
+    public void insertAll(List<Envio> envios) throws Exception {
+        M_INSERT_ALL.time(() -> {
+            try (TransactionManager tx = new TransactionManager(DatabaseConnection.getConnection())) {
+                tx.startTransaction();
+                doInsertAllTx(envios, tx.getConnection()); // M_INSERT_ALL ya mide la llamada
+                tx.commit();
+            }
+        }, envios == null ? 0 : envios.size());
+    }
+
+    @Override
+    public void insertAllTx(List<Envio> envios, Connection conn) throws Exception {
+        M_INSERT_ALL_TX.time(() -> doInsertAllTx(envios, conn), envios == null ? 0 : envios.size());
+    }
+
+    private void doInsertAllTx(List<Envio> envios, Connection conn) throws Exception {
+        BatchInsert.insertAll(conn, envios, INSERT_PREFIX, INSERT_ROW, INSERT_PARAMS, batchSize, this::setParams);
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize debe ser > 0");
+        this.batchSize = batchSize;
+    }
+
+    /* ===================== Cambio de estado masivo ===================== */
+
+    /**
+     * Pasa los ids a nuevo estado en una sola transacción (UPDATE por bloques de batchSize ids).
+     * Solo avanzan los que están en el estado inmediato anterior; ver ResultadoTransicion.
+     */
+    public Map<Long, ResultadoTransicion> actualizarEstado(Collection<Long> ids, EstadoEnvio nuevo) throws Exception {
+        try (TransactionManager tx = new TransactionManager(DatabaseConnection.getConnection())) {
+            tx.startTransaction();
+            Map<Long, ResultadoTransicion> result = actualizarEstadoTx(ids, nuevo, tx.getConnection());
+            tx.commit();
+            return result;
         }
     }
 
+    /** Igual que actualizarEstado usando una Connection externa (NO se cierra ni se confirma aquí). */
+    public Map<Long, ResultadoTransicion> actualizarEstadoTx(Collection<Long> ids, EstadoEnvio nuevo, Connection conn) throws Exception {
+        return M_ACTUALIZAR_ESTADO.time(() -> {
+            EstadoEnvio anterior = nuevo.ordinal() == 0 ? null : EstadoEnvio.values()[nuevo.ordinal() - 1];
+            return BulkStateUpdate.update(conn, "Envio", ids, nuevo, anterior, batchSize);
+        }, Map::size);
+    }
+
     @Override
     public void actualizar(Envio envio) throws Exception {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
-
-            ps.setString(1, envio.getTracking());
-            ps.setString(2, envio.getEmpresa() != null ? envio.getEmpresa().name() : null);
-            ps.setString(3, envio.getTipo() != null ? envio.getTipo().name() : null);
-            ps.setDouble(4, envio.getCosto());
-            setLocalDate(ps, 5, envio.getFechaDespacho());
-            setLocalDate(ps, 6, envio.getFechaEstimada());
-            ps.setString(7, envio.getEstado() != null ? envio.getEstado().name() : null);
-            ps.setLong(8, envio.getId());
-
-            int rows = ps.executeUpdate();
-            if (rows == 0) throw new SQLException("No se actualizo Envio id=" + envio.getId());
-        }
+        M_ACTUALIZAR.time(() -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
+
+                ps.setString(1, envio.getTracking());
+                ps.setString(2, envio.getEmpresa() != null ? envio.getEmpresa().name() : null);
+                ps.setString(3, envio.getTipo() != null ? envio.getTipo().name() : null);
+                ps.setDouble(4, envio.getCosto());
+                setLocalDate(ps, 5, envio.getFechaDespacho());
+                setLocalDate(ps, 6, envio.getFechaEstimada());
+                ps.setString(7, envio.getEstado() != null ? envio.getEstado().name() : null);
+                ps.setLong(8, envio.getId());
+                ps.setLong(9, envio.getVersion());
+
+                OptimisticLock.afterUpdate(conn, "Envio", envio, ps.executeUpdate());
+            }
+        }, 1);
     }
 
     @Override
     public void eliminar(long id) throws Exception {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
-            ps.setLong(1, id);
-            int rows = ps.executeUpdate();
-            if (rows == 0) throw new SQLException("No se encontro Envio activo id=" + id);
-        }
+        M_ELIMINAR.time(() -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
+                ps.setLong(1, id);
+                int rows = ps.executeUpdate();
+                if (rows == 0) throw new SQLException("No se encontro Envio activo id=" + id);
+            }
+        }, 1);
     }
 
     @Override
     public Envio getById(long id) throws Exception {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
-            ps.setLong(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? map(rs) : null;
+        return M_GET_BY_ID.time(() -> {
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? map(rs) : null;
+                }
             }
-        }
+        }, r -> r == null ? 0 : 1);
     }
 
     @Override
     public List<Envio> getAll() throws Exception {
-        List<Envio> list = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(SELECT_ALL_SQL)) {
-            while (rs.next()) list.add(map(rs));
-        }
-        return list;
+        return M_GET_ALL.time(() -> {
+            List<Envio> list = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery(SELECT_ALL_SQL)) {
+                while (rs.next()) list.add(map(rs));
+            }
+            return list;
+        }, List::size);
+    }
+
+    @Override
+    public Stream<Envio> stream() throws Exception {
+        return M_STREAM.timeStream(() -> StreamingQuery.stream(SELECT_ALL_SQL, this::map));
+    }
+
+    /* ===================== Paginación ===================== */
+
+    /**
+     * Página de envíos activos con id > afterId, ordenados por id.
+     * Para la página siguiente pasar el id del último elemento devuelto (0 para la primera).
+     */
+    @Override
+    public List<Envio> getPage(long afterId, int limit) throws Exception {
+        return getPage(afterId, limit, null);
+    }
+
+    /** Igual que getPage(afterId, limit) pero filtrando por estado (null = sin filtro). */
+    public List<Envio> getPage(long afterId, int limit, EstadoEnvio estado) throws Exception {
+        return M_GET_PAGE.time(() -> {
+            List<Envio> list = new ArrayList<>(limit);
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(estado == null ? SELECT_PAGE_SQL : SELECT_PAGE_BY_ESTADO_SQL)) {
+                int idx = 1;
+                if (estado != null) ps.setString(idx++, estado.name());
+                ps.setLong(idx++, afterId);
+                ps.setInt(idx, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) list.add(map(rs));
+                }
+            }
+            return list;
+        }, List::size);
+    }
+
+    /* ===================== Feed de cambios ===================== */
+
+    @Override
+    public List<Envio> getChangedSince(Instant since, long afterId, int limit) throws Exception {
+        return M_GET_CHANGED_SINCE.time(() -> {
+            if (since == null) throw new IllegalArgumentException("since no puede ser null");
+            if (limit <= 0) throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0");
+            List<Envio> list = new ArrayList<>(limit);
+            // Primaria: en una réplica un cambio aparece recién al aplicarse, con el updatedAt original,
+            // y un consumidor que ya avanzó su cursor por encima lo perdería sin importar el margen
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(SELECT_CHANGED_SQL)) {
+                Timestamp ts = Timestamp.from(since);
+                ps.setTimestamp(1, ts);
+                ps.setTimestamp(2, ts);
+                ps.setLong(3, afterId);
+                ps.setInt(4, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) list.add(map(rs));
+                }
+            }
+            return list;
+        }, List::size);
     }
 
     /* ===================== Helpers ===================== */
 
     private void setParams(PreparedStatement ps, Envio e) throws SQLException {
-        ps.setString(1, e.getTracking());
-        ps.setString(2, e.getEmpresa() != null ? e.getEmpresa().name() : null);
-        ps.setString(3, e.getTipo() != null ? e.getTipo().name() : null);
-        ps.setDouble(4, e.getCosto());
-        setLocalDate(ps, 5, e.getFechaDespacho());
-        setLocalDate(ps, 6, e.getFechaEstimada());
-        ps.setString(7, e.getEstado() != null ? e.getEstado().name() : null);
+        setParams(ps, e, 0);
+    }
+
+    /** Enlaza los 7 parámetros de INSERT_ROW a partir del índice offset + 1. */
+    private void setParams(PreparedStatement ps, Envio e, int offset) throws SQLException {
+        ps.setString(offset + 1, e.getTracking());
+        ps.setString(offset + 2, e.getEmpresa() != null ? e.getEmpresa().name() : null);
+        ps.setString(offset + 3, e.getTipo() != null ? e.getTipo().name() : null);
+        ps.setDouble(offset + 4, e.getCosto());
+        setLocalDate(ps, offset + 5, e.getFechaDespacho());
+        setLocalDate(ps, offset + 6, e.getFechaEstimada());
+        ps.setString(offset + 7, e.getEstado() != null ? e.getEstado().name() : null);
     }
 
     private void setGeneratedId(PreparedStatement ps, Envio e) throws SQLException {
@@ -147,28 +331,27 @@ public class EnvioDAO implements GenericDAO<Envio> {
     }
 
     private Envio map(ResultSet rs) throws SQLException {
-        Envio e = new Envio();
-        e.setId(rs.getLong("id"));
-        e.setEliminado(rs.getBoolean("eliminado"));
-        e.setTracking(rs.getString("tracking"));
-
-        String empresa = rs.getString("empresa");
-        if (empresa != null) e.setEmpresa(Empresa.valueOf(empresa));
-
-        String tipo = rs.getString("tipo");
-        if (tipo != null) e.setTipo(TipoEnvio.valueOf(tipo));
-
-        e.setCosto(rs.getDouble("costo"));
-
-        Date fd = rs.getDate("fechaDespacho");
-        if (fd != null) e.setFechaDespacho(fd.toLocalDate());
-
-        Date fe = rs.getDate("fechaEstimada");
-        if (fe != null) e.setFechaEstimada(fe.toLocalDate());
-
-        String estado = rs.getString("estado");
-        if (estado != null) e.setEstado(EstadoEnvio.valueOf(estado));
+        return map(rs, 0);
+    }
 
+    /**
+     * Mapea un Envio por posición de columna: lee las columnas offset+1 .. offset+COLUMN_COUNT
+     * en el orden de SELECT_COLUMNS. Usado también por PedidoDAO para hidratar el Envio de un JOIN.
+     */
+    static Envio map(ResultSet rs, int offset) throws SQLException {
+        Envio e = new Envio();
+        e.setId(rs.getLong(offset + 1));
+        e.setEliminado(rs.getBoolean(offset + 2));
+        e.setTracking(rs.getString(offset + 3));
+        e.setEmpresa(EnumTables.empresa(rs.getInt(offset + 4)));
+        e.setTipo(EnumTables.tipoEnvio(rs.getInt(offset + 5)));
+        e.setCosto(rs.getDouble(offset + 6));
+        e.setFechaDespacho(rs.getObject(offset + 7, LocalDate.class));
+        e.setFechaEstimada(rs.getObject(offset + 8, LocalDate.class));
+        e.setEstado(EnumTables.estadoEnvio(rs.getInt(offset + 9)));
+        e.setVersion(rs.getLong(offset + 10));
+        Timestamp updatedAt = rs.getTimestamp(offset + 11);
+        e.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
         return e;
     }
 }
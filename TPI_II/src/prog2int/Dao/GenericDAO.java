@@ -1,7 +1,10 @@
 package prog2int.Dao;
 
 import java.sql.Connection;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * DAO genérico para operaciones CRUD básicas con soporte transaccional.
@@ -12,6 +15,12 @@ public interface GenericDAO<T> {
     /** Inserción usando una Connection externa (NO cerrar conn aquí). */
     void insertTx(T entity, Connection conn) throws Exception;
 
+    /** Inserción masiva en una sola transacción (INSERT multi-fila por bloques); asigna los IDs generados. */
+    void insertAll(List<T> entities) throws Exception;
+
+    /** Inserción masiva usando una Connection externa (NO cerrar conn aquí). */
+    void insertAllTx(List<T> entities, Connection conn) throws Exception;
+
     void actualizar(T entity) throws Exception;
 
     /** Soft delete (eliminado = TRUE). */
@@ -20,4 +29,33 @@ public interface GenericDAO<T> {
     T getById(long id) throws Exception;
 
     List<T> getAll() throws Exception;
+
+    /** Paginación por clave: hasta limit filas activas con id > afterId, ordenadas por id. */
+    List<T> getPage(long afterId, int limit) throws Exception;
+
+    /**
+     * Feed de cambios: hasta limit filas modificadas (altas, actualizaciones y bajas lógicas) con
+     * (updatedAt, id) posterior a (since, afterId), ordenadas por updatedAt e id. Las bajas vienen
+     * con eliminado = TRUE. Para la página siguiente pasar updatedAt e id del último elemento
+     * (el id desempata: una sentencia multi-fila deja el mismo updatedAt en todas sus filas).
+     *
+     * Se lee de la primaria. Un cambio se ve al confirmarse su transacción pero conserva el
+     * updatedAt de la sentencia: para no perder transacciones confirmadas tarde, reanudar desde
+     * (último updatedAt visto - margen, 0), con margen mayor que la transacción más larga, y
+     * aplicar los cambios de forma idempotente.
+     */
+    List<T> getChangedSince(Instant since, long afterId, int limit) throws Exception;
+
+    /**
+     * Recorre las filas activas con un cursor de streaming (memoria constante).
+     * La conexión queda tomada hasta cerrar el Stream: usar try-with-resources.
+     */
+    Stream<T> stream() throws Exception;
+
+    /** Aplica action a cada fila activa sin materializar la lista completa. */
+    default void forEach(Consumer<? super T> action) throws Exception {
+        try (Stream<T> rows = stream()) {
+            rows.forEach(action);
+        }
+    }
 }
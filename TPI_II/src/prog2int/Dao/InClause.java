@@ -0,0 +1,61 @@
+package prog2int.Dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Listas de parámetros para "id IN (...)" armadas en tiempo de ejecución
+ * (ArchivoDAO, BulkStateUpdate, PedidoDAO.getByIds).
+ *
+ * La cantidad de marcadores se redondea a la potencia de dos siguiente y los sobrantes repiten
+ * el último id (no cambia el resultado del IN). Así hay pocas variantes del SQL y la caché de
+ * sentencias del pool las reutiliza en lugar de preparar una por cada tamaño de lista.
+ */
+final class InClause {
+
+    /**
+     * Máximo de ids por lista: la mayor potencia de dos que, con los demás parámetros de la
+     * sentencia, no pasa los 65535 marcadores de MySQL. Los llamadores recortan sus bloques a esto.
+     */
+    static final int MAX_IDS = 1 << 15;
+
+    private InClause() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    /** Marcadores para una lista de n ids: n redondeado a la potencia de dos siguiente. */
+    static int size(int n) {
+        if (n <= 0) throw new IllegalArgumentException("La lista de ids no puede estar vacía");
+        if (n > MAX_IDS) throw new IllegalArgumentException("Demasiados ids en una lista: " + n);
+        return n == 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /** "?, ?, ..., ?" con size(n) marcadores. */
+    static String placeholders(int n) {
+        int size = size(n);
+        StringBuilder sb = new StringBuilder(size * 3);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /** Enlaza los ids a partir del índice offset + 1, completando los size(n) marcadores. */
+    static void bind(PreparedStatement ps, int offset, List<Long> ids) throws SQLException {
+        int n = ids.size();
+        for (int i = 0; i < n; i++) ps.setLong(offset + i + 1, ids.get(i));
+        pad(ps, offset, n, ids.get(n - 1));
+    }
+
+    /** Igual que bind(ps, offset, List) para ids[from, from + n). */
+    static void bind(PreparedStatement ps, int offset, long[] ids, int from, int n) throws SQLException {
+        for (int i = 0; i < n; i++) ps.setLong(offset + i + 1, ids[from + i]);
+        pad(ps, offset, n, ids[from + n - 1]);
+    }
+
+    private static void pad(PreparedStatement ps, int offset, int n, long last) throws SQLException {
+        for (int i = n, size = size(n); i < size; i++) ps.setLong(offset + i + 1, last);
+    }
+}
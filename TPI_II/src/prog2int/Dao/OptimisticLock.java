@@ -0,0 +1,42 @@
+package prog2int.Dao;
+
+import prog2int.Models.Base;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Control de concurrencia optimista por columna version.
+ *
+ * Los UPDATE de entidad se escriben como
+ *   UPDATE t SET ..., version = version + 1 WHERE id = ? AND version = ? AND eliminado = FALSE
+ * y no toman locks más allá de la propia fila durante la sentencia. Si no se actualizó
+ * ninguna fila, una lectura por PK distingue "no existe" de "otro la modificó".
+ */
+final class OptimisticLock {
+
+    private OptimisticLock() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    /**
+     * Procesa el resultado del UPDATE condicionado: con 1 fila avanza la versión de la entidad;
+     * con 0 lanza ConflictoVersionException si la fila sigue activa o SQLException si no existe.
+     */
+    static void afterUpdate(Connection conn, String table, Base entity, int rows) throws Exception {
+        if (rows > 0) {
+            entity.setVersion(entity.getVersion() + 1);
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT version FROM " + table + " WHERE id = ? AND eliminado = FALSE")) {
+            ps.setLong(1, entity.getId());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new SQLException("No se actualizo " + table + " id=" + entity.getId());
+                throw new ConflictoVersionException(table, entity.getId(), entity.getVersion(), rs.getLong(1));
+            }
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package prog2int.Dao;
 
 import prog2int.Config.DatabaseConnection;
+import prog2int.Config.TransactionManager;
+import prog2int.Metrics.LatencyRecorder;
+import prog2int.Metrics.Metrics;
 import prog2int.Models.*;
 
 import java.sql.*;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * DAO Pedido.
@@ -15,139 +22,552 @@ import java.util.List;
  */
 public class PedidoDAO implements GenericDAO<Pedido> {
 
+    /** Filas por sentencia INSERT multi-fila en insertAll. */
+    private int batchSize = BatchInsert.DEFAULT_CHUNK_SIZE;
+
+    /* ===================== Métricas ===================== */
+    private static final LatencyRecorder M_INSERTAR = Metrics.recorder("PedidoDAO.insertar");
+    private static final LatencyRecorder M_INSERT_TX = Metrics.recorder("PedidoDAO.insertTx");
+    private static final LatencyRecorder M_INSERT_ALL = Metrics.recorder("PedidoDAO.insertAll");
+    private static final LatencyRecorder M_INSERT_ALL_TX = Metrics.recorder("PedidoDAO.insertAllTx");
+    private static final LatencyRecorder M_ACTUALIZAR = Metrics.recorder("PedidoDAO.actualizar");
+    private static final LatencyRecorder M_ACTUALIZAR_ESTADO = Metrics.recorder("PedidoDAO.actualizarEstado");
+    private static final LatencyRecorder M_ELIMINAR = Metrics.recorder("PedidoDAO.eliminar");
+    private static final LatencyRecorder M_GET_BY_ID = Metrics.recorder("PedidoDAO.getById");
+    private static final LatencyRecorder M_GET_BY_IDS = Metrics.recorder("PedidoDAO.getByIds");
+    private static final LatencyRecorder M_GET_ALL = Metrics.recorder("PedidoDAO.getAll");
+    private static final LatencyRecorder M_STREAM = Metrics.recorder("PedidoDAO.stream");
+    private static final LatencyRecorder M_GET_BY_NUMERO = Metrics.recorder("PedidoDAO.getByNumero");
+    private static final LatencyRecorder M_GET_BY_ID_WITH_ENVIO = Metrics.recorder("PedidoDAO.getByIdWithEnvio");
+    private static final LatencyRecorder M_GET_ALL_WITH_ENVIO = Metrics.recorder("PedidoDAO.getAllWithEnvio");
+    private static final LatencyRecorder M_GET_BY_NUMERO_WITH_ENVIO = Metrics.recorder("PedidoDAO.getByNumeroWithEnvio");
+    private static final LatencyRecorder M_GET_PAGE = Metrics.recorder("PedidoDAO.getPage");
+    private static final LatencyRecorder M_GET_CHANGED_SINCE = Metrics.recorder("PedidoDAO.getChangedSince");
+    private static final LatencyRecorder M_BUSCAR = Metrics.recorder("PedidoDAO.buscar");
+
     /* ===================== SQL ===================== */
-    private static final String INSERT_SQL =
-            "INSERT INTO Pedido (eliminado, numero, fecha, clienteNombre, total, estado, envio) " +
-                    "VALUES (FALSE, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PREFIX =
+            "INSERT INTO Pedido (eliminado, numero, fecha, clienteNombre, total, estado, envio) VALUES ";
+
+    private static final String INSERT_ROW = "(FALSE, ?, ?, ?, ?, ?, ?)";
+
+    private static final int INSERT_PARAMS = 6;
+
+    private static final String INSERT_SQL = INSERT_PREFIX + INSERT_ROW;
 
     private static final String UPDATE_SQL =
-            "UPDATE Pedido SET numero = ?, fecha = ?, clienteNombre = ?, total = ?, estado = ? " +
-                    "WHERE id = ? AND eliminado = FALSE";
+            "UPDATE Pedido SET numero = ?, fecha = ?, clienteNombre = ?, total = ?, estado = ?, " +
+                    "version = version + 1 WHERE id = ? AND version = ? AND eliminado = FALSE";
 
     private static final String DELETE_SQL =
-            "UPDATE Pedido SET eliminado = TRUE WHERE id = ? AND eliminado = FALSE";
+            "UPDATE Pedido SET eliminado = TRUE, eliminadoEn = NOW(), version = version + 1 WHERE id = ? AND eliminado = FALSE";
 
+    /** Columnas en el orden que espera map(rs). estado se lee como índice de ENUM (ver EnumTables). */
     private static final String BASE_SELECT =
-            "SELECT id, eliminado, numero, fecha, clienteNombre, total, estado, envio " +
+            "SELECT id, eliminado, numero, fecha, clienteNombre, total, estado+0, envio, version, updatedAt " +
                     "FROM Pedido ";
 
+    /** Cantidad de columnas de Pedido en BASE_SELECT/JOIN_SELECT (las del Envio empiezan después). */
+    private static final int COLUMN_COUNT = 10;
+
+    /** Mapper de filas en el orden de BASE_SELECT (expuesto para benchmarks). */
+    public static final RowMapper<Pedido> ROW_MAPPER = PedidoDAO::map;
+
     private static final String SELECT_BY_ID_SQL =
             BASE_SELECT + "WHERE id = ? AND eliminado = FALSE";
 
+    private static final String SELECT_BY_IDS_PREFIX =
+            BASE_SELECT + "WHERE eliminado = FALSE AND id IN (";
+
     private static final String SELECT_ALL_SQL =
             BASE_SELECT + "WHERE eliminado = FALSE";
 
     private static final String SELECT_BY_NUMERO_SQL =
             BASE_SELECT + "WHERE eliminado = FALSE AND numero = ?";
 
+    /** Pedido + Envio completo en una sola consulta (columnas del Envio a continuación de las del Pedido). */
+    private static final String JOIN_SELECT =
+            "SELECT p.id, p.eliminado, p.numero, p.fecha, p.clienteNombre, p.total, p.estado+0, p.envio, p.version, p.updatedAt, " +
+                    "e.id, e.eliminado, e.tracking, e.empresa+0, e.tipo+0, e.costo, e.fechaDespacho, " +
+                    "e.fechaEstimada, e.estado+0, e.version, e.updatedAt " +
+                    "FROM Pedido p LEFT JOIN Envio e ON e.id = p.envio ";
+
+    private static final String SELECT_BY_ID_WITH_ENVIO_SQL =
+            JOIN_SELECT + "WHERE p.id = ? AND p.eliminado = FALSE";
+
+    private static final String SELECT_ALL_WITH_ENVIO_SQL =
+            JOIN_SELECT + "WHERE p.eliminado = FALSE";
+
+    private static final String SELECT_BY_NUMERO_WITH_ENVIO_SQL =
+            JOIN_SELECT + "WHERE p.eliminado = FALSE AND p.numero = ?";
+
+    /** Todos los números (incluidos eliminados: el UNIQUE de la BD también los cubre). */
+    private static final String SELECT_NUMEROS_SQL = "SELECT numero FROM Pedido";
+
+    /** Paginación por clave (keyset): sin OFFSET, usa el índice (eliminado, id). */
+    private static final String SELECT_PAGE_SQL =
+            BASE_SELECT + "WHERE eliminado = FALSE AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_PAGE_BY_ESTADO_SQL =
+            BASE_SELECT + "WHERE eliminado = FALSE AND estado = ? AND id > ? ORDER BY id LIMIT ?";
+
+    /**
+     * Feed de cambios por clave (updatedAt, id), incluidas las bajas; usa pedido_cambios_idx.
+     * (updatedAt, id) > (?, ?) escrito con updatedAt >= ? al frente: MySQL no arma un rango de
+     * índice con la comparación de filas y recorrería el índice desde el principio.
+     */
+    private static final String SELECT_CHANGED_SQL =
+            BASE_SELECT + "WHERE updatedAt >= ? AND (updatedAt > ? OR id > ?) ORDER BY updatedAt, id LIMIT ?";
+
     /* ===================== CRUD ===================== */
 
     @Override
     public void insertar(Pedido p) throws Exception {
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        M_INSERTAR.time(() -> {
+            try (Connection conn = DatabaseConnection.getConnection()) {
             
-            conn.setAutoCommit(false);
-            try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
             
-                ps.setString(1, p.getNumero());
-                ps.setObject(2, p.getFecha());
-                ps.setString(3, p.getClienteNombre());
-                ps.setDouble(4, p.getTotal());
-                ps.setString(5, p.getEstado().name());
+                    ps.setString(1, p.getNumero());
+                    ps.setObject(2, p.getFecha());
+                    ps.setString(3, p.getClienteNombre());
+                    ps.setDouble(4, p.getTotal());
+                    ps.setString(5, p.getEstado().name());
                 
-                if (p.getEnvio() != null) {
-                    ps.setLong(6, p.getEnvio().getId());
-                } else {
-                    ps.setNull(6, Types.INTEGER);
-                }
+                    if (p.getEnvio() != null) {
+                        ps.setLong(6, p.getEnvio().getId());
+                    } else {
+                        ps.setNull(6, Types.INTEGER);
+                    }
             
-                int filasAfectadas = ps.executeUpdate();
-                if(filasAfectadas > 0) {
-                    try(ResultSet generatedKeys = ps.getGeneratedKeys()) {
-                        if (generatedKeys.next()) {                       
-                            conn.commit();                        
+                    int filasAfectadas = ps.executeUpdate();
+                    if(filasAfectadas > 0) {
+                        try(ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                            if (generatedKeys.next()) {                       
+                                conn.commit();                        
+                            }
                         }
-                    }
-            }
-            setGeneratedId(ps, p);           
-        } catch (SQLException e) {
-            conn.rollback();
-            System.out.println("Error al hacer insert, transaccion revertida");
-        } finally {
-                conn.setAutoCommit(true);
+                }
+                setGeneratedId(ps, p);           
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e; // el servicio traduce la violación de UNIQUE(numero)
+            } finally {
+                    conn.setAutoCommit(true);
+                }
             }
-        }
+        }, 1);
     }
 
     @Override
     public void insertTx(Pedido p, Connection conn) throws Exception {
-        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            setParams(ps, p);
-            ps.executeUpdate();
-            setGeneratedId(ps, p);
+        M_INSERT_TX.time(() -> {
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                setInsertParams(ps, p, 0);
+                ps.executeUpdate();
+                setGeneratedId(ps, p);
+            }
+        }, 1);
+    }
+
+    @Override
+    public void insertAll(List<Pedido> pedidos) throws Exception {
+        M_INSERT_ALL.time(() -> {
+            try (TransactionManager tx = new TransactionManager(DatabaseConnection.getConnection())) {
+                tx.startTransaction();
+                doInsertAllTx(pedidos, tx.getConnection()); // M_INSERT_ALL ya mide la llamada
+                tx.commit();
+            }
+        }, pedidos == null ? 0 : pedidos.size());
+    }
+
+    @Override
+    public void insertAllTx(List<Pedido> pedidos, Connection conn) throws Exception {
+        M_INSERT_ALL_TX.time(() -> doInsertAllTx(pedidos, conn), pedidos == null ? 0 : pedidos.size());
+    }
+
+    private void doInsertAllTx(List<Pedido> pedidos, Connection conn) throws Exception {
+        BatchInsert.insertAll(conn, pedidos, INSERT_PREFIX, INSERT_ROW, INSERT_PARAMS, batchSize, this::setInsertParams);
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize debe ser > 0");
+        this.batchSize = batchSize;
+    }
+
+    /* ===================== Cambio de estado masivo ===================== */
+
+    /**
+     * Pasa los ids a nuevo estado en una sola transacción (UPDATE por bloques de batchSize ids).
+     * Solo avanzan los que están en el estado inmediato anterior; ver ResultadoTransicion.
+     */
+    public Map<Long, ResultadoTransicion> actualizarEstado(Collection<Long> ids, EstadoPedido nuevo) throws Exception {
+        try (TransactionManager tx = new TransactionManager(DatabaseConnection.getConnection())) {
+            tx.startTransaction();
+            Map<Long, ResultadoTransicion> result = actualizarEstadoTx(ids, nuevo, tx.getConnection());
+            tx.commit();
+            return result;
         }
     }
 
+    /** Igual que actualizarEstado usando una Connection externa (NO se cierra ni se confirma aquí). */
+    public Map<Long, ResultadoTransicion> actualizarEstadoTx(Collection<Long> ids, EstadoPedido nuevo, Connection conn) throws Exception {
+        return M_ACTUALIZAR_ESTADO.time(() -> {
+            EstadoPedido anterior = nuevo.ordinal() == 0 ? null : EstadoPedido.values()[nuevo.ordinal() - 1];
+            return BulkStateUpdate.update(conn, "Pedido", ids, nuevo, anterior, batchSize);
+        }, Map::size);
+    }
+
     @Override
     public void actualizar(Pedido p) throws Exception {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
+        M_ACTUALIZAR.time(() -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
 
-            setParams(ps, p);
-            ps.setLong(6, p.getId());
+                setParams(ps, p);
+                ps.setLong(6, p.getId());
+                ps.setLong(7, p.getVersion());
 
-            int rows = ps.executeUpdate();
-            if (rows == 0) throw new SQLException("No se actualizo Pedido id=" + p.getId());
-        }
+                OptimisticLock.afterUpdate(conn, "Pedido", p, ps.executeUpdate());
+            }
+        }, 1);
     }
 
     @Override
     public void eliminar(long id) throws Exception {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
-            ps.setLong(1, id);
-            int rows = ps.executeUpdate();
-            if (rows == 0) throw new SQLException("No se encontro Pedido activo id=" + id);
-        }
+        M_ELIMINAR.time(() -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
+                ps.setLong(1, id);
+                int rows = ps.executeUpdate();
+                if (rows == 0) throw new SQLException("No se encontro Pedido activo id=" + id);
+            }
+        }, 1);
     }
 
     @Override
     public Pedido getById(long id) throws Exception {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
+        return M_GET_BY_ID.time(() -> {
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
+
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? map(rs) : null;
+                }
+            }
+        }, r -> r == null ? 0 : 1);
+    }
 
-            ps.setLong(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? map(rs) : null;
+    /**
+     * Pedidos activos de los ids indicados, en bloques de batchSize ids por consulta (IN).
+     * Los ids inexistentes o eliminados no aparecen; el orden del resultado no está definido.
+     */
+    public List<Pedido> getByIds(long[] ids) throws Exception {
+        return M_GET_BY_IDS.time(() -> {
+            List<Pedido> list = new ArrayList<>(ids.length);
+            if (ids.length == 0) return list;
+            try (Connection conn = DatabaseConnection.getReadConnection()) {
+                int chunk = Math.min(batchSize, InClause.MAX_IDS);
+                for (int from = 0; from < ids.length; from += chunk) {
+                    int n = Math.min(chunk, ids.length - from);
+                    try (PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS_PREFIX + InClause.placeholders(n) + ")")) {
+                        InClause.bind(ps, 0, ids, from, n);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) list.add(map(rs));
+                        }
+                    }
+                }
             }
-        }
+            return list;
+        }, List::size);
     }
 
     @Override
     public List<Pedido> getAll() throws Exception {
-        List<Pedido> list = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(SELECT_ALL_SQL)) {
-            while (rs.next()) list.add(map(rs));
-        }
-        return list;
+        return M_GET_ALL.time(() -> {
+            List<Pedido> list = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery(SELECT_ALL_SQL)) {
+                while (rs.next()) list.add(map(rs));
+            }
+            return list;
+        }, List::size);
+    }
+
+    @Override
+    public Stream<Pedido> stream() throws Exception {
+        return M_STREAM.timeStream(() -> StreamingQuery.stream(SELECT_ALL_SQL, PedidoDAO::map));
     }
 
     /* ===================== Búsquedas especializadas ===================== */
 
     /** Busca un pedido por su número (campo único de negocio). */
     public Pedido getByNumero(String numero) throws Exception {
-        if (numero == null || numero.trim().isEmpty())
-            throw new IllegalArgumentException("numero no puede estar vacio");
+        return M_GET_BY_NUMERO.time(() -> {
+            if (numero == null || numero.trim().isEmpty())
+                throw new IllegalArgumentException("numero no puede estar vacio");
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(SELECT_BY_NUMERO_SQL)) {
-            ps.setString(1, numero.trim());
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? map(rs) : null;
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(SELECT_BY_NUMERO_SQL)) {
+                ps.setString(1, numero.trim());
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? map(rs) : null;
+                }
+            }
+        }, r -> r == null ? 0 : 1);
+    }
+
+    /** Recorre todos los números de pedido con cursor de streaming (cerrar el Stream). */
+    public Stream<String> streamNumeros() throws Exception {
+        return StreamingQuery.stream(SELECT_NUMEROS_SQL, rs -> rs.getString(1));
+    }
+
+    /**
+     * Indica si la excepción es una violación del UNIQUE de Pedido.numero
+     * (MySQL error 1062 / SQLState 23000 sobre la clave "numero").
+     */
+    public static boolean isDuplicateNumero(Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c instanceof SQLException) {
+                SQLException e = (SQLException) c;
+                boolean duplicate = e.getErrorCode() == 1062
+                        || (e instanceof SQLIntegrityConstraintViolationException && "23000".equals(e.getSQLState()));
+                String msg = e.getMessage();
+                if (duplicate && msg != null && msg.contains("numero")) return true;
             }
         }
+        return false;
+    }
+
+    /* ===================== Pedido + Envio (JOIN) ===================== */
+    // map() deja en el Pedido un Envio con solo el id; estas variantes traen el Envio completo
+    // en la misma consulta y evitan un EnvioDAO.getById por pedido (N+1).
+
+    public Pedido getByIdWithEnvio(long id) throws Exception {
+        return M_GET_BY_ID_WITH_ENVIO.time(() -> {
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_WITH_ENVIO_SQL)) {
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? mapWithEnvio(rs) : null;
+                }
+            }
+        }, r -> r == null ? 0 : 1);
+    }
+
+    public List<Pedido> getAllWithEnvio() throws Exception {
+        return M_GET_ALL_WITH_ENVIO.time(() -> {
+            List<Pedido> list = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery(SELECT_ALL_WITH_ENVIO_SQL)) {
+                while (rs.next()) list.add(mapWithEnvio(rs));
+            }
+            return list;
+        }, List::size);
+    }
+
+    public Pedido getByNumeroWithEnvio(String numero) throws Exception {
+        return M_GET_BY_NUMERO_WITH_ENVIO.time(() -> {
+            if (numero == null || numero.trim().isEmpty())
+                throw new IllegalArgumentException("numero no puede estar vacio");
+
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(SELECT_BY_NUMERO_WITH_ENVIO_SQL)) {
+                ps.setString(1, numero.trim());
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? mapWithEnvio(rs) : null;
+                }
+            }
+        }, r -> r == null ? 0 : 1);
+    }
+
+    /* ===================== Paginación ===================== */
+
+    /**
+     * Página de pedidos activos con id > afterId, ordenados por id.
+     * Para la página siguiente pasar el id del último elemento devuelto (0 para la primera).
+     */
+    @Override
+    public List<Pedido> getPage(long afterId, int limit) throws Exception {
+        return getPage(afterId, limit, null);
+    }
+
+    /** Igual que getPage(afterId, limit) pero filtrando por estado (null = sin filtro). */
+    public List<Pedido> getPage(long afterId, int limit, EstadoPedido estado) throws Exception {
+        return M_GET_PAGE.time(() -> {
+            List<Pedido> list = new ArrayList<>(limit);
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(estado == null ? SELECT_PAGE_SQL : SELECT_PAGE_BY_ESTADO_SQL)) {
+                int idx = 1;
+                if (estado != null) ps.setString(idx++, estado.name());
+                ps.setLong(idx++, afterId);
+                ps.setInt(idx, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) list.add(map(rs));
+                }
+            }
+            return list;
+        }, List::size);
+    }
+
+    /* ===================== Búsqueda ===================== */
+
+    /**
+     * Orden de buscar según el criterio que encabeza el filtro, para que el índice entregue las
+     * filas ya ordenadas y el LIMIT corte el recorrido (sin ordenar todas las coincidencias).
+     * Los índices secundarios de InnoDB terminan en id, así que (columna, id) es su orden.
+     * - clientePrefijo: (clienteNombre, id) con pedido_cliente_idx
+     * - fecha: (fecha, id) con pedido_estado_fecha_idx si hay estado, si no pedido_fecha_idx
+     * - estado solo (o con total): id con pedido_estado_idx
+     * - total solo: (total, id) con pedido_total_idx
+     * - sin criterios: id con pedido_activo_idx
+     * El resto de los criterios se filtra sobre las filas que recorre el índice.
+     */
+    private enum OrdenBusqueda {
+        ID(null), CLIENTE("clienteNombre"), FECHA("fecha"), TOTAL("total");
+
+        final String column;
+
+        OrdenBusqueda(String column) {
+            this.column = column;
+        }
+
+        static OrdenBusqueda de(PedidoFiltro f) {
+            if (f.getClientePrefijo() != null) return CLIENTE;
+            if (f.getFechaDesde() != null || f.getFechaHasta() != null) return FECHA;
+            if (f.getEstado() != null) return ID;
+            if (f.getTotalMin() != null || f.getTotalMax() != null) return TOTAL;
+            return ID;
+        }
+
+        /** Valor de column en p (clave del cursor). */
+        Object clave(Pedido p) {
+            Object v = switch (this) {
+                case CLIENTE -> p.getClienteNombre();
+                case FECHA -> p.getFecha();
+                case TOTAL -> p.getTotal();
+                case ID -> p.getId();
+            };
+            if (v == null) throw new IllegalArgumentException("despuesDe debe ser el último pedido devuelto por buscar");
+            return v;
+        }
+    }
+
+    /**
+     * Pedidos activos que cumplen el filtro, a lo sumo limit, en el orden de índice que
+     * corresponde al filtro (ver OrdenBusqueda). Para la página siguiente pasar el último
+     * pedido devuelto (null para la primera): el cursor es (columna de orden, id) de ese pedido.
+     * Con orden por fecha el valor se lee de la BD por id (Pedido.fecha no tiene la hora); si ese
+     * pedido se archivó entre páginas, la búsqueda termina ahí.
+     * El SQL se arma solo con los criterios presentes, siempre con parámetros.
+     */
+    public List<Pedido> buscar(PedidoFiltro filtro, Pedido despuesDe, int limit) throws Exception {
+        return M_BUSCAR.time(() -> {
+            StringBuilder sql = new StringBuilder(BASE_SELECT).append("WHERE eliminado = FALSE");
+            List<Object> params = new ArrayList<>(10);
+            if (filtro.getClientePrefijo() != null) {
+                sql.append(" AND clienteNombre LIKE ?");
+                params.add(escapeLike(filtro.getClientePrefijo()) + "%");
+            }
+            if (filtro.getFechaDesde() != null) {
+                sql.append(" AND fecha >= ?");
+                params.add(Date.valueOf(filtro.getFechaDesde()));
+            }
+            if (filtro.getFechaHasta() != null) {
+                sql.append(" AND fecha < ?");
+                params.add(Date.valueOf(filtro.getFechaHasta().plusDays(1)));
+            }
+            if (filtro.getEstado() != null) {
+                sql.append(" AND estado = ?");
+                params.add(filtro.getEstado().name());
+            }
+            if (filtro.getTotalMin() != null) {
+                sql.append(" AND total >= ?");
+                params.add(filtro.getTotalMin());
+            }
+            if (filtro.getTotalMax() != null) {
+                sql.append(" AND total <= ?");
+                params.add(filtro.getTotalMax());
+            }
+
+            OrdenBusqueda orden = OrdenBusqueda.de(filtro);
+            if (despuesDe != null) {
+                Object clave = orden.clave(despuesDe);
+                if (orden == OrdenBusqueda.ID) {
+                    sql.append(" AND id > ?");
+                    params.add(clave);
+                } else if (orden == OrdenBusqueda.FECHA) {
+                    // Pedido.fecha es el día, la columna es DATETIME: el cursor toma la fecha completa
+                    // de la fila despuesDe (subconsulta por PK, constante para el plan). Con la
+                    // medianoche repetiría las filas de ese día posteriores a las 00:00.
+                    sql.append(" AND fecha >= (SELECT c.fecha FROM Pedido c WHERE c.id = ?)")
+                       .append(" AND (fecha > (SELECT c.fecha FROM Pedido c WHERE c.id = ?) OR id > ?)");
+                    params.add(despuesDe.getId());
+                    params.add(despuesDe.getId());
+                    params.add(despuesDe.getId());
+                } else {
+                    // (col, id) > (?, ?) con col >= ? al frente: así arma el rango de índice
+                    String col = orden.column;
+                    sql.append(" AND ").append(col).append(" >= ? AND (").append(col).append(" > ? OR id > ?)");
+                    params.add(clave);
+                    params.add(clave);
+                    params.add(despuesDe.getId());
+                }
+            }
+            sql.append(orden == OrdenBusqueda.ID ? " ORDER BY id" : " ORDER BY " + orden.column + ", id");
+            sql.append(" LIMIT ?");
+            params.add(limit);
+
+            List<Pedido> list = new ArrayList<>(limit);
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) list.add(map(rs));
+                }
+            }
+            return list;
+        }, List::size);
+    }
+
+    /** Escapa los comodines de LIKE (escape por defecto de MySQL: barra invertida). */
+    private static String escapeLike(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 4);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') sb.append('\\');
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /* ===================== Feed de cambios ===================== */
+
+    @Override
+    public List<Pedido> getChangedSince(Instant since, long afterId, int limit) throws Exception {
+        return M_GET_CHANGED_SINCE.time(() -> {
+            if (since == null) throw new IllegalArgumentException("since no puede ser null");
+            if (limit <= 0) throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0");
+            List<Pedido> list = new ArrayList<>(limit);
+            // Primaria: en una réplica un cambio aparece recién al aplicarse, con el updatedAt original,
+            // y un consumidor que ya avanzó su cursor por encima lo perdería sin importar el margen
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(SELECT_CHANGED_SQL)) {
+                Timestamp ts = Timestamp.from(since);
+                ps.setTimestamp(1, ts);
+                ps.setTimestamp(2, ts);
+                ps.setLong(3, afterId);
+                ps.setInt(4, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) list.add(map(rs));
+                }
+            }
+            return list;
+        }, List::size);
     }
 
     /* ===================== Helpers ===================== */
@@ -160,6 +580,17 @@ public class PedidoDAO implements GenericDAO<Pedido> {
         ps.setString(5, p.getEstado() != null ? p.getEstado().name() : null);
     }
 
+    /** Enlaza los 6 parámetros de INSERT_ROW (incluida la FK envio) a partir del índice offset + 1. */
+    private void setInsertParams(PreparedStatement ps, Pedido p, int offset) throws SQLException {
+        ps.setString(offset + 1, p.getNumero());
+        setLocalDate(ps, offset + 2, p.getFecha());
+        ps.setString(offset + 3, p.getClienteNombre());
+        ps.setDouble(offset + 4, p.getTotal());
+        ps.setString(offset + 5, p.getEstado() != null ? p.getEstado().name() : null);
+        if (p.getEnvio() != null) ps.setLong(offset + 6, p.getEnvio().getId());
+        else ps.setNull(offset + 6, Types.BIGINT);
+    }
+
     private void setGeneratedId(PreparedStatement ps, Pedido p) throws SQLException {
         try (ResultSet keys = ps.getGeneratedKeys()) {
             if (keys.next()) p.setId(keys.getLong(1));
@@ -172,22 +603,33 @@ public class PedidoDAO implements GenericDAO<Pedido> {
         else ps.setDate(idx, Date.valueOf(date));
     }
 
-    private Pedido map(ResultSet rs) throws SQLException {
+    /** Mapeo por posición de columna (orden de BASE_SELECT). El Envio queda con solo el id. */
+    private static Pedido map(ResultSet rs) throws SQLException {
         Pedido p = new Pedido();
-        p.setId(rs.getLong("id"));
-        p.setEliminado(rs.getBoolean("eliminado"));
-        p.setNumero(rs.getString("numero"));
-        Date f = rs.getDate("fecha");
-        if (f != null) p.setFecha(f.toLocalDate());
-        p.setClienteNombre(rs.getString("clienteNombre"));
-        p.setTotal(rs.getDouble("total"));
-        String est = rs.getString("estado");
-        if (est != null) p.setEstado(EstadoPedido.valueOf(est));
-        long envioID = rs.getLong("envio");
-        Envio envio = new Envio();
-        envio.setId(envioID);
-        p.setEnvio(envio);
-        
+        p.setId(rs.getLong(1));
+        p.setEliminado(rs.getBoolean(2));
+        p.setNumero(rs.getString(3));
+        p.setFecha(rs.getObject(4, LocalDate.class));
+        p.setClienteNombre(rs.getString(5));
+        p.setTotal(rs.getDouble(6));
+        p.setEstado(EnumTables.estadoPedido(rs.getInt(7)));
+        long envioID = rs.getLong(8);
+        if (!rs.wasNull()) {
+            Envio envio = new Envio();
+            envio.setId(envioID);
+            p.setEnvio(envio);
+        }
+        p.setVersion(rs.getLong(9));
+        Timestamp updatedAt = rs.getTimestamp(10);
+        p.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
+        return p;
+    }
+
+    /** Mapea el Pedido y, si el LEFT JOIN encontró el Envio, lo hidrata completo. */
+    private static Pedido mapWithEnvio(ResultSet rs) throws SQLException {
+        Pedido p = map(rs);
+        rs.getLong(COLUMN_COUNT + 1);
+        p.setEnvio(rs.wasNull() ? null : EnvioDAO.map(rs, COLUMN_COUNT));
         return p;
     }
 }
@@ -0,0 +1,68 @@
+package prog2int.Dao;
+
+import prog2int.Models.EstadoPedido;
+
+import java.time.LocalDate;
+
+/**
+ * Criterios de búsqueda de pedidos (PedidoDAO.buscar). Todos opcionales: null = sin filtro.
+ * Los criterios presentes se combinan con AND.
+ * - clientePrefijo: clienteNombre que empieza con el texto (LIKE 'texto%')
+ * - fechaDesde / fechaHasta: rango de fecha, ambos inclusive
+ * - estado
+ * - totalMin / totalMax: rango de total, ambos inclusive
+ */
+public final class PedidoFiltro {
+
+    private String clientePrefijo;
+    private LocalDate fechaDesde;
+    private LocalDate fechaHasta;
+    private EstadoPedido estado;
+    private Double totalMin;
+    private Double totalMax;
+
+    public PedidoFiltro clientePrefijo(String clientePrefijo) {
+        this.clientePrefijo = clientePrefijo == null || clientePrefijo.isBlank() ? null : clientePrefijo.trim();
+        return this;
+    }
+
+    public PedidoFiltro fecha(LocalDate desde, LocalDate hasta) {
+        this.fechaDesde = desde;
+        this.fechaHasta = hasta;
+        return this;
+    }
+
+    public PedidoFiltro estado(EstadoPedido estado) {
+        this.estado = estado;
+        return this;
+    }
+
+    public PedidoFiltro total(Double min, Double max) {
+        this.totalMin = min;
+        this.totalMax = max;
+        return this;
+    }
+
+    public String getClientePrefijo() { return clientePrefijo; }
+    public LocalDate getFechaDesde() { return fechaDesde; }
+    public LocalDate getFechaHasta() { return fechaHasta; }
+    public EstadoPedido getEstado() { return estado; }
+    public Double getTotalMin() { return totalMin; }
+    public Double getTotalMax() { return totalMax; }
+
+    /** true si no hay ningún criterio (equivale a getPage). */
+    public boolean isVacio() {
+        return clientePrefijo == null && fechaDesde == null && fechaHasta == null
+                && estado == null && totalMin == null && totalMax == null;
+    }
+
+    @Override
+    public String toString() {
+        return "PedidoFiltro{" +
+                "clientePrefijo=" + clientePrefijo +
+                ", fecha=[" + fechaDesde + ", " + fechaHasta + "]" +
+                ", estado=" + estado +
+                ", total=[" + totalMin + ", " + totalMax + "]" +
+                '}';
+    }
+}
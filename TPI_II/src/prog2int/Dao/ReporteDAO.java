@@ -0,0 +1,124 @@
+package prog2int.Dao;
+
+import prog2int.Config.DatabaseConnection;
+import prog2int.Metrics.LatencyRecorder;
+import prog2int.Metrics.Metrics;
+import prog2int.Models.Empresa;
+import prog2int.Models.EstadoPedido;
+import prog2int.Models.TipoEnvio;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO de reportes: agregados calculados por MySQL (GROUP BY) sobre filas activas.
+ * Solo viaja una fila por grupo, nunca la tabla completa.
+ *
+ * Rango de fechas opcional [desde, hasta] (ambos inclusive, null = sin límite), aplicado
+ * como fecha >= desde AND fecha < hasta + 1 día para que use los índices por fecha.
+ */
+public class ReporteDAO {
+
+    /* ===================== Resultados ===================== */
+
+    /** Pedidos e importe total por estado. */
+    public record IngresoPorEstado(EstadoPedido estado, long pedidos, double total) { }
+
+    /** Envíos y costo por empresa y tipo. */
+    public record CostoPorEmpresaTipo(Empresa empresa, TipoEnvio tipo, long envios, double costoTotal, double costoPromedio) { }
+
+    /** Pedidos e importe total de un día. */
+    public record PedidosPorDia(LocalDate dia, long pedidos, double total) { }
+
+    /* ===================== Métricas ===================== */
+    private static final LatencyRecorder M_INGRESOS_POR_ESTADO = Metrics.recorder("ReporteDAO.ingresosPorEstado");
+    private static final LatencyRecorder M_COSTO_POR_EMPRESA_TIPO = Metrics.recorder("ReporteDAO.costoPorEmpresaTipo");
+    private static final LatencyRecorder M_PEDIDOS_POR_DIA = Metrics.recorder("ReporteDAO.pedidosPorDia");
+
+    /* Los ENUM se agrupan y leen por índice (+0), ver EnumTables. */
+    private static final String INGRESOS_POR_ESTADO_SQL =
+            "SELECT estado+0, COUNT(*), SUM(total) FROM Pedido WHERE eliminado = FALSE";
+
+    private static final String COSTO_POR_EMPRESA_TIPO_SQL =
+            "SELECT empresa+0, tipo+0, COUNT(*), SUM(costo), AVG(costo) FROM Envio WHERE eliminado = FALSE";
+
+    private static final String PEDIDOS_POR_DIA_SQL =
+            "SELECT DATE(fecha), COUNT(*), SUM(total) FROM Pedido WHERE eliminado = FALSE";
+
+    public List<IngresoPorEstado> ingresosPorEstado(LocalDate desde, LocalDate hasta) throws Exception {
+        return M_INGRESOS_POR_ESTADO.time(() -> {
+            String sql = INGRESOS_POR_ESTADO_SQL + rango("fecha", desde, hasta) + " GROUP BY estado ORDER BY estado";
+            List<IngresoPorEstado> list = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                setRango(ps, 1, desde, hasta);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(new IngresoPorEstado(EnumTables.estadoPedido(rs.getInt(1)), rs.getLong(2), rs.getDouble(3)));
+                    }
+                }
+            }
+            return list;
+        }, List::size);
+    }
+
+    public List<CostoPorEmpresaTipo> costoPorEmpresaTipo(LocalDate desde, LocalDate hasta) throws Exception {
+        return M_COSTO_POR_EMPRESA_TIPO.time(() -> {
+            String sql = COSTO_POR_EMPRESA_TIPO_SQL + rango("fechaDespacho", desde, hasta)
+                    + " GROUP BY empresa, tipo ORDER BY empresa, tipo";
+            List<CostoPorEmpresaTipo> list = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                setRango(ps, 1, desde, hasta);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(new CostoPorEmpresaTipo(EnumTables.empresa(rs.getInt(1)), EnumTables.tipoEnvio(rs.getInt(2)),
+                                rs.getLong(3), rs.getDouble(4), rs.getDouble(5)));
+                    }
+                }
+            }
+            return list;
+        }, List::size);
+    }
+
+    /** Un elemento por día con pedidos, en orden cronológico (los días sin pedidos no aparecen). */
+    public List<PedidosPorDia> pedidosPorDia(LocalDate desde, LocalDate hasta) throws Exception {
+        return M_PEDIDOS_POR_DIA.time(() -> {
+            String sql = PEDIDOS_POR_DIA_SQL + rango("fecha", desde, hasta) + " GROUP BY DATE(fecha) ORDER BY 1";
+            List<PedidosPorDia> list = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                setRango(ps, 1, desde, hasta);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(new PedidosPorDia(rs.getObject(1, LocalDate.class), rs.getLong(2), rs.getDouble(3)));
+                    }
+                }
+            }
+            return list;
+        }, List::size);
+    }
+
+    /* ===================== Helpers ===================== */
+
+    /** Condición de rango sobre column según los límites presentes ("" si no hay ninguno). */
+    private static String rango(String column, LocalDate desde, LocalDate hasta) {
+        StringBuilder sb = new StringBuilder();
+        if (desde != null) sb.append(" AND ").append(column).append(" >= ?");
+        if (hasta != null) sb.append(" AND ").append(column).append(" < ?");
+        return sb.toString();
+    }
+
+    /** Enlaza los límites presentes desde idx; devuelve el siguiente índice libre. */
+    private static int setRango(PreparedStatement ps, int idx, LocalDate desde, LocalDate hasta) throws SQLException {
+        if (desde != null) ps.setDate(idx++, Date.valueOf(desde));
+        if (hasta != null) ps.setDate(idx++, Date.valueOf(hasta.plusDays(1)));
+        return idx;
+    }
+}
@@ -0,0 +1,15 @@
+package prog2int.Dao;
+
+/**
+ * Resultado por id de un cambio de estado masivo (actualizarEstado).
+ */
+public enum ResultadoTransicion {
+    /** El estado pasó al nuevo valor. */
+    ACTUALIZADO,
+    /** Ya estaba en el estado pedido; no se tocó. */
+    SIN_CAMBIO,
+    /** El estado actual no es el inmediato anterior al pedido (no se permite saltar ni retroceder). */
+    TRANSICION_INVALIDA,
+    /** No existe o está eliminado. */
+    NO_ENCONTRADO
+}
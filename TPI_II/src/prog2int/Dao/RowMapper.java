@@ -0,0 +1,13 @@
+package prog2int.Dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Convierte la fila actual de un ResultSet en una entidad.
+ * No debe avanzar el cursor (rs.next() lo maneja quien llama).
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,80 @@
+package prog2int.Dao;
+
+import prog2int.Config.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lectura de consultas grandes mediante cursor de streaming del servidor.
+ * - fetchSize = Integer.MIN_VALUE: Connector/J entrega las filas de a una (memoria constante)
+ * - La Connection queda tomada mientras el Stream está abierto; se libera en Stream.close()
+ *
+ * IMPORTANTE: usar siempre con try-with-resources sobre el Stream devuelto.
+ * Mientras el cursor esté abierto, la conexión no admite otras consultas.
+ *
+ * Fetch size configurable con la propiedad del sistema db.stream.fetchSize.
+ */
+final class StreamingQuery {
+
+    static final int FETCH_SIZE = Integer.getInteger("db.stream.fetchSize", Integer.MIN_VALUE);
+
+    private StreamingQuery() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    /**
+     * Ejecuta la consulta y devuelve un Stream perezoso de entidades.
+     * Los parámetros se enlazan en orden con setObject.
+     */
+    static <T> Stream<T> stream(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        Connection conn = DatabaseConnection.getReadConnection();
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+            rs = ps.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(rs, ps, conn);
+            throw e;
+        }
+
+        final ResultSet cursor = rs;
+        final PreparedStatement stmt = ps;
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!cursor.next()) return false;
+                    action.accept(mapper.map(cursor));
+                    return true;
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Error leyendo fila del cursor: " + e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> closeQuietly(cursor, stmt, conn));
+    }
+
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable r : resources) {
+            if (r == null) continue;
+            try {
+                r.close();
+            } catch (Exception e) {
+                System.err.println("Error al cerrar recurso del cursor: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package prog2int.Export;
+
+import prog2int.Metrics.LatencyRecorder;
+import prog2int.Metrics.Metrics;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Exportación masiva de Envio/Pedido a CSV o NDJSON.
+ * - Filas desde el cursor de streaming del DAO (no se materializa la tabla)
+ * - Cada fila se arma en un StringBuilder reutilizado y se codifica en UTF-8 directo a un
+ *   ByteBuffer directo grande; el buffer lleno se escribe al FileChannel (o al Deflater)
+ * - Gzip opcional, también de buffer directo a buffer directo
+ * - Proyección de columnas (subconjunto y orden)
+ *
+ * Se escribe a un archivo temporal junto al destino que se renombra al terminar: quien
+ * consuma el archivo nunca ve una exportación a medias.
+ *
+ * Configuración (propiedad del sistema):
+ * - export.bufferSize=1048576 (bytes de cada buffer directo)
+ */
+public final class BulkExporter {
+
+    public static final int DEFAULT_BUFFER_SIZE = Integer.getInteger("export.bufferSize", 1 << 20);
+
+    private final int bufferSize;
+
+    public BulkExporter() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public BulkExporter(int bufferSize) {
+        if (bufferSize < 1024) throw new IllegalArgumentException("El buffer de exportación debe ser >= 1024 bytes");
+        this.bufferSize = bufferSize;
+    }
+
+    /** Formato y gzip según el nombre del archivo (ej. pedidos.csv.gz); columns null = todas. */
+    public <T> ExportReport exportar(Path file, ExportSource<T> source, List<String> columns) throws Exception {
+        return exportar(file, ExportFormat.fromFileName(file), ExportFormat.isGzip(file), source, columns);
+    }
+
+    public <T> ExportReport exportar(Path file, ExportFormat format, boolean gzip,
+                                     ExportSource<T> source, List<String> columns) throws Exception {
+        LatencyRecorder recorder = Metrics.recorder("Export." + source.getName());
+        return recorder.time(() -> {
+            int[] projection = source.project(columns);
+            List<String> names = source.names(projection);
+            long start = System.nanoTime();
+
+            Path target = file.toAbsolutePath();
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            long rows = 0;
+            long bytes;
+            boolean ok = false;
+            try {
+                // El canal también en el try: si ChannelSink.gzip falla, se cierra igual
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                             StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                     ChannelSink sink = gzip ? ChannelSink.gzip(channel, bufferSize) : ChannelSink.plain(channel);
+                     Stream<T> stream = source.open()) {
+                    Encoder encoder = new Encoder(sink, bufferSize);
+                    StringBuilder line = new StringBuilder(256);
+
+                    if (format == ExportFormat.CSV) {
+                        for (int i = 0; i < names.size(); i++) {
+                            if (i > 0) line.append(',');
+                            line.append(names.get(i));
+                        }
+                        encoder.writeLine(line);
+                    }
+
+                    Iterator<T> it = stream.iterator();
+                    while (it.hasNext()) {
+                        T entity = it.next();
+                        line.setLength(0);
+                        if (format == ExportFormat.CSV) appendCsv(line, source, entity, projection);
+                        else appendJson(line, source, entity, projection, names);
+                        encoder.writeLine(line);
+                        rows++;
+                    }
+                    encoder.finish();
+                    sink.finish();
+                    bytes = sink.getBytesWritten();
+                }
+                try {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                ok = true;
+            } finally {
+                if (!ok) Files.deleteIfExists(tmp);
+            }
+            return new ExportReport(source.getName(), target, format.name(), gzip, rows, bytes, System.nanoTime() - start);
+        }, ExportReport::getRows);
+    }
+
+    /* ===================== Codificación ===================== */
+
+    /** UTF-8 directo al buffer; cuando se llena se entrega al sink y se reutiliza. */
+    private static final class Encoder {
+        private final ChannelSink sink;
+        private final ByteBuffer buffer;
+        private final CharsetEncoder utf8 = StandardCharsets.UTF_8.newEncoder();
+
+        Encoder(ChannelSink sink, int bufferSize) {
+            this.sink = sink;
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        void writeLine(StringBuilder line) throws IOException {
+            line.append('\n');
+            encode(CharBuffer.wrap(line), false);
+        }
+
+        void finish() throws IOException {
+            encode(CharBuffer.allocate(0), true);
+            while (utf8.flush(buffer).isOverflow()) drain();
+            drain();
+        }
+
+        private void encode(CharBuffer chars, boolean endOfInput) throws IOException {
+            while (true) {
+                CoderResult r = utf8.encode(chars, buffer, endOfInput);
+                if (r.isOverflow()) {
+                    drain();
+                } else if (r.isError()) {
+                    try {
+                        r.throwException();
+                    } catch (CharacterCodingException e) {
+                        throw new IOException("Texto no representable en UTF-8", e);
+                    }
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            sink.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    private static <T> void appendCsv(StringBuilder sb, ExportSource<T> source, T entity, int[] projection) {
+        for (int i = 0; i < projection.length; i++) {
+            if (i > 0) sb.append(',');
+            Object v = source.value(entity, projection[i]);
+            if (v == null) continue;
+            if (v instanceof String s) appendCsvString(sb, s);
+            else appendScalar(sb, v);
+        }
+    }
+
+    /**
+     * Entre comillas (RFC 4180) si tiene coma, comillas o salto de línea. Un salto de línea
+     * queda literal dentro de las comillas: el archivo es CSV válido, pero la importación lee por
+     * líneas y rechaza esa fila ("Comillas sin cerrar"); para esos textos, NDJSON.
+     */
+    private static void appendCsvString(StringBuilder sb, String s) {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            sb.append(s);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    private static <T> void appendJson(StringBuilder sb, ExportSource<T> source, T entity,
+                                       int[] projection, List<String> names) {
+        sb.append('{');
+        for (int i = 0; i < projection.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('"').append(names.get(i)).append("\":");
+            Object v = source.value(entity, projection[i]);
+            if (v == null) {
+                sb.append("null");
+            } else if (v instanceof Number) {
+                appendScalar(sb, v);
+            } else {
+                sb.append('"');
+                appendJsonEscaped(sb, v instanceof String s ? s : scalarText(v));
+                sb.append('"');
+            }
+        }
+        sb.append('}');
+    }
+
+    private static void appendJsonEscaped(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+    }
+
+    /** Números sin notación científica; enums por nombre; fechas ISO. */
+    private static void appendScalar(StringBuilder sb, Object v) {
+        if (v instanceof Long l) sb.append(l.longValue());
+        else sb.append(scalarText(v));
+    }
+
+    private static String scalarText(Object v) {
+        if (v instanceof Double d) return BigDecimal.valueOf(d).toPlainString();
+        if (v instanceof Enum<?> e) return e.name();
+        return v.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package prog2int.Export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Destino de bytes de la exportación sobre un FileChannel.
+ * write() recibe el buffer en modo lectura y lo consume entero.
+ */
+abstract class ChannelSink implements AutoCloseable {
+
+    protected final FileChannel channel;
+    private long bytesWritten;
+
+    private ChannelSink(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    static ChannelSink plain(FileChannel channel) {
+        return new Plain(channel);
+    }
+
+    static ChannelSink gzip(FileChannel channel, int bufferSize) {
+        return new Gzip(channel, bufferSize);
+    }
+
+    abstract void write(ByteBuffer src) throws IOException;
+
+    /** Escribe lo pendiente (trailer de gzip); después de finish() solo queda cerrar. */
+    void finish() throws IOException {
+    }
+
+    /** Bytes escritos en el archivo (comprimidos si es gzip). */
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    protected void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) bytesWritten += channel.write(src);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /* ===================== Sin compresión ===================== */
+
+    private static final class Plain extends ChannelSink {
+        Plain(FileChannel channel) {
+            super(channel);
+        }
+
+        @Override
+        void write(ByteBuffer src) throws IOException {
+            writeFully(src);
+        }
+    }
+
+    /* ===================== Gzip ===================== */
+
+    /**
+     * Formato gzip (RFC 1952) armado a mano sobre un Deflater "nowrap": comprime de buffer
+     * directo a buffer directo, sin pasar por los byte[] de GZIPOutputStream.
+     */
+    private static final class Gzip extends ChannelSink {
+        private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+        private static final byte[] NO_INPUT = new byte[0];
+
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final CRC32 crc = new CRC32();
+        private final ByteBuffer out;
+        private long uncompressedSize;
+        private boolean finished;
+
+        Gzip(FileChannel channel, int bufferSize) {
+            super(channel);
+            this.out = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+            out.put(HEADER);
+        }
+
+        @Override
+        void write(ByteBuffer src) throws IOException {
+            uncompressedSize += src.remaining();
+            crc.update(src.duplicate());
+            deflater.setInput(src);
+            while (!deflater.needsInput()) {
+                deflater.deflate(out, Deflater.NO_FLUSH);
+                if (!out.hasRemaining()) drain();
+            }
+            // El Deflater guarda la referencia a src: soltarla antes de que el llamador lo reutilice
+            deflater.setInput(NO_INPUT);
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (finished) return;
+            finished = true;
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflater.deflate(out);
+                if (!out.hasRemaining()) drain();
+            }
+            if (out.remaining() < 8) drain();
+            out.putInt((int) crc.getValue());
+            out.putInt((int) uncompressedSize);
+            drain();
+        }
+
+        private void drain() throws IOException {
+            out.flip();
+            writeFully(out);
+            out.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } finally {
+                deflater.end();
+                super.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package prog2int.Export;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Formatos de salida de la exportación masiva (mismos que acepta la importación).
+ * - CSV: encabezado con los nombres de columna, separador ',' y comillas dobles cuando hace falta
+ * - NDJSON: un objeto JSON plano por línea
+ */
+public enum ExportFormat {
+    CSV,
+    NDJSON;
+
+    /** Deduce el formato por la extensión (.csv, .ndjson, .jsonl), ignorando un .gz final. */
+    public static ExportFormat fromFileName(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+        if (name.endsWith(".csv")) return CSV;
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) return NDJSON;
+        throw new IllegalArgumentException("Formato de archivo no soportado: " + name + " (usar .csv, .ndjson o .jsonl)");
+    }
+
+    /** true si el nombre termina en .gz. */
+    public static boolean isGzip(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+}
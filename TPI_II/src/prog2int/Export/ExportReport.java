@@ -0,0 +1,56 @@
+package prog2int.Export;
+
+import java.nio.file.Path;
+
+/**
+ * Resultado inmutable de una exportación masiva.
+ */
+public final class ExportReport {
+
+    private final String source;
+    private final Path file;
+    private final String format;
+    private final boolean gzip;
+    private final long rows;
+    private final long bytesWritten;
+    private final long elapsedNanos;
+
+    public ExportReport(String source, Path file, String format, boolean gzip,
+                        long rows, long bytesWritten, long elapsedNanos) {
+        this.source = source;
+        this.file = file;
+        this.format = format;
+        this.gzip = gzip;
+        this.rows = rows;
+        this.bytesWritten = bytesWritten;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getSource() { return source; }
+    public Path getFile() { return file; }
+    public String getFormat() { return format; }
+    public boolean isGzip() { return gzip; }
+    public long getRows() { return rows; }
+    public long getBytesWritten() { return bytesWritten; }
+
+    public double getElapsedSeconds() {
+        return elapsedNanos / 1_000_000_000.0;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows / getElapsedSeconds();
+    }
+
+    /** MB escritos en disco por segundo (comprimidos si es gzip). */
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesWritten / 1_048_576.0 / getElapsedSeconds();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Exportacion{origen=%s, archivo=%s, formato=%s%s, filas=%d, bytes=%d, "
+                        + "duracion=%.3fs, filas/s=%.0f, MB/s=%.1f}",
+                source, file, format, gzip ? "+gzip" : "", rows, bytesWritten,
+                getElapsedSeconds(), getRowsPerSecond(), getMegabytesPerSecond());
+    }
+}
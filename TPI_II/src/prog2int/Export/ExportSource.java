@@ -0,0 +1,116 @@
+package prog2int.Export;
+
+import prog2int.Models.Envio;
+import prog2int.Models.Pedido;
+import prog2int.Service.EnvioServiceImpl;
+import prog2int.Service.PedidoServiceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Origen de una exportación: columnas disponibles y cómo obtener cada valor de la entidad.
+ * Las filas salen de stream() del servicio, que usa el cursor de streaming del DAO
+ * (memoria constante); no pasan por la caché de entidades.
+ *
+ * Los nombres de columna son los mismos que usa la importación (más el id), de modo que
+ * un archivo exportado se puede volver a importar. Excepción: en CSV, un texto con saltos de
+ * línea (ej. clienteNombre cargado por JSON) sale en varias líneas y la importación rechaza esa
+ * fila; NDJSON los escapa (\n) y vuelve a importarse completo.
+ *
+ * Envio:  id, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado
+ * Pedido: id, numero, fecha, clienteNombre, total, estado, envioId
+ *
+ * @param <T> tipo de entidad
+ */
+public final class ExportSource<T> {
+
+    /** Valor de una columna: String, Number, LocalDate, Enum o null. */
+    @FunctionalInterface
+    interface Extractor<T> {
+        Object get(T entity);
+    }
+
+    /** Abre el stream de filas activas (el llamador lo cierra). */
+    @FunctionalInterface
+    interface RowStream<T> {
+        Stream<T> open() throws Exception;
+    }
+
+    private final String name;
+    private final List<String> columns;
+    private final List<Extractor<T>> extractors;
+    private final RowStream<T> rows;
+
+    private ExportSource(String name, List<String> columns, List<Extractor<T>> extractors, RowStream<T> rows) {
+        this.name = name;
+        this.columns = List.copyOf(columns);
+        this.extractors = List.copyOf(extractors);
+        this.rows = rows;
+    }
+
+    public static ExportSource<Envio> envios(EnvioServiceImpl service) {
+        if (service == null) throw new IllegalArgumentException("EnvioService no puede ser null");
+        return new ExportSource<>("envios",
+                List.of("id", "tracking", "empresa", "tipo", "costo", "fechaDespacho", "fechaEstimada", "estado"),
+                List.of(Envio::getId, Envio::getTracking, Envio::getEmpresa, Envio::getTipo, Envio::getCosto,
+                        Envio::getFechaDespacho, Envio::getFechaEstimada, Envio::getEstado),
+                service::stream);
+    }
+
+    public static ExportSource<Pedido> pedidos(PedidoServiceImpl service) {
+        if (service == null) throw new IllegalArgumentException("PedidoService no puede ser null");
+        return new ExportSource<>("pedidos",
+                List.of("id", "numero", "fecha", "clienteNombre", "total", "estado", "envioId"),
+                List.of(Pedido::getId, Pedido::getNumero, Pedido::getFecha, Pedido::getClienteNombre, Pedido::getTotal,
+                        Pedido::getEstado, p -> p.getEnvio() != null ? p.getEnvio().getId() : null),
+                service::stream);
+    }
+
+    public String getName() { return name; }
+
+    /** Columnas disponibles, en el orden por defecto de la exportación. */
+    public List<String> getColumns() { return columns; }
+
+    Stream<T> open() throws Exception {
+        return rows.open();
+    }
+
+    /**
+     * Proyección: índices de las columnas pedidas, en el orden pedido (null o vacío = todas).
+     * @throws IllegalArgumentException si alguna columna no existe
+     */
+    int[] project(List<String> requested) {
+        if (requested == null || requested.isEmpty()) {
+            int[] all = new int[columns.size()];
+            for (int i = 0; i < all.length; i++) all[i] = i;
+            return all;
+        }
+        int[] idx = new int[requested.size()];
+        for (int i = 0; i < idx.length; i++) {
+            idx[i] = indexOf(requested.get(i).trim());
+            if (idx[i] < 0) {
+                throw new IllegalArgumentException("Columna desconocida: " + requested.get(i) + " (disponibles: " + columns + ")");
+            }
+        }
+        return idx;
+    }
+
+    List<String> names(int[] projection) {
+        List<String> names = new ArrayList<>(projection.length);
+        for (int i : projection) names.add(columns.get(i));
+        return names;
+    }
+
+    Object value(T entity, int column) {
+        return extractors.get(column).get(entity);
+    }
+
+    private int indexOf(String column) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(column)) return i;
+        }
+        return -1;
+    }
+}
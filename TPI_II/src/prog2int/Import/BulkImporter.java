@@ -0,0 +1,431 @@
+package prog2int.Import;
+
+import prog2int.Config.DatabaseConnection;
+import prog2int.Config.TransactionManager;
+import prog2int.Metrics.LatencyRecorder;
+import prog2int.Metrics.Metrics;
+import prog2int.Service.GenericService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Importación masiva de Envio/Pedido desde archivos CSV o NDJSON.
+ *
+ * Pipeline (memoria acotada sin importar el tamaño del archivo):
+ * 1. Lectura secuencial en el hilo llamador, en bloques de batchSize líneas
+ * 2. Parseo + validación (reglas del servicio) en parsers hilos en paralelo
+ * 3. Escritura en writers hilos: un bloque = una transacción (INSERT multi-fila).
+ *    Si el bloque falla se reintenta fila por fila para aislar las rechazadas.
+ *
+ * Backpressure: las colas entre etapas son acotadas. Si la BD no da abasto, los parsers
+ * se bloquean al entregar, el lector termina parseando él mismo (CallerRunsPolicy) y
+ * deja de leer hasta que haya lugar.
+ *
+ * Los bloques confirmados quedan confirmados aunque la importación falle después.
+ *
+ * Configuración (propiedades del sistema):
+ * - import.batchSize=1000, import.parsers=nº de CPUs, import.writers=2 (cada writer usa una conexión)
+ * - import.maxRejectedDetail=1000 (rechazos con detalle en el reporte)
+ */
+public final class BulkImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("import.batchSize", 1000);
+    public static final int DEFAULT_PARSERS = Integer.getInteger("import.parsers", Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_WRITERS = Integer.getInteger("import.writers", 2);
+    private static final int MAX_REJECTED_DETAIL = Integer.getInteger("import.maxRejectedDetail", 1000);
+
+    private final int batchSize;
+    private final int parsers;
+    private final int writers;
+
+    public BulkImporter() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_PARSERS, DEFAULT_WRITERS);
+    }
+
+    public BulkImporter(int batchSize, int parsers, int writers) {
+        if (batchSize <= 0) throw new IllegalArgumentException("El tamaño de bloque debe ser > 0");
+        if (parsers <= 0) throw new IllegalArgumentException("La cantidad de parsers debe ser > 0");
+        if (writers <= 0) throw new IllegalArgumentException("La cantidad de writers debe ser > 0");
+        this.batchSize = batchSize;
+        this.parsers = parsers;
+        this.writers = writers;
+    }
+
+    /** Importa deduciendo el formato por la extensión del archivo. */
+    public <T> ImportReport importar(Path file, ImportTarget<T> target) throws Exception {
+        return importar(file, ImportFormat.fromFileName(file), target);
+    }
+
+    public <T> ImportReport importar(Path file, ImportFormat format, ImportTarget<T> target) throws Exception {
+        LatencyRecorder recorder = Metrics.recorder("Import." + target.getName());
+        return recorder.time(() -> new Run<>(file, format, target).execute(), ImportReport::getRowsInserted);
+    }
+
+    /* ===================== Pipeline ===================== */
+
+    /** Líneas crudas leídas (lines[i] está en la línea lineNumbers[i] del archivo). */
+    private record Chunk(List<String> lines, long[] lineNumbers) { }
+
+    /** Entidades válidas de un bloque, con su línea de origen. */
+    private record Batch<T>(List<T> entities, long[] lineNumbers) { }
+
+    private static final Batch<Object> END = new Batch<>(List.of(), new long[0]);
+
+    /** Estado de una importación. */
+    private final class Run<T> {
+        private final Path file;
+        private final ImportFormat format;
+        private final ImportTarget<T> target;
+        private final BlockingQueue<Batch<?>> writeQueue = new ArrayBlockingQueue<>(writers * 2);
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final LongAdder read = new LongAdder();
+        private final LongAdder inserted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final List<ImportReport.RejectedRow> rejectedDetail = Collections.synchronizedList(new ArrayList<>());
+
+        Run(Path file, ImportFormat format, ImportTarget<T> target) {
+            this.file = file;
+            this.format = format;
+            this.target = target;
+        }
+
+        ImportReport execute() throws Exception {
+            long start = System.nanoTime();
+            List<Thread> writerThreads = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                Thread w = new Thread(this::writeLoop, "import-writer-" + i);
+                w.start();
+                writerThreads.add(w);
+            }
+
+            ThreadPoolExecutor parserPool = new ThreadPoolExecutor(parsers, parsers, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(parsers * 2), r -> new Thread(r, "import-parser"),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            try {
+                readChunks(parserPool);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                parserPool.shutdown();
+                awaitUninterruptibly(parserPool);
+                for (int i = 0; i < writers; i++) putUninterruptibly(END);
+                for (Thread w : writerThreads) w.join();
+            }
+
+            Exception e = failure.get();
+            if (e != null) throw e;
+            return new ImportReport(target.getName(), format.name(), read.sum(), inserted.sum(), rejected.sum(),
+                    System.nanoTime() - start, rejectedDetail);
+        }
+
+        private void readChunks(ThreadPoolExecutor parserPool) throws IOException {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                long lineNumber = 1;
+                String header = null;
+                if (format == ImportFormat.CSV) {
+                    header = reader.readLine();
+                    lineNumber++;
+                }
+                RecordParser parser = RecordParser.create(format, target.getColumns(), target.getRequired(), header);
+
+                List<String> lines = new ArrayList<>(batchSize);
+                long[] numbers = new long[batchSize];
+                String line;
+                for (; (line = reader.readLine()) != null && failure.get() == null; lineNumber++) {
+                    if (line.isBlank()) continue;
+                    numbers[lines.size()] = lineNumber;
+                    lines.add(line);
+                    if (lines.size() == batchSize) {
+                        submit(parserPool, parser, new Chunk(lines, numbers));
+                        lines = new ArrayList<>(batchSize);
+                        numbers = new long[batchSize];
+                    }
+                }
+                if (!lines.isEmpty()) submit(parserPool, parser, new Chunk(lines, numbers));
+            }
+        }
+
+        private void submit(ThreadPoolExecutor parserPool, RecordParser parser, Chunk chunk) {
+            read.add(chunk.lines().size());
+            parserPool.execute(() -> parse(parser, chunk));
+        }
+
+        /** Etapa 2: parseo y validación; entrega las válidas a los writers (bloquea si están atrasados). */
+        private void parse(RecordParser parser, Chunk chunk) {
+            if (failure.get() != null) return;
+            List<T> entities = new ArrayList<>(chunk.lines().size());
+            long[] lineNumbers = new long[chunk.lines().size()];
+            for (int i = 0; i < chunk.lines().size(); i++) {
+                long lineNumber = chunk.lineNumbers()[i];
+                try {
+                    T entity = target.toEntity(parser.parse(chunk.lines().get(i)));
+                    lineNumbers[entities.size()] = lineNumber;
+                    entities.add(entity);
+                } catch (RuntimeException e) {
+                    reject(lineNumber, e);
+                }
+            }
+            if (!entities.isEmpty()) putUninterruptibly(new Batch<>(entities, lineNumbers));
+        }
+
+        /** Etapa 3: un bloque por transacción hasta recibir END. */
+        @SuppressWarnings("unchecked")
+        private void writeLoop() {
+            while (true) {
+                Batch<?> batch = takeUninterruptibly();
+                if (batch == END) return;
+                if (failure.get() != null) continue; // se sigue drenando para no bloquear a los parsers
+                try {
+                    write((Batch<T>) batch);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        }
+
+        private void write(Batch<T> batch) throws Exception {
+            GenericService<T> service = target.getService();
+            try (TransactionManager tx = new TransactionManager(DatabaseConnection.getConnection())) {
+                Connection conn = tx.getConnection();
+                tx.startTransaction();
+                try {
+                    service.insertarLote(batch.entities(), conn);
+                    tx.commit();
+                    inserted.add(batch.entities().size());
+                    return;
+                } catch (Exception e) {
+                    tx.rollback();
+                }
+
+                // El bloque falló: fila por fila para confirmar las buenas y reportar las malas
+                for (int i = 0; i < batch.entities().size(); i++) {
+                    tx.startTransaction();
+                    try {
+                        service.insertarLote(List.of(batch.entities().get(i)), conn);
+                        tx.commit();
+                        inserted.increment();
+                    } catch (Exception e) {
+                        tx.rollback();
+                        reject(batch.lineNumbers()[i], e);
+                    }
+                }
+            }
+        }
+
+        private void reject(long lineNumber, Exception e) {
+            rejected.increment();
+            if (rejectedDetail.size() < MAX_REJECTED_DETAIL) {
+                rejectedDetail.add(new ImportReport.RejectedRow(lineNumber, e.getMessage()));
+            }
+        }
+
+        private void putUninterruptibly(Batch<?> batch) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    writeQueue.put(batch);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+
+        private Batch<?> takeUninterruptibly() {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return writeQueue.take();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }
+
+        private void awaitUninterruptibly(ThreadPoolExecutor pool) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (pool.awaitTermination(1, TimeUnit.MINUTES)) break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ===================== LOAD DATA LOCAL INFILE ===================== */
+
+    /** Tabla temporal (por conexión) donde se carga el archivo antes de validarlo. */
+    private static final String STAGING = "imp_staging";
+
+    /**
+     * Camino rápido para CSV: el servidor carga y valida el archivo sin pasar fila por fila por Java.
+     * 1. LOAD DATA a una tabla temporal de staging con todas las columnas de texto: no hay
+     *    conversión de valores, así que nada se trunca ni se convierte en cero/vacío
+     * 2. Un UPDATE marca cada fila que viola alguna regla de ImportTarget (obligatorios, ENUM,
+     *    fechas, rangos y CHECK, UNIQUE contra la tabla y dentro del archivo, FK) con su motivo
+     * 3. Un único INSERT ... SELECT (modo estricto, sin IGNORE) copia solo las filas válidas
+     * Las filas marcadas se informan como rechazadas con su línea. Si otra sesión inserta un
+     * tracking/número en conflicto entre 2 y 3, el INSERT falla entero y no inserta nada.
+     *
+     * - No aplica la validación del servicio, solo las reglas de la tabla
+     * - No actualiza las cachés ni el filtro de números del servicio
+     * - Requiere MySQL 8.0.17+ (CAST AS DOUBLE), allowLoadLocalInfile=true en db.url y
+     *   local_infile=ON en el servidor
+     */
+    public <T> ImportReport importarLoadData(Path file, ImportTarget<T> target) throws Exception {
+        LatencyRecorder recorder = Metrics.recorder("Import." + target.getName() + ".loadData");
+        return recorder.time(() -> {
+            if (ImportFormat.fromFileName(file) != ImportFormat.CSV) {
+                throw new IllegalArgumentException("LOAD DATA solo admite archivos CSV");
+            }
+            long start = System.nanoTime();
+            String load = buildLoadDataSql(file, target);
+            ImportTarget.LoadData plan = target.getLoadData();
+            String[] columns = target.getColumns();
+
+            long inserted;
+            long rejected;
+            List<ImportReport.RejectedRow> detail = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement st = conn.createStatement()) {
+                try {
+                    st.execute(createStagingSql(columns));
+                    st.executeUpdate(load);
+                    // Líneas en blanco: quedan con todas las columnas en NULL
+                    st.executeUpdate("DELETE FROM " + STAGING + " WHERE "
+                            + String.join(" IS NULL AND ", columns) + " IS NULL");
+                    List<ImportTarget.LoadRule> rules = new ArrayList<>();
+                    for (String column : plan.uniqueColumns()) {
+                        // Una tabla temporal no puede aparecer dos veces en la misma sentencia:
+                        // la primera línea de cada valor se calcula aparte
+                        st.execute("CREATE TEMPORARY TABLE " + firstTable(column) + " (linea BIGINT PRIMARY KEY)"
+                                + " SELECT MIN(linea) AS linea FROM " + STAGING
+                                + " WHERE " + column + " IS NOT NULL GROUP BY " + column);
+                    }
+                    rules.addAll(plan.rules());
+                    for (String column : plan.uniqueColumns()) {
+                        rules.add(new ImportTarget.LoadRule(
+                                "NOT EXISTS (SELECT 1 FROM " + firstTable(column) + " u WHERE u.linea = s.linea)",
+                                "CONCAT('" + column + " repetido en el archivo: ', s." + column + ")"));
+                    }
+                    st.executeUpdate(classifySql(rules));
+                    inserted = st.executeUpdate("INSERT INTO " + target.getTable()
+                            + " (eliminado, " + String.join(", ", plan.tableColumns()) + ")"
+                            + " SELECT FALSE, " + String.join(", ", plan.values())
+                            + " FROM " + STAGING + " s WHERE s.motivo IS NULL ORDER BY s.linea");
+                    try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + STAGING + " WHERE motivo IS NOT NULL")) {
+                        rs.next();
+                        rejected = rs.getLong(1);
+                    }
+                    try (ResultSet rs = st.executeQuery("SELECT linea, motivo FROM " + STAGING
+                            + " WHERE motivo IS NOT NULL ORDER BY linea LIMIT " + MAX_REJECTED_DETAIL)) {
+                        // linea = n.º de fila de datos; +1 por el encabezado
+                        while (rs.next()) detail.add(new ImportReport.RejectedRow(rs.getLong(1) + 1, rs.getString(2)));
+                    }
+                } finally {
+                    // La conexión vuelve al pool: las temporales no pueden quedar
+                    StringBuilder drop = new StringBuilder("DROP TEMPORARY TABLE IF EXISTS ").append(STAGING);
+                    for (String column : plan.uniqueColumns()) drop.append(", ").append(firstTable(column));
+                    st.execute(drop.toString());
+                }
+            }
+            return new ImportReport(target.getName(), "LOAD DATA", inserted + rejected, inserted, rejected,
+                    System.nanoTime() - start, detail);
+        }, ImportReport::getRowsInserted);
+    }
+
+    /** Staging: linea en orden de archivo (AUTO_INCREMENT), una columna de texto por columna del destino. */
+    private static String createStagingSql(String[] columns) {
+        StringBuilder sql = new StringBuilder("CREATE TEMPORARY TABLE " + STAGING
+                + " (linea BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY");
+        for (String column : columns) sql.append(", ").append(column).append(" TEXT NULL");
+        return sql.append(", motivo TEXT NULL) DEFAULT CHARSET = utf8mb4").toString();
+    }
+
+    /** UPDATE que guarda en motivo la primera regla violada (NULL = fila válida). */
+    private static String classifySql(List<ImportTarget.LoadRule> rules) {
+        StringBuilder sql = new StringBuilder("UPDATE " + STAGING + " s SET s.motivo = CASE");
+        for (ImportTarget.LoadRule rule : rules) {
+            sql.append(" WHEN ").append(rule.condicion()).append(" THEN ").append(rule.motivo());
+        }
+        return sql.append(" END").toString();
+    }
+
+    private static String firstTable(String column) {
+        return STAGING + "_" + column;
+    }
+
+    /** Arma el LOAD DATA a staging a partir del encabezado: cada campo va a @columna y se asigna con SET. */
+    private <T> String buildLoadDataSql(Path file, ImportTarget<T> target) throws IOException {
+        String headerLine;
+        boolean crlf;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] head = in.readNBytes(64 * 1024);
+            String text = new String(head, StandardCharsets.UTF_8);
+            int nl = text.indexOf('\n');
+            headerLine = nl < 0 ? text : text.substring(0, nl);
+            crlf = headerLine.endsWith("\r");
+        }
+        // Valida el encabezado (columnas obligatorias) con las mismas reglas que el pipeline
+        RecordParser.create(ImportFormat.CSV, target.getColumns(), target.getRequired(), headerLine);
+
+        String[] columns = target.getColumns();
+        StringBuilder vars = new StringBuilder();
+        StringBuilder set = new StringBuilder();
+        boolean[] present = new boolean[columns.length];
+        for (String field : headerLine.replace("\uFEFF", "").replace("\r", "").split(",", -1)) {
+            String name = field.replace("\"", "").trim();
+            int idx = indexOfIgnoreCase(columns, name);
+            if (vars.length() > 0) vars.append(", ");
+            if (idx < 0 || present[idx]) {
+                vars.append("@ignorada");
+            } else {
+                vars.append('@').append(columns[idx]);
+                present[idx] = true;
+                if (set.length() > 0) set.append(", ");
+                set.append(columns[idx]).append(" = NULLIF(TRIM(@").append(columns[idx]).append("), '')");
+            }
+        }
+
+        String path = file.toAbsolutePath().toString().replace("\\", "\\\\").replace("'", "\\'");
+        return "LOAD DATA LOCAL INFILE '" + path + "' INTO TABLE " + STAGING
+                + " CHARACTER SET utf8mb4"
+                + " FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY ''"
+                + " LINES TERMINATED BY '" + (crlf ? "\\r\\n" : "\\n") + "' IGNORE 1 LINES"
+                + " (" + vars + ") SET " + set;
+    }
+
+    private static int indexOfIgnoreCase(String[] columns, String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].toLowerCase(Locale.ROOT).equals(lower)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,24 @@
+package prog2int.Import;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Formatos de archivo soportados por la importación masiva.
+ * - CSV: primera línea = encabezado con los nombres de columna, separador ',' y comillas dobles
+ * - NDJSON: un objeto JSON plano por línea ({"columna": valor, ...})
+ *
+ * En ambos casos un registro ocupa exactamente una línea.
+ */
+public enum ImportFormat {
+    CSV,
+    NDJSON;
+
+    /** Deduce el formato por la extensión (.csv, .ndjson, .jsonl). */
+    public static ImportFormat fromFileName(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) return CSV;
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) return NDJSON;
+        throw new IllegalArgumentException("Formato de archivo no soportado: " + name + " (usar .csv, .ndjson o .jsonl)");
+    }
+}
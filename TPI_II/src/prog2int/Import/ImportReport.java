@@ -0,0 +1,72 @@
+package prog2int.Import;
+
+import java.util.List;
+
+/**
+ * Resultado inmutable de una importación masiva.
+ * Los rechazos se cuentan todos, pero solo se conserva el detalle de los primeros
+ * (import.maxRejectedDetail) para no llenar la memoria con archivos de millones de líneas.
+ */
+public final class ImportReport {
+
+    /** Fila rechazada: número de línea en el archivo (1 = primera línea) y motivo. */
+    public static final class RejectedRow {
+        private final long line;
+        private final String reason;
+
+        public RejectedRow(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public long getLine() { return line; }
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return "linea " + line + ": " + reason;
+        }
+    }
+
+    private final String target;
+    private final String mode;
+    private final long rowsRead;
+    private final long rowsInserted;
+    private final long rowsRejected;
+    private final long elapsedNanos;
+    private final List<RejectedRow> rejectedDetail;
+
+    public ImportReport(String target, String mode, long rowsRead, long rowsInserted, long rowsRejected,
+                        long elapsedNanos, List<RejectedRow> rejectedDetail) {
+        this.target = target;
+        this.mode = mode;
+        this.rowsRead = rowsRead;
+        this.rowsInserted = rowsInserted;
+        this.rowsRejected = rowsRejected;
+        this.elapsedNanos = elapsedNanos;
+        this.rejectedDetail = List.copyOf(rejectedDetail);
+    }
+
+    public String getTarget() { return target; }
+    public String getMode() { return mode; }
+    public long getRowsRead() { return rowsRead; }
+    public long getRowsInserted() { return rowsInserted; }
+    public long getRowsRejected() { return rowsRejected; }
+    public List<RejectedRow> getRejectedDetail() { return rejectedDetail; }
+
+    public double getElapsedSeconds() {
+        return elapsedNanos / 1_000_000_000.0;
+    }
+
+    /** Filas leídas por segundo (insertadas + rechazadas). */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead / getElapsedSeconds();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Importacion{destino=%s, modo=%s, leidas=%d, insertadas=%d, rechazadas=%d, "
+                        + "duracion=%.3fs, filas/s=%.0f}",
+                target, mode, rowsRead, rowsInserted, rowsRejected, getElapsedSeconds(), getRowsPerSecond());
+    }
+}
@@ -0,0 +1,247 @@
+package prog2int.Import;
+
+import prog2int.Models.Empresa;
+import prog2int.Models.Envio;
+import prog2int.Models.EstadoEnvio;
+import prog2int.Models.EstadoPedido;
+import prog2int.Models.Pedido;
+import prog2int.Models.TipoEnvio;
+import prog2int.Service.EnvioServiceImpl;
+import prog2int.Service.GenericService;
+import prog2int.Service.PedidoServiceImpl;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Destino de una importación: columnas del archivo, conversión a entidad y servicio que
+ * valida e inserta. Los nombres de columna coinciden con los de la tabla (sin distinguir
+ * mayúsculas), salvo envioId en Pedido que corresponde a la FK envio.
+ *
+ * Envio:  tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado
+ * Pedido: numero, fecha, clienteNombre, total, estado, envioId
+ *
+ * Fechas en formato ISO (yyyy-MM-dd); enums por nombre.
+ *
+ * Para el camino LOAD DATA (BulkImporter.importarLoadData) cada destino describe además cómo
+ * pasar de la tabla de staging (alias s, todas las columnas de texto) a la tabla real y qué
+ * reglas SQL rechazan una fila antes del INSERT (las restricciones de la tabla en SQL).
+ *
+ * @param <T> tipo de entidad
+ */
+public final class ImportTarget<T> {
+
+    /** Convierte los valores (en el orden de getColumns()) en una entidad nueva. */
+    @FunctionalInterface
+    interface RecordMapper<T> {
+        T map(String[] values);
+    }
+
+    /**
+     * Regla de rechazo de LOAD DATA: si condicion (SQL sobre la fila s de staging) es verdadera,
+     * la fila se rechaza con motivo (expresión SQL). Se evalúan en orden y gana la primera, así
+     * que las reglas de obligatoriedad van antes que las de formato de la misma columna.
+     */
+    record LoadRule(String condicion, String motivo) { }
+
+    /** Traducción staging -> tabla para LOAD DATA. */
+    record LoadData(String[] tableColumns, String[] values, List<LoadRule> rules, String[] uniqueColumns) { }
+
+    private final String name;
+    private final String table;
+    private final String[] columns;
+    private final String[] required;
+    private final LoadData loadData;
+    private final RecordMapper<T> mapper;
+    private final GenericService<T> service;
+
+    private ImportTarget(String name, String table, String[] columns, String[] required,
+                         LoadData loadData, RecordMapper<T> mapper, GenericService<T> service) {
+        if (service == null) throw new IllegalArgumentException("El servicio no puede ser null");
+        this.name = name;
+        this.table = table;
+        this.columns = columns;
+        this.required = required;
+        this.loadData = loadData;
+        this.mapper = mapper;
+        this.service = service;
+    }
+
+    public static ImportTarget<Envio> envios(EnvioServiceImpl service) {
+        return new ImportTarget<>("envios", "Envio",
+                new String[]{"tracking", "empresa", "tipo", "costo", "fechaDespacho", "fechaEstimada", "estado"},
+                new String[]{"empresa", "tipo", "costo", "estado"},
+                new LoadData(
+                        new String[]{"tracking", "empresa", "tipo", "costo", "fechaDespacho", "fechaEstimada", "estado"},
+                        new String[]{"s.tracking", "UPPER(s.empresa)", "UPPER(s.tipo)", "CAST(s.costo AS DOUBLE)",
+                                "s.fechaDespacho", "s.fechaEstimada", "UPPER(s.estado)"},
+                        List.of(
+                                obligatorio("tracking"),
+                                largoMaximo("tracking", 40),
+                                new LoadRule("EXISTS (SELECT 1 FROM Envio t WHERE t.tracking = s.tracking)",
+                                        "CONCAT('tracking duplicado: ', s.tracking)"),
+                                obligatorio("empresa"), enumValido("empresa", Empresa.class),
+                                obligatorio("tipo"), enumValido("tipo", TipoEnvio.class),
+                                obligatorio("costo"), numero("costo"), positivoMenorA("costo", "1e8"),
+                                obligatorio("fechaDespacho"), fecha("fechaDespacho"),
+                                obligatorio("fechaEstimada"), fecha("fechaEstimada"),
+                                new LoadRule("s.fechaEstimada < s.fechaDespacho",
+                                        "'La fecha estimada no puede ser anterior a la de despacho'"),
+                                obligatorio("estado"), enumValido("estado", EstadoEnvio.class)),
+                        new String[]{"tracking"}),
+                v -> {
+                    Envio e = new Envio();
+                    e.setTracking(v[0]);
+                    e.setEmpresa(parseEnum(Empresa.class, v[1], "empresa"));
+                    e.setTipo(parseEnum(TipoEnvio.class, v[2], "tipo"));
+                    e.setCosto(parseDouble(v[3], "costo"));
+                    e.setFechaDespacho(parseDate(v[4], "fechaDespacho"));
+                    e.setFechaEstimada(parseDate(v[5], "fechaEstimada"));
+                    e.setEstado(parseEnum(EstadoEnvio.class, v[6], "estado"));
+                    return e;
+                },
+                service);
+    }
+
+    public static ImportTarget<Pedido> pedidos(PedidoServiceImpl service) {
+        return new ImportTarget<>("pedidos", "Pedido",
+                new String[]{"numero", "fecha", "clienteNombre", "total", "estado", "envioId"},
+                new String[]{"numero", "total", "estado"},
+                new LoadData(
+                        new String[]{"numero", "fecha", "clienteNombre", "total", "estado", "envio"},
+                        new String[]{"s.numero", "s.fecha", "s.clienteNombre", "CAST(s.total AS DOUBLE)",
+                                "UPPER(s.estado)", "CAST(s.envioId AS UNSIGNED)"},
+                        List.of(
+                                obligatorio("numero"),
+                                largoMaximo("numero", 20),
+                                new LoadRule("EXISTS (SELECT 1 FROM Pedido t WHERE t.numero = s.numero)",
+                                        "CONCAT('numero duplicado: ', s.numero)"),
+                                obligatorio("fecha"), fecha("fecha"),
+                                obligatorio("clienteNombre"), largoMaximo("clienteNombre", 120),
+                                obligatorio("total"), numero("total"), positivoMenorA("total", "1e10"),
+                                obligatorio("estado"), enumValido("estado", EstadoPedido.class),
+                                obligatorio("envioId"),
+                                new LoadRule("s.envioId NOT REGEXP '^[0-9]{1,18}$'",
+                                        "CONCAT('envioId no es un entero: ', s.envioId)"),
+                                new LoadRule("NOT EXISTS (SELECT 1 FROM Envio e WHERE e.id = CAST(s.envioId AS UNSIGNED))",
+                                        "CONCAT('envioId no existe: ', s.envioId)"),
+                                new LoadRule("EXISTS (SELECT 1 FROM Pedido t WHERE t.envio = CAST(s.envioId AS UNSIGNED))",
+                                        "CONCAT('envioId ya tiene pedido: ', s.envioId)")),
+                        new String[]{"numero", "envioId"}),
+                v -> {
+                    Pedido p = new Pedido();
+                    p.setNumero(v[0]);
+                    p.setFecha(parseDate(v[1], "fecha"));
+                    p.setClienteNombre(v[2]);
+                    p.setTotal(parseDouble(v[3], "total"));
+                    p.setEstado(parseEnum(EstadoPedido.class, v[4], "estado"));
+                    if (v[5] != null) {
+                        Envio envio = new Envio();
+                        envio.setId(parseLong(v[5], "envioId"));
+                        p.setEnvio(envio);
+                    }
+                    return p;
+                },
+                service);
+    }
+
+    public String getName() { return name; }
+
+    String getTable() { return table; }
+    String[] getColumns() { return columns; }
+    String[] getRequired() { return required; }
+    LoadData getLoadData() { return loadData; }
+    GenericService<T> getService() { return service; }
+
+    /** Convierte y valida con las reglas del servicio; IllegalArgumentException si la fila no es válida. */
+    T toEntity(String[] values) {
+        T entity = mapper.map(values);
+        service.validar(entity);
+        return entity;
+    }
+
+    /* ===================== Reglas de LOAD DATA ===================== */
+
+    private static LoadRule obligatorio(String column) {
+        return new LoadRule("s." + column + " IS NULL", "'" + column + " es obligatorio'");
+    }
+
+    private static LoadRule largoMaximo(String column, int max) {
+        return new LoadRule("CHAR_LENGTH(s." + column + ") > " + max, "'" + column + " supera los " + max + " caracteres'");
+    }
+
+    private static <E extends Enum<E>> LoadRule enumValido(String column, Class<E> type) {
+        String valores = Arrays.stream(type.getEnumConstants())
+                .map(c -> "'" + c.name() + "'")
+                .collect(Collectors.joining(", "));
+        return new LoadRule("UPPER(s." + column + ") NOT IN (" + valores + ")",
+                "CONCAT('" + column + " invalido: ', s." + column + ")");
+    }
+
+    /** Decimal sin exponente y con a lo sumo 12 dígitos enteros (el CAST posterior no genera warnings). */
+    private static LoadRule numero(String column) {
+        return new LoadRule("s." + column + " NOT REGEXP '^-?[0-9]{1,12}([.][0-9]*)?$'",
+                "CONCAT('" + column + " no es un número: ', s." + column + ")");
+    }
+
+    /** CHECK (> 0) de la tabla y rango de DOUBLE(M,2). */
+    private static LoadRule positivoMenorA(String column, String max) {
+        String valor = "CAST(s." + column + " AS DOUBLE)";
+        return new LoadRule(valor + " <= 0 OR " + valor + " >= " + max,
+                "CONCAT('" + column + " fuera de rango: ', s." + column + ")");
+    }
+
+    /**
+     * yyyy-MM-dd existente (año >= 1000), sin STR_TO_DATE: en modo estricto su warning aborta la
+     * sentencia. El CASE fija el orden de evaluación.
+     */
+    private static LoadRule fecha(String column) {
+        String c = "s." + column;
+        return new LoadRule("CASE WHEN " + c + " NOT REGEXP '^[1-9][0-9]{3}-[0-9]{2}-[0-9]{2}$' THEN TRUE"
+                + " WHEN CAST(SUBSTRING(" + c + ", 6, 2) AS UNSIGNED) NOT BETWEEN 1 AND 12 THEN TRUE"
+                + " ELSE CAST(SUBSTRING(" + c + ", 9, 2) AS UNSIGNED)"
+                + " NOT BETWEEN 1 AND DAY(LAST_DAY(CONCAT(LEFT(" + c + ", 7), '-01'))) END",
+                "CONCAT('" + column + " no es una fecha yyyy-MM-dd: ', " + c + ")");
+    }
+
+    /* ===================== Conversión de campos ===================== */
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String column) {
+        if (value == null) return null; // la obligatoriedad la decide la validación del servicio
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(column + " invalido: " + value);
+        }
+    }
+
+    private static double parseDouble(String value, String column) {
+        if (value == null) throw new IllegalArgumentException(column + " es obligatorio");
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " no es un número: " + value);
+        }
+    }
+
+    private static long parseLong(String value, String column) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " no es un entero: " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value, String column) {
+        if (value == null) return null;
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(column + " no es una fecha yyyy-MM-dd: " + value);
+        }
+    }
+}
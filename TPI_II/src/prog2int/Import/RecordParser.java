@@ -0,0 +1,233 @@
+package prog2int.Import;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Convierte una línea del archivo en los valores de las columnas del destino,
+ * en el orden de ImportTarget.getColumns() (null = columna ausente o vacía).
+ *
+ * Es inmutable una vez creado: lo comparten todos los workers de parseo.
+ */
+abstract class RecordParser {
+
+    /** Posición de cada nombre de columna (en minúsculas) dentro del destino. */
+    protected final Map<String, Integer> columnIndex = new HashMap<>();
+    protected final int columnCount;
+
+    private RecordParser(String[] columns) {
+        this.columnCount = columns.length;
+        for (int i = 0; i < columns.length; i++) {
+            columnIndex.put(columns[i].toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    /** @throws IllegalArgumentException si la línea está mal formada */
+    abstract String[] parse(String line);
+
+    /**
+     * @param headerLine primera línea del archivo (solo CSV; para NDJSON se ignora)
+     * @throws IllegalArgumentException si al encabezado CSV le falta una columna obligatoria
+     */
+    static RecordParser create(ImportFormat format, String[] columns, String[] required, String headerLine) {
+        return switch (format) {
+            case CSV -> new Csv(columns, required, headerLine);
+            case NDJSON -> new Ndjson(columns);
+        };
+    }
+
+    /* ===================== CSV ===================== */
+
+    private static final class Csv extends RecordParser {
+        /** Para cada campo del archivo, la columna del destino (-1 = columna ignorada). */
+        private final int[] targetOf;
+
+        Csv(String[] columns, String[] required, String headerLine) {
+            super(columns);
+            if (headerLine == null) throw new IllegalArgumentException("El archivo CSV está vacío (falta el encabezado)");
+            List<String> header = split(stripBom(headerLine));
+            targetOf = new int[header.size()];
+            boolean[] present = new boolean[columnCount];
+            for (int i = 0; i < header.size(); i++) {
+                Integer idx = columnIndex.get(header.get(i).trim().toLowerCase(Locale.ROOT));
+                targetOf[i] = idx == null ? -1 : idx;
+                if (idx != null) present[idx] = true;
+            }
+            for (String col : required) {
+                if (!present[columnIndex.get(col.toLowerCase(Locale.ROOT))]) {
+                    throw new IllegalArgumentException("El encabezado no tiene la columna obligatoria: " + col);
+                }
+            }
+        }
+
+        @Override
+        String[] parse(String line) {
+            List<String> fields = split(line);
+            if (fields.size() > targetOf.length) {
+                throw new IllegalArgumentException("La fila tiene " + fields.size() + " campos y el encabezado " + targetOf.length);
+            }
+            String[] values = new String[columnCount];
+            for (int i = 0; i < fields.size(); i++) {
+                if (targetOf[i] >= 0) values[targetOf[i]] = emptyToNull(fields.get(i));
+            }
+            return values;
+        }
+
+        /** Separa por ',' respetando comillas dobles ("" dentro de comillas = comilla literal). */
+        private static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            sb.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        sb.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(sb.toString());
+                    sb.setLength(0);
+                } else if (c != '\r') {
+                    sb.append(c);
+                }
+            }
+            if (quoted) throw new IllegalArgumentException("Comillas sin cerrar");
+            fields.add(sb.toString());
+            return fields;
+        }
+
+        private static String stripBom(String s) {
+            return !s.isEmpty() && s.charAt(0) == '\uFEFF' ? s.substring(1) : s;
+        }
+    }
+
+    /* ===================== NDJSON ===================== */
+
+    /** Objetos JSON planos: los valores pueden ser string, número, true/false o null. */
+    private static final class Ndjson extends RecordParser {
+
+        Ndjson(String[] columns) {
+            super(columns);
+        }
+
+        @Override
+        String[] parse(String line) {
+            String[] values = new String[columnCount];
+            Cursor c = new Cursor(line);
+            c.skipWs();
+            c.expect('{');
+            c.skipWs();
+            if (c.peek() == '}') {
+                c.pos++;
+            } else {
+                while (true) {
+                    c.skipWs();
+                    String key = c.readString();
+                    c.skipWs();
+                    c.expect(':');
+                    c.skipWs();
+                    String value = c.peek() == '"' ? c.readString() : c.readLiteral();
+                    Integer idx = columnIndex.get(key.toLowerCase(Locale.ROOT));
+                    if (idx != null) values[idx] = emptyToNull(value);
+                    c.skipWs();
+                    char sep = c.next();
+                    if (sep == '}') break;
+                    if (sep != ',') throw new IllegalArgumentException("JSON inválido: se esperaba ',' o '}' en la posición " + (c.pos - 1));
+                }
+            }
+            c.skipWs();
+            if (c.pos < line.length()) throw new IllegalArgumentException("JSON inválido: contenido extra al final de la línea");
+            return values;
+        }
+    }
+
+    private static final class Cursor {
+        final String s;
+        int pos;
+
+        Cursor(String s) {
+            this.s = s;
+        }
+
+        char peek() {
+            if (pos >= s.length()) throw new IllegalArgumentException("JSON inválido: fin de línea inesperado");
+            return s.charAt(pos);
+        }
+
+        char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        void expect(char expected) {
+            if (next() != expected) {
+                throw new IllegalArgumentException("JSON inválido: se esperaba '" + expected + "' en la posición " + (pos - 1));
+            }
+        }
+
+        void skipWs() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = next();
+                switch (e) {
+                    case '"', '\\', '/' -> sb.append(e);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > s.length()) throw new IllegalArgumentException("JSON inválido: escape \\u incompleto");
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> throw new IllegalArgumentException("JSON inválido: escape \\" + e);
+                }
+            }
+        }
+
+        /** Número, true, false o null (null se devuelve como valor ausente). */
+        String readLiteral() {
+            int start = pos;
+            while (pos < s.length()) {
+                char c = s.charAt(pos);
+                if (c == ',' || c == '}' || Character.isWhitespace(c)) break;
+                if (c == '{' || c == '[') throw new IllegalArgumentException("JSON inválido: solo se admiten objetos planos");
+                pos++;
+            }
+            String literal = s.substring(start, pos);
+            if (literal.isEmpty()) throw new IllegalArgumentException("JSON inválido: valor vacío en la posición " + start);
+            return literal.equals("null") ? null : literal;
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        if (value == null) return null;
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -2,10 +2,15 @@ package prog2int.Main;
 
 import java.util.Scanner;
 
+import prog2int.Config.DatabaseConnection;
+import prog2int.Dao.ArchivoDAO;
 import prog2int.Dao.EnvioDAO;
 import prog2int.Dao.PedidoDAO;
+import prog2int.Dao.ReporteDAO;
+import prog2int.Service.ArchivoService;
 import prog2int.Service.EnvioServiceImpl;
 import prog2int.Service.PedidoServiceImpl;
+import prog2int.Service.ReporteService;
 
 /**
  * Ejecuta el loop del menú.
@@ -24,7 +29,37 @@ public class AppMenu {
         EnvioServiceImpl envioService = new EnvioServiceImpl(envioDAO); // Instancia de EnvioServiceImpl con EnvioDAO
         PedidoServiceImpl pedidoService = new PedidoServiceImpl(pedidoDAO, envioService); // Instancia de PedidoServiceImpl con PedidoDAO y EnvioService
 
-        this.menuHandler = new MenuHandler(scanner, pedidoService, envioService);
+        // Filtro de Bloom opcional de números de pedido (-Dpedido.filtroNumeros=true)
+        if (Boolean.getBoolean("pedido.filtroNumeros")) {
+            try {
+                pedidoService.habilitarFiltroNumeros(Long.getLong("pedido.filtroNumeros.esperados", 100_000L), 0.01);
+            } catch (Exception e) {
+                System.err.println("No se pudo cargar el filtro de numeros: " + e.getMessage());
+            }
+        }
+
+        // Índice de trigramas de clienteNombre construido al inicio (-Dpedido.indiceClientes=true);
+        // si no, se construye en la primera búsqueda por cliente
+        if (Boolean.getBoolean("pedido.indiceClientes")) {
+            try {
+                pedidoService.habilitarIndiceClientes();
+            } catch (Exception e) {
+                System.err.println("No se pudo construir el indice de clientes: " + e.getMessage());
+            }
+        }
+
+        // Copia columnar de envíos cargada al inicio (-Denvio.snapshot=true);
+        // si no, se carga en la primera consulta del tablero
+        if (Boolean.getBoolean("envio.snapshot")) {
+            try {
+                envioService.habilitarSnapshot();
+            } catch (Exception e) {
+                System.err.println("No se pudo cargar el snapshot de envios: " + e.getMessage());
+            }
+        }
+
+        this.menuHandler = new MenuHandler(scanner, pedidoService, envioService, new ReporteService(new ReporteDAO()),
+                new ArchivoService(new ArchivoDAO()));
         this.running = true;
     }
 
@@ -61,9 +96,28 @@ public class AppMenu {
             case 8  -> menuHandler.actualizarEnvioPorId();
             case 9 -> menuHandler.eliminarEnvioPorId();
 
+            // DIAGNOSTICO
+            case 10 -> menuHandler.mostrarDiagnostico();
+
+            // IMPORTACION / EXPORTACION
+            case 11 -> menuHandler.importarArchivo();
+            case 12 -> menuHandler.exportarArchivo();
+
+            // REPORTES
+            case 13 -> menuHandler.mostrarReportes();
+            case 17 -> menuHandler.mostrarTableroEnvios();
+
+            // BUSQUEDA
+            case 14 -> menuHandler.buscarPedidosPorCriterios();
+            case 15 -> menuHandler.buscarPedidosPorCliente();
+
+            // MANTENIMIENTO
+            case 16 -> menuHandler.archivarEliminados();
+
             case 0 -> {
                 System.out.println("Saliendo...");
                 running = false;
+                DatabaseConnection.shutdown();
             }
             default -> System.out.println("Opción no válida.");
         }
@@ -18,6 +18,15 @@ public class MenuDisplay {
         System.out.println("8. Actualizar envio por ID");
         System.out.println("9. Eliminar envio por ID");
 
+        System.out.println("10. Diagnostico (metricas de rendimiento)");
+        System.out.println("11. Importar pedidos/envios desde archivo (CSV/NDJSON)");
+        System.out.println("12. Exportar pedidos/envios a archivo (CSV/NDJSON, .gz opcional)");
+        System.out.println("13. Reportes (ingresos, costos de envio, pedidos por dia)");
+        System.out.println("14. Buscar pedidos por cliente, fecha, estado y total");
+        System.out.println("15. Buscar pedidos por nombre de cliente (contiene)");
+        System.out.println("16. Archivar pedidos/envios eliminados (historico)");
+        System.out.println("17. Tablero de costos de envio (en memoria)");
+
         System.out.println("0. Salir");
         System.out.print("Ingrese una opcion: ");
     }
@@ -1,18 +1,40 @@
 package prog2int.Main;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Scanner;
-
+import java.util.Set;
+import java.util.function.Consumer;
+
+import prog2int.Config.DatabaseConnection;
+import prog2int.Config.PoolStats;
+import prog2int.Dao.PedidoFiltro;
+import prog2int.Export.BulkExporter;
+import prog2int.Export.ExportSource;
+import prog2int.Import.BulkImporter;
+import prog2int.Import.ImportFormat;
+import prog2int.Import.ImportReport;
+import prog2int.Import.ImportTarget;
+import prog2int.Metrics.LatencyRecorder;
+import prog2int.Metrics.Metrics;
+import prog2int.Models.Base;
 import prog2int.Models.Empresa;
 import prog2int.Models.Envio;
 import prog2int.Models.EstadoEnvio;
 import prog2int.Models.EstadoPedido;
 import prog2int.Models.Pedido;
 import prog2int.Models.TipoEnvio;
+import prog2int.Service.ArchivoService;
+import prog2int.Service.ConsultaEnvios;
+import prog2int.Service.EnvioSnapshot;
 import prog2int.Service.EnvioServiceImpl;
 import prog2int.Service.PedidoServiceImpl;
+import prog2int.Service.ReporteService;
 
 /**
  * Controlador de interacción por consola para operaciones con Pedido/Envio.
@@ -20,17 +42,27 @@ import prog2int.Service.PedidoServiceImpl;
  */
 public class MenuHandler {
 
+    /** Filas por página en los listados. */
+    private static final int PAGE_SIZE = 20;
+
     private final Scanner scanner;
     private final PedidoServiceImpl pedidoService;
     private final EnvioServiceImpl envioService;
+    private final ReporteService reporteService;
+    private final ArchivoService archivoService;
 
-    public MenuHandler(Scanner scanner, PedidoServiceImpl pedidoService, EnvioServiceImpl envioService) {
+    public MenuHandler(Scanner scanner, PedidoServiceImpl pedidoService, EnvioServiceImpl envioService,
+                       ReporteService reporteService, ArchivoService archivoService) {
         if (scanner == null) throw new IllegalArgumentException("Scanner no puede ser null");
         if (pedidoService == null) throw new IllegalArgumentException("PedidoService no puede ser null");
         if (envioService == null) throw new IllegalArgumentException("EnvioService no puede ser null");
+        if (reporteService == null) throw new IllegalArgumentException("ReporteService no puede ser null");
+        if (archivoService == null) throw new IllegalArgumentException("ArchivoService no puede ser null");
         this.scanner = scanner;
         this.pedidoService = pedidoService;
         this.envioService = envioService;
+        this.reporteService = reporteService;
+        this.archivoService = archivoService;
     }
 
 
@@ -48,19 +80,16 @@ public class MenuHandler {
 
     public void listarEnvios() {
         try {
-            List<Envio> envios = envioService.getAll();
-            if (envios.isEmpty()) {
-                System.out.println("No hay envios.");
-                return;
-            }
-            for (Envio e : envios) {
-                System.out.println("ID=" + e.getId() +
-                        " | tracking=" + e.getTracking() +
-                        " | empresa=" + e.getEmpresa() +
-                        " | tipo=" + e.getTipo() +
-                        " | estado=" + e.getEstado() +
-                        " | costo=" + e.getCosto());
-            }
+            EstadoEnvio estado = readEstadoEnvioOrKeep(
+                    "Filtrar por estado (EN_PREPARACION/EN_TRANSITO/ENTREGADO, Enter para todos): ", null);
+            paginar((Envio ultimo, int limit) -> envioService.getPage(idDe(ultimo), limit, estado),
+                    e -> System.out.println("ID=" + e.getId() +
+                            " | tracking=" + e.getTracking() +
+                            " | empresa=" + e.getEmpresa() +
+                            " | tipo=" + e.getTipo() +
+                            " | estado=" + e.getEstado() +
+                            " | costo=" + e.getCosto()),
+                    "No hay envios.");
         } catch (Exception ex) {
             System.err.println("Error al listar envios: " + ex.getMessage());
         }
@@ -134,10 +163,10 @@ public class MenuHandler {
             Envio envio = null;
             System.out.print("Desea asociar a un envio nuevo o existente? (n/e): ");
             String opcion = scanner.nextLine();
-            if (opcion.equalsIgnoreCase("n")) {
+            boolean envioNuevo = opcion.equalsIgnoreCase("n");
+            if (envioNuevo) {
+                // Se persiste junto con el pedido (misma transacción)
                 envio = crearEnvioInteractivo();
-                // Persistimos primero el envío para obtener ID (FK 1:1)
-                envioService.insertar(envio);
             } else if (opcion.equalsIgnoreCase("e")) {
                 //listarEnvios();
                 System.out.println("Ingrese el ID del envio para asociarlo al pedido creado: ");
@@ -157,8 +186,13 @@ public class MenuHandler {
             p.setEstado(estado);
             p.setEnvio(envio);
 
-            pedidoService.insertar(p);
-            System.out.println("Pedido creado. ID: " + p.getId());
+            if (envioNuevo) {
+                pedidoService.crearPedidoConEnvio(p, envio);
+                System.out.println("Pedido creado. ID: " + p.getId() + " | Envio ID: " + envio.getId());
+            } else {
+                pedidoService.insertar(p);
+                System.out.println("Pedido creado. ID: " + p.getId());
+            }
         } catch (Exception e) {
             System.err.println("Error al crear pedido: " + e.getMessage());
         }
@@ -166,22 +200,18 @@ public class MenuHandler {
 
     public void listarPedidos() {
         try {
-            List<Pedido> pedidos = pedidoService.getAll();
-            if (pedidos.isEmpty()) {
-                System.out.println("No hay pedidos.");
-                return;
-            }
-            for (Pedido p : pedidos) {
-                System.out.println("ID=" + p.getId() +
-                        " | nro=" + p.getNumero() +
-                        " | cliente=" + p.getClienteNombre() +
-                        " | estado=" + p.getEstado() +
-                        " | total=" + p.getTotal() +
-                        " | envioId=" + (p.getEnvio() != null ? p.getEnvio().getId() : "NULL"));
-            }
+            EstadoPedido estado = readEstadoPedidoOrKeep(
+                    "Filtrar por estado (NUEVO/FACTURADO/ENVIADO, Enter para todos): ", null);
+            paginar((Pedido ultimo, int limit) -> pedidoService.getPage(idDe(ultimo), limit, estado),
+                    p -> System.out.println("ID=" + p.getId() +
+                            " | nro=" + p.getNumero() +
+                            " | cliente=" + p.getClienteNombre() +
+                            " | estado=" + p.getEstado() +
+                            " | total=" + p.getTotal() +
+                            " | envioId=" + (p.getEnvio() != null ? p.getEnvio().getId() : "NULL")),
+                    "No hay pedidos.");
         } catch (Exception e) {
             System.err.println("Error al listar pedidos: " + e.getMessage());
-            
         }
     }
 
@@ -210,9 +240,7 @@ public class MenuHandler {
             String totalTxt = scanner.nextLine().trim();
             if (!totalTxt.isEmpty()) p.setTotal(Double.parseDouble(totalTxt));
 
-            System.out.print("Nuevo estado (" + p.getEstado() + ", Enter para mantener): ");
-            String estadoTxt = scanner.nextLine().trim();
-            if (!estadoTxt.isEmpty()) p.setEstado(EstadoPedido.valueOf(estadoTxt.toUpperCase()));
+            p.setEstado(readEstadoPedidoOrKeep("Nuevo estado (" + p.getEstado() + ", Enter para mantener): ", p.getEstado()));
 
             pedidoService.actualizar(p);
             System.out.println("Pedido actualizado.");
@@ -236,18 +264,296 @@ public class MenuHandler {
         try {
             System.out.print("Numero de pedido: ");
             String numero = scanner.nextLine().trim();
-            Pedido p = pedidoService.getByNumero(numero);
+            Pedido p = pedidoService.getByNumeroWithEnvio(numero);
             if (p == null) {
                 System.out.println("No existe pedido con numero " + numero);
                 return;
             }
             System.out.println("ID=" + p.getId() + " | cliente=" + p.getClienteNombre() + " | estado=" + p.getEstado() +
                     " | total=" + p.getTotal() + " | envioId=" + (p.getEnvio() != null ? p.getEnvio().getId() : "NULL"));
+            Envio e = p.getEnvio();
+            if (e != null) {
+                System.out.println("   Envio: tracking=" + e.getTracking() +
+                        " | empresa=" + e.getEmpresa() +
+                        " | tipo=" + e.getTipo() +
+                        " | estado=" + e.getEstado() +
+                        " | despacho=" + e.getFechaDespacho() +
+                        " | estimada=" + e.getFechaEstimada());
+            }
+        } catch (Exception e) {
+            System.err.println("Error en busqueda: " + e.getMessage());
+        }
+    }
+
+    /** Búsqueda combinando cliente (prefijo), rango de fechas, estado y rango de total. */
+    public void buscarPedidosPorCriterios() {
+        try {
+            System.out.print("Cliente empieza con (Enter para omitir): ");
+            String cliente = scanner.nextLine().trim();
+            LocalDate desde = readDateOrNull("Fecha desde (YYYY-MM-DD, Enter para omitir): ");
+            LocalDate hasta = readDateOrNull("Fecha hasta (YYYY-MM-DD, Enter para omitir): ");
+            EstadoPedido estado = readEstadoPedidoOrKeep("Estado (NUEVO/FACTURADO/ENVIADO, Enter para omitir): ", null);
+            Double totalMin = readDoubleOrNull("Total minimo (Enter para omitir): ");
+            Double totalMax = readDoubleOrNull("Total maximo (Enter para omitir): ");
+
+            PedidoFiltro filtro = new PedidoFiltro()
+                    .clientePrefijo(cliente)
+                    .fecha(desde, hasta)
+                    .estado(estado)
+                    .total(totalMin, totalMax);
+            paginar((Pedido ultimo, int limit) -> pedidoService.buscar(filtro, ultimo, limit),
+                    p -> System.out.println("ID=" + p.getId() +
+                            " | nro=" + p.getNumero() +
+                            " | fecha=" + p.getFecha() +
+                            " | cliente=" + p.getClienteNombre() +
+                            " | estado=" + p.getEstado() +
+                            " | total=" + p.getTotal()),
+                    "No hay pedidos que cumplan los criterios.");
         } catch (Exception e) {
             System.err.println("Error en busqueda: " + e.getMessage());
         }
     }
 
+    /** Búsqueda "contiene" sobre clienteNombre con el índice de trigramas en memoria. */
+    public void buscarPedidosPorCliente() {
+        try {
+            System.out.print("Nombre de cliente contiene: ");
+            String texto = scanner.nextLine().trim();
+            List<Pedido> pedidos = pedidoService.buscarPorCliente(texto, PAGE_SIZE);
+            if (pedidos.isEmpty()) {
+                System.out.println("No hay pedidos de clientes que contengan: " + texto);
+                return;
+            }
+            for (Pedido p : pedidos) {
+                System.out.println("ID=" + p.getId() +
+                        " | nro=" + p.getNumero() +
+                        " | cliente=" + p.getClienteNombre() +
+                        " | estado=" + p.getEstado() +
+                        " | total=" + p.getTotal());
+            }
+            if (pedidos.size() == PAGE_SIZE) System.out.println("(se muestran los primeros " + PAGE_SIZE + ")");
+        } catch (Exception e) {
+            System.err.println("Error en busqueda: " + e.getMessage());
+        }
+    }
+
+    /* ===================== IMPORTACION / EXPORTACION ===================== */
+
+    /** Importación masiva desde un archivo CSV/NDJSON (ver BulkImporter para el formato). */
+    public void importarArchivo() {
+        try {
+            System.out.print("Importar (1) envios o (2) pedidos: ");
+            String opcion = scanner.nextLine().trim();
+            if (!opcion.equals("1") && !opcion.equals("2")) {
+                System.out.println("Opción no válida.");
+                return;
+            }
+            System.out.print("Ruta del archivo (.csv, .ndjson o .jsonl): ");
+            Path archivo = Path.of(scanner.nextLine().trim());
+            if (!Files.isReadable(archivo)) {
+                System.out.println("No se puede leer el archivo: " + archivo);
+                return;
+            }
+
+            boolean loadData = false;
+            if (ImportFormat.fromFileName(archivo) == ImportFormat.CSV) {
+                System.out.print("Usar LOAD DATA LOCAL INFILE (sin validaciones de servicio)? (s/n): ");
+                loadData = scanner.nextLine().trim().equalsIgnoreCase("s");
+            }
+
+            BulkImporter importer = new BulkImporter();
+            ImportReport reporte;
+            if (opcion.equals("1")) {
+                ImportTarget<Envio> destino = ImportTarget.envios(envioService);
+                reporte = loadData ? importer.importarLoadData(archivo, destino) : importer.importar(archivo, destino);
+            } else {
+                ImportTarget<Pedido> destino = ImportTarget.pedidos(pedidoService);
+                reporte = loadData ? importer.importarLoadData(archivo, destino) : importer.importar(archivo, destino);
+            }
+
+            System.out.println(reporte);
+            for (ImportReport.RejectedRow r : reporte.getRejectedDetail()) {
+                System.out.println("   Rechazada " + r);
+            }
+            if (reporte.getRejectedDetail().size() < reporte.getRowsRejected()) {
+                System.out.println("   (" + (reporte.getRowsRejected() - reporte.getRejectedDetail().size())
+                        + " rechazos más sin detalle)");
+            }
+        } catch (Exception e) {
+            System.err.println("Error en la importacion: " + e.getMessage());
+        }
+    }
+
+    /** Exportación masiva de las filas activas; el formato (y gzip) sale de la extensión. */
+    public void exportarArchivo() {
+        try {
+            System.out.print("Exportar (1) envios o (2) pedidos: ");
+            String opcion = scanner.nextLine().trim();
+            if (!opcion.equals("1") && !opcion.equals("2")) {
+                System.out.println("Opción no válida.");
+                return;
+            }
+            ExportSource<?> origen = opcion.equals("1")
+                    ? ExportSource.envios(envioService)
+                    : ExportSource.pedidos(pedidoService);
+
+            System.out.print("Ruta del archivo (.csv, .ndjson o .jsonl, con .gz para comprimir): ");
+            Path archivo = Path.of(scanner.nextLine().trim());
+            System.out.print("Columnas separadas por coma " + origen.getColumns() + " (Enter para todas): ");
+            String columnas = scanner.nextLine().trim();
+            List<String> proyeccion = columnas.isEmpty() ? null : Arrays.asList(columnas.split(","));
+
+            System.out.println(new BulkExporter().exportar(archivo, origen, proyeccion));
+        } catch (Exception e) {
+            System.err.println("Error en la exportacion: " + e.getMessage());
+        }
+    }
+
+    /* ===================== REPORTES ===================== */
+
+    /** Agregados calculados en la base, con rango de fechas opcional. */
+    public void mostrarReportes() {
+        try {
+            System.out.print("Reporte: (1) ingresos por estado, (2) costo de envio por empresa/tipo, (3) pedidos por dia: ");
+            String opcion = scanner.nextLine().trim();
+            if (!opcion.equals("1") && !opcion.equals("2") && !opcion.equals("3")) {
+                System.out.println("Opción no válida.");
+                return;
+            }
+            LocalDate desde = readDateOrNull("Desde (YYYY-MM-DD, Enter sin limite): ");
+            LocalDate hasta = readDateOrNull("Hasta (YYYY-MM-DD, Enter sin limite): ");
+
+            switch (opcion) {
+                case "1" -> reporteService.ingresosPorEstado(desde, hasta).forEach(r ->
+                        System.out.println(r.estado() + " | pedidos=" + r.pedidos() + " | total=" + r.total()));
+                case "2" -> reporteService.costoPorEmpresaTipo(desde, hasta).forEach(r ->
+                        System.out.println(r.empresa() + " / " + r.tipo() + " | envios=" + r.envios() +
+                                " | costo total=" + r.costoTotal() + " | promedio=" + r.costoPromedio()));
+                default -> reporteService.pedidosPorDia(desde, hasta).forEach(r ->
+                        System.out.println(r.dia() + " | pedidos=" + r.pedidos() + " | total=" + r.total()));
+            }
+        } catch (Exception e) {
+            System.err.println("Error al generar el reporte: " + e.getMessage());
+        }
+    }
+
+    /** Costo de envío agregado sobre la copia columnar en memoria (sin consultar la BD por fila). */
+    public void mostrarTableroEnvios() {
+        try {
+            ConsultaEnvios consulta = new ConsultaEnvios();
+            System.out.print("Ultimos N dias de despacho (Enter sin limite): ");
+            String dias = scanner.nextLine().trim();
+            if (!dias.isEmpty()) consulta.ultimosDias(Integer.parseInt(dias));
+            TipoEnvio tipo = readTipoEnvioOrKeep("Tipo (ESTANDAR/EXPRESS, Enter para todos): ", null);
+            if (tipo != null) consulta.tipo(tipo);
+            EstadoEnvio estado = readEstadoEnvioOrKeep(
+                    "Estado (EN_PREPARACION/EN_TRANSITO/ENTREGADO, Enter para todos): ", null);
+            if (estado != null) consulta.estado(estado);
+            System.out.print("Agrupar por (NINGUNA/EMPRESA/TIPO/ESTADO/EMPRESA_TIPO, Enter para EMPRESA): ");
+            String grupo = scanner.nextLine().trim();
+            EnvioSnapshot.Agrupacion agrupacion = grupo.isEmpty()
+                    ? EnvioSnapshot.Agrupacion.EMPRESA : EnvioSnapshot.Agrupacion.valueOf(grupo.toUpperCase());
+
+            List<EnvioSnapshot.Grupo> grupos = envioService.consultarSnapshot(consulta, agrupacion);
+            if (grupos.isEmpty()) {
+                System.out.println("No hay envios que cumplan los criterios.");
+                return;
+            }
+            grupos.forEach(g -> System.out.println(g.clave() + " | envios=" + g.envios() + " | costo total=" +
+                    g.costoTotal() + " | promedio=" + g.costoPromedio() + " | min=" + g.costoMin() + " | max=" + g.costoMax()));
+        } catch (NumberFormatException e) {
+            System.err.println("Numero invalido.");
+        } catch (Exception e) {
+            System.err.println("Error en el tablero de envios: " + e.getMessage());
+        }
+    }
+
+    /* ===================== MANTENIMIENTO ===================== */
+
+    /** Mueve al histórico las bajas lógicas más antiguas que la retención indicada. */
+    public void archivarEliminados() {
+        try {
+            System.out.print("Dias de retencion (Enter para " + ArchivoService.DEFAULT_RETENCION_DIAS + "): ");
+            String txt = scanner.nextLine().trim();
+            int dias = txt.isEmpty() ? ArchivoService.DEFAULT_RETENCION_DIAS : Integer.parseInt(txt);
+            System.out.println(archivoService.archivar(dias));
+        } catch (NumberFormatException e) {
+            System.err.println("Numero invalido.");
+        } catch (Exception e) {
+            System.err.println("Error en el archivado: " + e.getMessage());
+        }
+    }
+
+    /* ===================== DIAGNOSTICO ===================== */
+
+    /** Muestra latencias por operación (DAO/Service), estado del pool y de las cachés. */
+    public void mostrarDiagnostico() {
+        System.out.println("--- Operaciones (solo las invocadas) ---");
+        for (LatencyRecorder r : Metrics.all()) {
+            if (r.getCount() > 0) System.out.println(r);
+        }
+        System.out.println("--- Conexiones ---");
+        System.out.println(DatabaseConnection.getPoolStats());
+        System.out.println(DatabaseConnection.getRoutingStats());
+        for (PoolStats replica : DatabaseConnection.getReplicaStats()) System.out.println("Replica: " + replica);
+        System.out.println("--- Caches ---");
+        System.out.println("Envio por id:    " + envioService.getCacheStats());
+        System.out.println("Pedido por id:   " + pedidoService.getCacheStats());
+        System.out.println("Pedido x numero: " + pedidoService.getNumeroIndexStats());
+        System.out.println("Indice clientes: " + pedidoService.getIndiceClientesStats());
+        System.out.println("Snapshot envios: " + envioService.getSnapshotStats());
+
+        System.out.print("Reiniciar metricas de operaciones? (s/n): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("s")) {
+            Metrics.resetAll();
+            System.out.println("Metricas reiniciadas.");
+        }
+    }
+
+    /* ===================== Paginación ===================== */
+
+    /** Carga una página por clave: filas posteriores a ultimo (null = primera página), a lo sumo limit. */
+    @FunctionalInterface
+    private interface PageLoader<T> {
+        List<T> load(T ultimo, int limit) throws Exception;
+    }
+
+    /**
+     * Muestra resultados de a PAGE_SIZE filas (keyset pagination).
+     * Cada página cuesta lo mismo sin importar cuántas se recorrieron antes. Si el cursor
+     * devolviera una fila ya mostrada se corta con error en lugar de repetir páginas sin fin.
+     */
+    private <T extends Base> void paginar(PageLoader<T> loader, Consumer<T> printer, String mensajeVacio) throws Exception {
+        T ultimo = null;
+        int pagina = 1;
+        Set<Long> mostrados = new HashSet<>();
+        while (true) {
+            List<T> page = loader.load(ultimo, PAGE_SIZE);
+            if (page.isEmpty()) {
+                if (pagina == 1) System.out.println(mensajeVacio);
+                return;
+            }
+            for (T t : page) {
+                if (!mostrados.add(t.getId())) {
+                    throw new IllegalStateException("La paginación repitió el id " + t.getId());
+                }
+            }
+            System.out.println("--- Pagina " + pagina + " ---");
+            page.forEach(printer);
+            if (page.size() < PAGE_SIZE) return;
+
+            System.out.print("Enter para la siguiente pagina, 'q' para terminar: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) return;
+            ultimo = page.get(page.size() - 1);
+            pagina++;
+        }
+    }
+
+    /** afterId de getPage: id del último elemento mostrado (0 = primera página). */
+    private static long idDe(Base ultimo) {
+        return ultimo == null ? 0 : ultimo.getId();
+    }
+
     /* ===================== Helpers de entrada ===================== */
 
     private Envio crearEnvioInteractivo() {
@@ -277,6 +583,14 @@ public class MenuHandler {
         catch (DateTimeParseException e) { throw new IllegalArgumentException("Fecha invalida: " + txt); }
     }
 
+    private Double readDoubleOrNull(String prompt) {
+        System.out.print(prompt);
+        String txt = scanner.nextLine().trim();
+        if (txt.isEmpty()) return null;
+        try { return Double.parseDouble(txt); }
+        catch (NumberFormatException e) { throw new IllegalArgumentException("Numero invalido: " + txt); }
+    }
+
     private LocalDate readDateOrKeep(String prompt, LocalDate current) {
         System.out.print(prompt);
         String txt = scanner.nextLine().trim();
@@ -290,6 +604,12 @@ public class MenuHandler {
         return EstadoPedido.valueOf(scanner.nextLine().trim().toUpperCase());
     }
 
+    private EstadoPedido readEstadoPedidoOrKeep(String prompt, EstadoPedido current) {
+        System.out.print(prompt);
+        String v = scanner.nextLine().trim();
+        return v.isEmpty() ? current : EstadoPedido.valueOf(v.toUpperCase());
+    }
+
     private Empresa readEmpresa() {
         System.out.print("Empresa (ANDREANI/OCA/CORREO_ARG): ");
         return Empresa.valueOf(scanner.nextLine().trim().toUpperCase());
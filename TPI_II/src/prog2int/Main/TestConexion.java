@@ -16,6 +16,7 @@ public class TestConexion {
                 System.out.println("Base de datos: " + conn.getCatalog());
                 System.out.println("URL: " + metaData.getURL());
                 System.out.println("Driver: " + metaData.getDriverName() + " v" + metaData.getDriverVersion());
+                System.out.println(DatabaseConnection.getPoolStats());
             } else {
                 System.out.println("No se pudo establecer la conexion.");
             }
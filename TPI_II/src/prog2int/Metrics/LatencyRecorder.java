@@ -0,0 +1,219 @@
+package prog2int.Metrics;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Métricas de una operación: histograma de latencias, llamadas, errores y filas.
+ *
+ * Histograma log-lineal sin locks (estilo HdrHistogram simplificado):
+ * - 16 sub-buckets lineales por potencia de 2 -> error relativo máximo ~6%
+ * - Cubre de 0 ns a ~146 años; registrar es un índice + incremento atómico
+ * - No asigna memoria por llamada (contadores LongAdder y AtomicLongArray)
+ *
+ * Uso típico en un método de DAO/Service (time mide la llamada y registra éxito o error):
+ * <pre>
+ *   return RECORDER.time(() -> {
+ *       ... trabajo ...
+ *       return lista;
+ *   }, List::size);
+ * </pre>
+ * Las filas salen del resultado con una función sin captura (el lambda se cachea: no asigna).
+ * Para cursores, timeStream registra al cerrar el Stream con las filas recorridas.
+ */
+public final class LatencyRecorder implements LatencyRecorderMXBean {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * SUB_COUNT;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /** Trabajo medido que devuelve un resultado. */
+    @FunctionalInterface
+    public interface ThrowingSupplier<R, E extends Exception> {
+        R get() throws E;
+    }
+
+    /** Trabajo medido sin resultado. */
+    @FunctionalInterface
+    public interface ThrowingRunnable<E extends Exception> {
+        void run() throws E;
+    }
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    /** Ejecuta call y registra éxito con rows(resultado) filas, o error si lanza. */
+    public <R, E extends Exception> R time(ThrowingSupplier<R, E> call, ToLongFunction<? super R> rows) throws E {
+        long t = System.nanoTime();
+        R result;
+        try {
+            result = call.get();
+        } catch (Exception e) {
+            failure(t);
+            throw e;
+        }
+        success(t, rows.applyAsLong(result));
+        return result;
+    }
+
+    /** Ejecuta action y registra éxito con rowCount filas, o error si lanza. */
+    public <E extends Exception> void time(ThrowingRunnable<E> action, long rowCount) throws E {
+        long t = System.nanoTime();
+        try {
+            action.run();
+        } catch (Exception e) {
+            failure(t);
+            throw e;
+        }
+        success(t, rowCount);
+    }
+
+    /**
+     * Abre el Stream con open y lo devuelve contando los elementos recorridos: la llamada se
+     * registra al cerrarlo (apertura + recorrido, con esas filas). Si open lanza, error.
+     */
+    public <T, E extends Exception> Stream<T> timeStream(ThrowingSupplier<Stream<T>, E> open) throws E {
+        long t = System.nanoTime();
+        Stream<T> stream;
+        try {
+            stream = open.get();
+        } catch (Exception e) {
+            failure(t);
+            throw e;
+        }
+        Counting<T> counting = new Counting<>(stream.spliterator());
+        return StreamSupport.stream(counting, stream.isParallel())
+                .onClose(stream::close)
+                .onClose(() -> success(t, counting.seen));
+    }
+
+    /** Cuenta los elementos entregados; sin SIZED, así count() no puede saltear el recorrido. */
+    private static final class Counting<T> extends Spliterators.AbstractSpliterator<T> implements Consumer<T> {
+        private final Spliterator<T> source;
+        private Consumer<? super T> action;
+        long seen;
+
+        Counting(Spliterator<T> source) {
+            super(source.estimateSize(), source.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED));
+            this.source = source;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            this.action = action;
+            return source.tryAdvance(this);
+        }
+
+        @Override
+        public void accept(T element) {
+            seen++;
+            action.accept(element);
+        }
+    }
+
+    /** Registra una llamada exitosa iniciada en startNanos (System.nanoTime) que devolvió rowCount filas. */
+    public void success(long startNanos, long rowCount) {
+        record(System.nanoTime() - startNanos);
+        if (rowCount > 0) rows.add(rowCount);
+    }
+
+    /** Registra una llamada fallida iniciada en startNanos. */
+    public void failure(long startNanos) {
+        record(System.nanoTime() - startNanos);
+        errors.increment();
+    }
+
+    private void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.incrementAndGet(bucketIndex(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exp - SUB_BITS;
+        int sub = (int) (value >>> shift) - SUB_COUNT;
+        return SUB_COUNT + shift * SUB_COUNT + sub;
+    }
+
+    /** Límite superior (inclusive) de los valores que caen en el bucket. */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = (index - SUB_COUNT) / SUB_COUNT;
+        int sub = (index - SUB_COUNT) % SUB_COUNT;
+        return ((long) (SUB_COUNT + sub + 1) << shift) - 1;
+    }
+
+    /** Percentil q (0..1) en nanosegundos, con la precisión del bucket. */
+    public long percentileNanos(double q) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) return Math.min(bucketUpperBound(i), maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    @Override public String getName() { return name; }
+    @Override public long getCount() { return count.sum(); }
+    @Override public long getErrors() { return errors.sum(); }
+    @Override public long getRows() { return rows.sum(); }
+
+    @Override
+    public double getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1_000.0 / n;
+    }
+
+    @Override public double getP50Micros() { return percentileNanos(0.50) / 1_000.0; }
+    @Override public double getP99Micros() { return percentileNanos(0.99) / 1_000.0; }
+    @Override public double getP999Micros() { return percentileNanos(0.999) / 1_000.0; }
+    @Override public double getMaxMicros() { return maxNanos.get() / 1_000.0; }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        count.reset();
+        errors.reset();
+        rows.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-34s n=%-8d err=%-5d filas=%-9d prom=%9.1fus p50=%9.1fus p99=%9.1fus p999=%9.1fus max=%9.1fus",
+                name, getCount(), getErrors(), getRows(), getMeanMicros(),
+                getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
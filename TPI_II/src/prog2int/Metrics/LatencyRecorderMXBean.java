@@ -0,0 +1,18 @@
+package prog2int.Metrics;
+
+/**
+ * Vista JMX de las métricas de una operación (tiempos en microsegundos).
+ * ObjectName: prog2int:type=Operation,name=&lt;Clase.metodo&gt;
+ */
+public interface LatencyRecorderMXBean {
+    String getName();
+    long getCount();
+    long getErrors();
+    long getRows();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
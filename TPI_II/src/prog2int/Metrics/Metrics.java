@@ -0,0 +1,54 @@
+package prog2int.Metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registro global de métricas por operación (DAO y Service).
+ * - Cada clase obtiene sus LatencyRecorder una sola vez (campos static final),
+ *   así el camino caliente no hace búsquedas ni asignaciones
+ * - Cada recorder se publica como MXBean: prog2int:type=Operation,name=&lt;Clase.metodo&gt;
+ */
+public final class Metrics {
+
+    private static final ConcurrentMap<String, LatencyRecorder> RECORDERS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    /** Devuelve (o crea y registra en JMX) el recorder de la operación. */
+    public static LatencyRecorder recorder(String operation) {
+        return RECORDERS.computeIfAbsent(operation, Metrics::createAndRegister);
+    }
+
+    /** Recorders ordenados por nombre. */
+    public static List<LatencyRecorder> all() {
+        List<LatencyRecorder> list = new ArrayList<>(RECORDERS.values());
+        list.sort(Comparator.comparing(LatencyRecorder::getName));
+        return list;
+    }
+
+    public static void resetAll() {
+        RECORDERS.values().forEach(LatencyRecorder::reset);
+    }
+
+    private static LatencyRecorder createAndRegister(String operation) {
+        LatencyRecorder recorder = new LatencyRecorder(operation);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("prog2int:type=Operation,name=" + ObjectName.quote(operation));
+            if (!server.isRegistered(name)) server.registerMBean(recorder, name);
+        } catch (JMException | RuntimeException e) {
+            System.err.println("No se pudo registrar la metrica " + operation + " en JMX: " + e.getMessage());
+        }
+        return recorder;
+    }
+}
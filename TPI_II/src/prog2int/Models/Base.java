@@ -1,17 +1,24 @@
 package prog2int.Models;
 
+import java.time.Instant;
+
 /**
  * Clase base abstracta para todas las entidades del sistema.
  * Implementa el patrón de soft delete mediante el campo 'eliminado'.
  *
- * - Proporcionar campos comunes a todas las entidades (id, eliminado)
+ * - Proporcionar campos comunes a todas las entidades (id, eliminado, version)
  * - Soportar eliminación lógica en lugar de eliminación física
+ * - version: contador de modificaciones para el control de concurrencia optimista
+ *   (los UPDATE solo aplican si la fila sigue en la versión leída)
+ * - updatedAt: momento de la última modificación (alta, actualización o baja), lo mantiene la BD
  
  */
 public abstract class Base {
     
     private long id;
     private boolean eliminado;
+    private long version;
+    private Instant updatedAt;
 
     /**
      * Constructor completo con todos los campos.
@@ -21,8 +28,15 @@ public abstract class Base {
      * @param eliminado Estado de eliminación
      */
     protected Base(long id, boolean eliminado) {
+        this(id, eliminado, 0, null);
+    }
+
+    /** Constructor completo incluyendo versión y última modificación (constructores de copia). */
+    protected Base(long id, boolean eliminado, long version, Instant updatedAt) {
         this.id = id;
         this.eliminado = eliminado;
+        this.version = version;
+        this.updatedAt = updatedAt;
     }
 
     /**
@@ -49,4 +63,25 @@ public abstract class Base {
     public void setEliminado(boolean eliminado) {
         this.eliminado = eliminado;
     }
+
+    /** Versión leída de la BD (0 para entidades nuevas); la incrementa cada UPDATE. */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Última modificación según la BD (null en entidades nuevas). Se conoce al leer la fila:
+     * insertar/actualizar no la refrescan en memoria.
+     */
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
@@ -10,6 +10,8 @@ import java.util.Objects;
  * Campos:
  * - id: BIGINT AUTO_INCREMENT PRIMARY KEY (heredado de Base)
  * - eliminado: BOOLEAN DEFAULT FALSE (heredado de Base)
+ * - version: INT UNSIGNED DEFAULT 0 (heredado de Base)
+ * - updatedAt: DATETIME(3), última modificación (heredado de Base)
  * - tracking: VARCHAR(40) UNIQUE
  * - empresa: ENUM('ANDREANI','OCA','CORREO_ARG') NOT NULL
  * - tipo: ENUM('ESTANDAR','EXPRES') NOT NULL
@@ -44,6 +46,18 @@ public class Envio extends Base {
     /** Constructor por defecto (entidad nueva sin ID). */
     public Envio() { super(); }
 
+    /** Constructor de copia (la caché de servicio no comparte instancias mutables). */
+    public Envio(Envio other) {
+        super(other.getId(), other.isEliminado(), other.getVersion(), other.getUpdatedAt());
+        this.tracking = other.tracking;
+        this.empresa = other.empresa;
+        this.tipo = other.tipo;
+        this.costo = other.costo;
+        this.fechaDespacho = other.fechaDespacho;
+        this.fechaEstimada = other.fechaEstimada;
+        this.estado = other.estado;
+    }
+
     public String getTracking() { return tracking; }
     public void setTracking(String tracking) { this.tracking = tracking; }
 
@@ -77,6 +91,8 @@ public class Envio extends Base {
                 ", fechaEstimada=" + fechaEstimada +
                 ", estado=" + estado +
                 ", eliminado=" + isEliminado() +
+                ", version=" + getVersion() +
+                ", updatedAt=" + getUpdatedAt() +
                 '}';
     }
 
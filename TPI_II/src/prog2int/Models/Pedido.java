@@ -11,6 +11,8 @@ import java.util.Objects;
  * Campos:
  * - id: BIGINT AUTO_INCREMENT PRIMARY KEY (heredado de Base)
  * - eliminado: BOOLEAN DEFAULT FALSE (heredado de Base)
+ * - version: INT UNSIGNED DEFAULT 0 (heredado de Base)
+ * - updatedAt: DATETIME(3), última modificación (heredado de Base)
  * - numero: VARCHAR(20) NOT NULL UNIQUE
  * - fecha: DATE
  * - clienteNombre: VARCHAR(120)
@@ -40,6 +42,17 @@ public class Pedido extends Base {
     /** Constructor por defecto (entidad nueva sin ID). */
     public Pedido() { super(); }
 
+    /** Constructor de copia (la caché de servicio no comparte instancias mutables). */
+    public Pedido(Pedido other) {
+        super(other.getId(), other.isEliminado(), other.getVersion(), other.getUpdatedAt());
+        this.numero = other.numero;
+        this.fecha = other.fecha;
+        this.clienteNombre = other.clienteNombre;
+        this.total = other.total;
+        this.estado = other.estado;
+        this.envio = other.envio != null ? new Envio(other.envio) : null;
+    }
+
     public String getNumero() { return numero; }
     public void setNumero(String numero) { this.numero = numero; }
 
@@ -69,6 +82,8 @@ public class Pedido extends Base {
                 ", estado=" + estado +
                 ", envio=" + (envio != null ? envio.getId() : null) +
                 ", eliminado=" + isEliminado() +
+                ", version=" + getVersion() +
+                ", updatedAt=" + getUpdatedAt() +
                 '}';
     }
 
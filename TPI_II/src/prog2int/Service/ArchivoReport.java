@@ -0,0 +1,36 @@
+package prog2int.Service;
+
+/**
+ * Resultado inmutable de una corrida de archivado.
+ */
+public final class ArchivoReport {
+
+    private final int diasRetencion;
+    private final long pedidos;
+    private final long envios;
+    private final int lotes;
+    private final long elapsedNanos;
+
+    public ArchivoReport(int diasRetencion, long pedidos, long envios, int lotes, long elapsedNanos) {
+        this.diasRetencion = diasRetencion;
+        this.pedidos = pedidos;
+        this.envios = envios;
+        this.lotes = lotes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getDiasRetencion() { return diasRetencion; }
+    public long getPedidos() { return pedidos; }
+    public long getEnvios() { return envios; }
+    public int getLotes() { return lotes; }
+
+    public double getElapsedSeconds() {
+        return elapsedNanos / 1_000_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Archivado{retencion=%d dias, pedidos=%d, envios=%d, lotes=%d, duracion=%.3fs}",
+                diasRetencion, pedidos, envios, lotes, getElapsedSeconds());
+    }
+}
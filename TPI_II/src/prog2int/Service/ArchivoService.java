@@ -0,0 +1,72 @@
+package prog2int.Service;
+
+import prog2int.Dao.ArchivoDAO;
+
+/**
+ * Archivado de bajas lógicas: mueve a Envio_hist / Pedido_hist las filas eliminadas hace más de
+ * diasRetencion días, para que las tablas vivas (y sus índices) solo crezcan con filas activas.
+ *
+ * - Lotes acotados: cada lote es una transacción corta de a lo sumo "lote" filas
+ * - Pausa entre lotes para no competir con el tráfico normal (locks, undo, replicación)
+ * - Primero pedidos y después envíos (la FK Pedido.envio impide lo inverso)
+ *
+ * Configuración (propiedad del sistema):
+ * - archivo.retencionDias=90
+ * - archivo.lote=500
+ * - archivo.pausaMs=50
+ */
+public class ArchivoService {
+
+    public static final int DEFAULT_RETENCION_DIAS = Integer.getInteger("archivo.retencionDias", 90);
+    public static final int DEFAULT_LOTE = Integer.getInteger("archivo.lote", 500);
+    public static final long DEFAULT_PAUSA_MS = Long.getLong("archivo.pausaMs", 50L);
+
+    private final ArchivoDAO archivoDAO;
+    private final int lote;
+    private final long pausaMs;
+
+    public ArchivoService(ArchivoDAO archivoDAO) {
+        this(archivoDAO, DEFAULT_LOTE, DEFAULT_PAUSA_MS);
+    }
+
+    public ArchivoService(ArchivoDAO archivoDAO, int lote, long pausaMs) {
+        if (archivoDAO == null) throw new IllegalArgumentException("ArchivoDAO no puede ser null");
+        if (lote <= 0) throw new IllegalArgumentException("El tamaño de lote debe ser > 0");
+        if (pausaMs < 0) throw new IllegalArgumentException("La pausa entre lotes no puede ser negativa");
+        this.archivoDAO = archivoDAO;
+        this.lote = lote;
+        this.pausaMs = pausaMs;
+    }
+
+    public ArchivoReport archivar() throws Exception {
+        return archivar(DEFAULT_RETENCION_DIAS);
+    }
+
+    /** Archiva todas las bajas con más de diasRetencion días (0 = todas las bajas). */
+    public ArchivoReport archivar(int diasRetencion) throws Exception {
+        if (diasRetencion < 0) throw new IllegalArgumentException("Los dias de retencion no pueden ser negativos");
+        long start = System.nanoTime();
+        int[] lotes = {0};
+        long pedidos = archivarTabla(() -> archivoDAO.archivarPedidos(diasRetencion, lote), lotes);
+        long envios = archivarTabla(() -> archivoDAO.archivarEnvios(diasRetencion, lote), lotes);
+        return new ArchivoReport(diasRetencion, pedidos, envios, lotes[0], System.nanoTime() - start);
+    }
+
+    /** Un lote de una tabla; devuelve las filas movidas. */
+    @FunctionalInterface
+    private interface Lote {
+        int run() throws Exception;
+    }
+
+    /** Repite lotes hasta que uno venga incompleto (no quedan candidatas), con pausa entre lotes. */
+    private long archivarTabla(Lote loteTabla, int[] lotes) throws Exception {
+        long total = 0;
+        while (true) {
+            int movidas = loteTabla.run();
+            lotes[0]++;
+            total += movidas;
+            if (movidas < lote) return total;
+            if (pausaMs > 0) Thread.sleep(pausaMs);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package prog2int.Service;
+
+import prog2int.Config.DatabaseConnection;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecutor de las fachadas asíncronas de los servicios.
+ * - Un hilo virtual por tarea: miles de operaciones en vuelo sin un hilo de plataforma por cada una
+ * - Límite de concurrencia (Semaphore) atado al presupuesto de conexiones: las tareas que
+ *   exceden el límite esperan en su propio hilo virtual, no en la cola del pool
+ *
+ * Configuración (propiedad del sistema):
+ * - async.maxConcurrency (por defecto db.pool.max, el tamaño máximo del pool)
+ */
+public final class AsyncExecutor implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /** Límite = async.maxConcurrency o, si no está definido, el tamaño máximo del pool. */
+    public AsyncExecutor() {
+        this(Integer.getInteger("async.maxConcurrency", DatabaseConnection.getPoolStats().getMaxSize()));
+    }
+
+    public AsyncExecutor(int maxConcurrency) {
+        if (maxConcurrency <= 0) throw new IllegalArgumentException("La concurrencia máxima debe ser > 0");
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("svc-async-", 0).factory());
+    }
+
+    /**
+     * Ejecuta la tarea en un hilo virtual respetando el límite de concurrencia.
+     * Las excepciones de la tarea completan el futuro excepcionalmente.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        if (task == null) throw new IllegalArgumentException("La tarea no puede ser null");
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+                return;
+            }
+            inFlight.incrementAndGet();
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                inFlight.decrementAndGet();
+                permits.release();
+            }
+        });
+        return future;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /** Tareas ejecutándose en este momento (con permiso). */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /** Tareas esperando un permiso. */
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    /** Deja de aceptar tareas y espera a que terminen las que están en curso. */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
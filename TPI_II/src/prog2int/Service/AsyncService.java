@@ -0,0 +1,44 @@
+package prog2int.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fachada asíncrona de un GenericService: cada operación corre en un hilo virtual del
+ * AsyncExecutor y devuelve un CompletableFuture. Las reglas de negocio, la caché y las
+ * métricas siguen siendo las del servicio envuelto.
+ *
+ * Con réplicas de lectura, read-your-writes es por hilo (ver DatabaseConnection): un getById
+ * encadenado a un insertar corre en otro hilo virtual y puede no ver la escritura si no está
+ * en caché. Para leer lo propio, encadenar sobre el resultado de la escritura.
+ *
+ * @param <T> tipo de entidad
+ */
+public class AsyncService<T> {
+
+    protected final GenericService<T> service;
+    protected final AsyncExecutor executor;
+
+    public AsyncService(GenericService<T> service, AsyncExecutor executor) {
+        if (service == null) throw new IllegalArgumentException("El servicio no puede ser null");
+        if (executor == null) throw new IllegalArgumentException("El ejecutor no puede ser null");
+        this.service = service;
+        this.executor = executor;
+    }
+
+    /** Inserta la entidad; el futuro devuelve la misma instancia con el ID asignado. */
+    public CompletableFuture<T> insertar(T entidad) {
+        return executor.submit(() -> {
+            service.insertar(entidad);
+            return entidad;
+        });
+    }
+
+    public CompletableFuture<T> getById(int id) {
+        return executor.submit(() -> service.getById(id));
+    }
+
+    public CompletableFuture<List<T>> getAll() {
+        return executor.submit(service::getAll);
+    }
+}
@@ -0,0 +1,77 @@
+package prog2int.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de Strings (thread-safe, sin borrado).
+ * - mightContain == false: el valor NUNCA fue agregado (sin falsos negativos)
+ * - mightContain == true: probablemente fue agregado (falsos positivos ~ fpp)
+ *
+ * Usa doble hashing (Kirsch-Mitzenmacher) sobre dos hashes de 64 bits del texto UTF-8.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions cantidad de valores esperados
+     * @param fpp                tasa de falsos positivos deseada (0 < fpp < 1)
+     */
+    public BloomFilter(long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0) throw new IllegalArgumentException("expectedInsertions debe ser > 0");
+        if (fpp <= 0 || fpp >= 1) throw new IllegalArgumentException("fpp debe estar entre 0 y 1");
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, m);
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    public void add(String value) {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        long h1 = hash(data, 0x9E3779B97F4A7C15L);
+        long h2 = hash(data, 0xC2B2AE3D27D4EB4FL) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(String value) {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        long h1 = hash(data, 0x9E3779B97F4A7C15L);
+        long h2 = hash(data, 0xC2B2AE3D27D4EB4FL) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public long getBitCount() { return bitCount; }
+    public int getHashCount() { return hashCount; }
+
+    /** FNV-1a de 64 bits con semilla + mezcla final (fmix64 de MurmurHash3). */
+    private static long hash(byte[] data, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (byte b : data) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
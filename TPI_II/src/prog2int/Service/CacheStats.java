@@ -0,0 +1,45 @@
+package prog2int.Service;
+
+/**
+ * Snapshot inmutable de los contadores de una EntityCache o IdCache.
+ */
+public final class CacheStats {
+
+    private final int size;
+    private final int maxSize;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+
+    public CacheStats(int size, int maxSize, long hits, long misses,
+                      long evictions, long expirations, long invalidations) {
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+    }
+
+    public int getSize() { return size; }
+    public int getMaxSize() { return maxSize; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    public long getExpirations() { return expirations; }
+    public long getInvalidations() { return invalidations; }
+
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cache{tam=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, desalojos=%d, vencidas=%d, invalidadas=%d}",
+                size, maxSize, hits, misses, getHitRate() * 100, evictions, expirations, invalidations);
+    }
+}
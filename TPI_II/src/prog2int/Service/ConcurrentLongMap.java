@@ -0,0 +1,155 @@
+package prog2int.Service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * Variante thread-safe de LongMap: la clave elige una de N franjas (stripes), cada una un
+ * LongMap protegido por su propio monitor. Operaciones sobre claves de franjas distintas no
+ * compiten entre sí; dentro de una franja las secciones críticas son de unos pocos accesos a
+ * arreglos, sin asignar memoria salvo al redimensionar.
+ *
+ * La franja se toma de los bits altos del hash y el slot dentro de la franja de los bajos,
+ * así ambos quedan independientes.
+ *
+ * size() es exacto entre operaciones; forEach recorre franja por franja (cada una consistente,
+ * no el conjunto).
+ *
+ * @param <V> tipo de valor
+ */
+public class ConcurrentLongMap<V> {
+
+    /** Franjas por defecto: potencia de dos >= 4 x procesadores, máximo 256. */
+    public static final int DEFAULT_STRIPES =
+            Math.min(256, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4) - 1) << 1);
+
+    private final LongMap<V>[] stripes;
+    private final int shift;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public ConcurrentLongMap() {
+        this(0, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param expected entradas esperadas en total (repartidas entre las franjas)
+     * @param stripes  cantidad de franjas (potencia de dos)
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongMap(int expected, int stripes) {
+        if (expected < 0) throw new IllegalArgumentException("expected no puede ser negativo");
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1)
+            throw new IllegalArgumentException("stripes debe ser una potencia de dos > 0");
+        this.stripes = (LongMap<V>[]) new LongMap<?>[stripes];
+        this.shift = 64 - Integer.numberOfTrailingZeros(stripes);
+        int perStripe = (int) Math.min(Integer.MAX_VALUE, (expected + (long) stripes - 1) / stripes);
+        for (int i = 0; i < stripes; i++) this.stripes[i] = new LongMap<>(perStripe);
+    }
+
+    public V get(long key) {
+        LongMap<V> s = stripe(key);
+        synchronized (s) {
+            return s.get(key);
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /** Asocia value a key; devuelve el valor anterior o null. */
+    public V put(long key, V value) {
+        LongMap<V> s = stripe(key);
+        synchronized (s) {
+            V old = s.put(key, value);
+            if (old == null) size.incrementAndGet();
+            return old;
+        }
+    }
+
+    /** Asocia value solo si key no tiene valor (atómico); devuelve el existente o null si se insertó. */
+    public V putIfAbsent(long key, V value) {
+        LongMap<V> s = stripe(key);
+        synchronized (s) {
+            V current = s.putIfAbsent(key, value);
+            if (current == null) size.incrementAndGet();
+            return current;
+        }
+    }
+
+    public V remove(long key) {
+        LongMap<V> s = stripe(key);
+        synchronized (s) {
+            V old = s.remove(key);
+            if (old != null) size.decrementAndGet();
+            return old;
+        }
+    }
+
+    /** Quita key solo si su valor es (por identidad) value (atómico). */
+    public boolean remove(long key, V value) {
+        LongMap<V> s = stripe(key);
+        synchronized (s) {
+            boolean removed = s.remove(key, value);
+            if (removed) size.decrementAndGet();
+            return removed;
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        for (LongMap<V> s : stripes) {
+            synchronized (s) {
+                size.addAndGet(-s.size());
+                s.clear();
+            }
+        }
+    }
+
+    /** Recorre las entradas con el monitor de cada franja tomado (visitor no debe bloquear). */
+    public void forEach(LongMap.Visitor<? super V> visitor) {
+        for (LongMap<V> s : stripes) {
+            synchronized (s) {
+                s.forEach(visitor);
+            }
+        }
+    }
+
+    /**
+     * Desalojo aproximado para cachés acotadas (ver LongMap.evictSampled): prueba en la franja de
+     * near y, si no tiene otra entrada, en las siguientes. Devuelve true si quitó una entrada.
+     */
+    boolean evictSampled(long near, int sample, ToLongFunction<? super V> orden) {
+        int first = stripeIndex(near);
+        for (int k = 0; k < stripes.length; k++) {
+            LongMap<V> s = stripes[(first + k) & (stripes.length - 1)];
+            synchronized (s) {
+                if (s.evictSampled(near, sample, orden)) {
+                    size.decrementAndGet();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentLongMap{size=" + size() + ", franjas=" + stripes.length + "}";
+    }
+
+    private LongMap<V> stripe(long key) {
+        return stripes[stripeIndex(key)];
+    }
+
+    private int stripeIndex(long key) {
+        return shift == 64 ? 0 : (int) (LongMap.mix(key) >>> shift);
+    }
+}
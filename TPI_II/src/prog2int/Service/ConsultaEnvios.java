@@ -0,0 +1,89 @@
+package prog2int.Service;
+
+import prog2int.Models.Empresa;
+import prog2int.Models.EstadoEnvio;
+import prog2int.Models.TipoEnvio;
+
+import java.time.LocalDate;
+
+/**
+ * Filtro de una consulta sobre EnvioSnapshot. Criterios opcionales (sin llamar = sin filtro),
+ * combinados con AND; los enums admiten varios valores (OR entre ellos).
+ *
+ * Se compila a comparaciones primitivas: máscara de bits por ordinal para los enums y rangos
+ * de epoch-day / double para fechas y costo. Un rango de fechas excluye los envíos sin esa fecha.
+ */
+public final class ConsultaEnvios {
+
+    /** Bits de ordinales aceptados (-1 = todos). */
+    int empresas = -1;
+    int tipos = -1;
+    int estados = -1;
+    int despachoDesde = Integer.MIN_VALUE;
+    int despachoHasta = Integer.MAX_VALUE;
+    int estimadaDesde = Integer.MIN_VALUE;
+    int estimadaHasta = Integer.MAX_VALUE;
+    double costoMin = Double.NEGATIVE_INFINITY;
+    double costoMax = Double.POSITIVE_INFINITY;
+
+    public ConsultaEnvios empresa(Empresa... valores) {
+        empresas = mask(valores);
+        return this;
+    }
+
+    public ConsultaEnvios tipo(TipoEnvio... valores) {
+        tipos = mask(valores);
+        return this;
+    }
+
+    public ConsultaEnvios estado(EstadoEnvio... valores) {
+        estados = mask(valores);
+        return this;
+    }
+
+    /** fechaDespacho entre desde y hasta, ambos inclusive (null = sin límite). */
+    public ConsultaEnvios despacho(LocalDate desde, LocalDate hasta) {
+        checkRango(desde, hasta);
+        despachoDesde = desde == null ? Integer.MIN_VALUE : (int) desde.toEpochDay();
+        despachoHasta = hasta == null ? Integer.MAX_VALUE : (int) hasta.toEpochDay();
+        return this;
+    }
+
+    /** fechaEstimada entre desde y hasta, ambos inclusive (null = sin límite). */
+    public ConsultaEnvios estimada(LocalDate desde, LocalDate hasta) {
+        checkRango(desde, hasta);
+        estimadaDesde = desde == null ? Integer.MIN_VALUE : (int) desde.toEpochDay();
+        estimadaHasta = hasta == null ? Integer.MAX_VALUE : (int) hasta.toEpochDay();
+        return this;
+    }
+
+    /** fechaDespacho en los últimos n días (incluido hoy). */
+    public ConsultaEnvios ultimosDias(int n) {
+        if (n <= 0) throw new IllegalArgumentException("La cantidad de dias debe ser > 0");
+        LocalDate hoy = LocalDate.now();
+        return despacho(hoy.minusDays(n - 1L), hoy);
+    }
+
+    /** costo entre min y max, ambos inclusive (null = sin límite). */
+    public ConsultaEnvios costo(Double min, Double max) {
+        costoMin = min == null ? Double.NEGATIVE_INFINITY : min;
+        costoMax = max == null ? Double.POSITIVE_INFINITY : max;
+        return this;
+    }
+
+    private static void checkRango(LocalDate desde, LocalDate hasta) {
+        if (desde != null && hasta != null && hasta.isBefore(desde))
+            throw new IllegalArgumentException("La fecha hasta no puede ser anterior a la fecha desde");
+    }
+
+    @SafeVarargs
+    private static <E extends Enum<E>> int mask(E... valores) {
+        if (valores == null || valores.length == 0) return -1;
+        int m = 0;
+        for (E v : valores) {
+            if (v == null) throw new IllegalArgumentException("Los valores del filtro no pueden ser null");
+            m |= 1 << v.ordinal();
+        }
+        return m;
+    }
+}
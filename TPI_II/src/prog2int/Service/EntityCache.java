@@ -0,0 +1,201 @@
+package prog2int.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché read-through acotada para entidades, usada por los servicios delante del DAO.
+ * - Desalojo LRU por tamaño (LinkedHashMap en orden de acceso)
+ * - Expiración por TTL desde la carga
+ * - Guarda y devuelve copias: el llamador puede modificar la entidad sin ensuciar la caché
+ * - No cachea resultados null (una entidad inexistente se vuelve a consultar)
+ *
+ * Thread-safe mediante un ReentrantLock (no synchronized: los servicios corren también en hilos
+ * virtuales, ver AsyncExecutor); la carga desde el DAO se hace fuera del lock.
+ *
+ * Configuración por defecto (propiedades del sistema):
+ * - cache.maxSize=1000 (0 deshabilita la caché)
+ * - cache.ttlMs=60000 (0 = sin expiración)
+ *
+ * @param <K> tipo de clave (id o campo único de negocio)
+ * @param <V> tipo de entidad
+ */
+public class EntityCache<K, V> {
+
+    /** Carga la entidad desde la fuente (DAO) ante un miss. */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws Exception;
+    }
+
+    public static final int DEFAULT_MAX_SIZE = Integer.getInteger("cache.maxSize", 1000);
+    public static final long DEFAULT_TTL_MILLIS = Long.getLong("cache.ttlMs", 60_000L);
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final UnaryOperator<V> copier;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+    /** Se incrementa en cada invalidación; evita cachear una carga que compitió con una escritura. */
+    private long epoch;
+
+    /**
+     * @param maxSize   máximo de entradas (0 deshabilita la caché)
+     * @param ttlMillis tiempo de vida de cada entrada (0 = sin expiración)
+     * @param copier    copia defensiva de la entidad (ej. Pedido::new)
+     */
+    public EntityCache(int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+        if (maxSize < 0) throw new IllegalArgumentException("maxSize no puede ser negativo");
+        if (ttlMillis < 0) throw new IllegalArgumentException("ttlMillis no puede ser negativo");
+        if (copier == null) throw new IllegalArgumentException("copier no puede ser null");
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.copier = copier;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** Devuelve una copia de la entidad cacheada o la carga con loader (y la cachea si no es null). */
+    public V getOrLoad(K key, Loader<V> loader) throws Exception {
+        long stamp;
+        lock.lock();
+        try {
+            V cached = get(key);
+            if (cached != null) return cached;
+            stamp = epoch;
+        } finally {
+            lock.unlock();
+        }
+        V loaded = loader.load();
+        lock.lock();
+        try {
+            if (loaded != null && stamp == epoch) put(key, loaded);
+        } finally {
+            lock.unlock();
+        }
+        return loaded;
+    }
+
+    /** Copia de la entidad cacheada o null si no está (o venció). Cuenta hit/miss. */
+    public V get(K key) {
+        lock.lock();
+        try {
+            Entry<V> e = entries.get(key);
+            if (e == null) {
+                misses++;
+                return null;
+            }
+            if (isExpired(e, System.currentTimeMillis())) {
+                entries.remove(key);
+                expirations++;
+                misses++;
+                return null;
+            }
+            hits++;
+            return copier.apply(e.value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Consulta sin contar hit/miss ni alterar el orden LRU (útil para invalidaciones). */
+    public V peek(K key) {
+        lock.lock();
+        try {
+            Entry<V> e = entries.get(key);
+            return e == null || isExpired(e, System.currentTimeMillis()) ? null : copier.apply(e.value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            if (maxSize == 0 || value == null) return;
+            entries.put(key, new Entry<>(copier.apply(value), System.currentTimeMillis()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Elimina la entrada de key (si existe). */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            epoch++;
+            if (key != null && entries.remove(key) != null) invalidations++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            epoch++;
+            invalidations += entries.size();
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Purga las entradas vencidas (las vencidas también se descartan al leerlas). */
+    public void purgeExpired() {
+        lock.lock();
+        try {
+            if (ttlMillis == 0) return;
+            long now = System.currentTimeMillis();
+            Iterator<Entry<V>> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (isExpired(it.next(), now)) {
+                    it.remove();
+                    expirations++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CacheStats getStats() {
+        lock.lock();
+        try {
+            return new CacheStats(entries.size(), maxSize, hits, misses, evictions, expirations, invalidations);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isExpired(Entry<V> e, long now) {
+        return ttlMillis > 0 && now - e.loadedAt >= ttlMillis;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -1,57 +1,257 @@
 package prog2int.Service;
 
-import prog2int.Dao.GenericDAO;
+import prog2int.Dao.EnvioDAO;
+import prog2int.Dao.ConflictoVersionException;
+import prog2int.Dao.ResultadoTransicion;
+import prog2int.Metrics.LatencyRecorder;
+import prog2int.Metrics.Metrics;
 import prog2int.Models.Empresa;
 import prog2int.Models.Envio;
 import prog2int.Models.EstadoEnvio;
 import prog2int.Models.TipoEnvio;
 
+import java.sql.Connection;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Servicio de negocio para Envio.
  * Responsabilidades:
  * - Validar campos obligatorios y reglas de consistencia antes de persistir
  * - Delegar a DAO las operaciones CRUD
+ * - Cachear getById (IdCache); actualizar/eliminar invalidan la entrada
+ * - Opcional: copia columnar en memoria (EnvioSnapshot) para consultas de costo agregadas;
+ *   actualizar/eliminar/actualizarEstado la mantienen al día
  */
 public class EnvioServiceImpl implements GenericService<Envio> {
 
-    private final GenericDAO<Envio> envioDAO;
+    private final EnvioDAO envioDAO;
+    private final IdCache<Envio> cache =
+            new IdCache<>(EntityCache.DEFAULT_MAX_SIZE, EntityCache.DEFAULT_TTL_MILLIS, Envio::new);
 
-    public EnvioServiceImpl(GenericDAO<Envio> envioDAO) {
+    /** Copia columnar de envíos (null = sin construir). Ver habilitarSnapshot. */
+    private volatile EnvioSnapshot snapshot;
+    /** Una carga del snapshot a la vez; la carga hace I/O y puede correr en un hilo virtual. */
+    private final ReentrantLock cargaSnapshot = new ReentrantLock();
+
+    /* ================== Métricas ================== */
+    private static final LatencyRecorder M_INSERTAR = Metrics.recorder("EnvioService.insertar");
+    private static final LatencyRecorder M_INSERTAR_TX = Metrics.recorder("EnvioService.insertarTx");
+    private static final LatencyRecorder M_INSERTAR_LOTE = Metrics.recorder("EnvioService.insertarLote");
+    private static final LatencyRecorder M_ACTUALIZAR = Metrics.recorder("EnvioService.actualizar");
+    private static final LatencyRecorder M_ACTUALIZAR_CON_REINTENTO = Metrics.recorder("EnvioService.actualizarConReintento");
+    private static final LatencyRecorder M_ACTUALIZAR_ESTADO = Metrics.recorder("EnvioService.actualizarEstado");
+    private static final LatencyRecorder M_ELIMINAR = Metrics.recorder("EnvioService.eliminar");
+    private static final LatencyRecorder M_GET_BY_ID = Metrics.recorder("EnvioService.getById");
+    private static final LatencyRecorder M_GET_ALL = Metrics.recorder("EnvioService.getAll");
+    private static final LatencyRecorder M_GET_PAGE = Metrics.recorder("EnvioService.getPage");
+    private static final LatencyRecorder M_STREAM = Metrics.recorder("EnvioService.stream");
+    private static final LatencyRecorder M_CONSULTAR_SNAPSHOT = Metrics.recorder("EnvioService.consultarSnapshot");
+
+    public EnvioServiceImpl(EnvioDAO envioDAO) {
         if (envioDAO == null) throw new IllegalArgumentException("EnvioDAO no puede ser null");
         this.envioDAO = envioDAO;
     }
 
     @Override
     public void insertar(Envio envio) throws Exception {
+        M_INSERTAR.time(() -> {
+            validateEnvio(envio);
+            envioDAO.insertar(envio);
+        }, 1);
+    }
+
+    @Override
+    public void validar(Envio envio) {
         validateEnvio(envio);
-        envioDAO.insertar(envio);
+    }
+
+    @Override
+    public void insertarTx(Envio envio, Connection conn) throws Exception {
+        M_INSERTAR_TX.time(() -> {
+            validateEnvio(envio);
+            envioDAO.insertTx(envio, conn);
+        }, 1);
+    }
+
+    @Override
+    public void insertarLote(List<Envio> envios, Connection conn) throws Exception {
+        M_INSERTAR_LOTE.time(() -> {
+            if (envios == null || envios.isEmpty()) return;
+            for (Envio envio : envios) validateEnvio(envio);
+            envioDAO.insertAllTx(envios, conn);
+        }, envios == null ? 0 : envios.size());
     }
 
     @Override
     public void actualizar(Envio envio) throws Exception {
+        M_ACTUALIZAR.time(() -> doActualizar(envio), 1);
+    }
+
+    private void doActualizar(Envio envio) throws Exception {
         validateEnvio(envio);
         if (envio.getId() <= 0) throw new IllegalArgumentException("El ID de Envio debe ser > 0 para actualizar");
-        envioDAO.actualizar(envio);
+        try {
+            envioDAO.actualizar(envio);
+        } finally {
+            cache.invalidate(envio.getId());
+        }
+        EnvioSnapshot snap = snapshot;
+        if (snap != null) snap.aplicar(envio);
+    }
+
+    /**
+     * Actualización con reintento ante conflicto de versión: lee Envio id de la BD (sin caché),
+     * le aplica cambios y lo actualiza; si otro lo modificó entretanto (ConflictoVersionException)
+     * vuelve a leer y a aplicar cambios, hasta maxIntentos veces.
+     * cambios debe poder aplicarse más de una vez (se ejecuta sobre cada lectura).
+     *
+     * @return Envio actualizado (con la nueva versión)
+     */
+    public Envio actualizarConReintento(long id, Consumer<Envio> cambios, int maxIntentos) throws Exception {
+        return M_ACTUALIZAR_CON_REINTENTO.time(() -> {
+            if (id <= 0) throw new IllegalArgumentException("El ID debe ser mayor a 0");
+            if (cambios == null) throw new IllegalArgumentException("Los cambios no pueden ser null");
+            if (maxIntentos <= 0) throw new IllegalArgumentException("maxIntentos debe ser > 0");
+            for (int intento = 1; ; intento++) {
+                Envio actual = envioDAO.getById(id);
+                if (actual == null) throw new IllegalArgumentException("No existe Envio activo con id " + id);
+                cambios.accept(actual);
+                try {
+                    doActualizar(actual);
+                    return actual;
+                } catch (ConflictoVersionException e) {
+                    if (intento >= maxIntentos) throw e;
+                }
+            }
+        }, r -> 1);
+    }
+
+    /**
+     * Cambio de estado masivo en una transacción: se escriben estado y version (updatedAt lo
+     * actualiza la BD), no el resto de las columnas, y solo avanzan los ids que están en el estado
+     * inmediato anterior. Un id null o <= 0 se rechaza antes de tocar la BD. Devuelve el resultado por id.
+     */
+    public Map<Long, ResultadoTransicion> actualizarEstado(Collection<Long> ids, EstadoEnvio nuevo) throws Exception {
+        return M_ACTUALIZAR_ESTADO.time(() -> {
+            if (nuevo == null) throw new IllegalArgumentException("El nuevo estado es obligatorio");
+            if (ids == null || ids.isEmpty()) throw new IllegalArgumentException("Debe indicar al menos un ID");
+            for (Long id : ids) {
+                if (id == null || id <= 0) throw new IllegalArgumentException("Los IDs deben ser mayores a 0");
+            }
+            Map<Long, ResultadoTransicion> result;
+            try {
+                result = envioDAO.actualizarEstado(ids, nuevo);
+            } finally {
+                for (Long id : ids) cache.invalidate(id);
+            }
+            EnvioSnapshot snap = snapshot;
+            if (snap != null) {
+                for (Map.Entry<Long, ResultadoTransicion> r : result.entrySet()) {
+                    if (r.getValue() == ResultadoTransicion.ACTUALIZADO) snap.aplicarEstado(r.getKey(), nuevo);
+                }
+            }
+            return result;
+        }, Map::size);
     }
 
     @Override
     public void eliminar(int id) throws Exception {
-        if (id <= 0) throw new IllegalArgumentException("El ID debe ser mayor a 0");
-        envioDAO.eliminar(id);
+        M_ELIMINAR.time(() -> {
+            if (id <= 0) throw new IllegalArgumentException("El ID debe ser mayor a 0");
+            try {
+                envioDAO.eliminar(id);
+            } finally {
+                cache.invalidate((long) id);
+            }
+            EnvioSnapshot snap = snapshot;
+            if (snap != null) snap.quitar(id);
+        }, 1);
     }
 
     @Override
     public Envio getById(int id) throws Exception {
-        if (id <= 0) throw new IllegalArgumentException("El ID debe ser mayor a 0");
-        return envioDAO.getById(id);
+        return M_GET_BY_ID.time(() -> {
+            if (id <= 0) throw new IllegalArgumentException("El ID debe ser mayor a 0");
+            return cache.getOrLoad((long) id, () -> envioDAO.getById(id));
+        }, r -> r == null ? 0 : 1);
     }
 
     @Override
     public List<Envio> getAll() throws Exception {
-        return envioDAO.getAll();
+        return M_GET_ALL.time(envioDAO::getAll, List::size);
+    }
+
+    @Override
+    public List<Envio> getPage(long afterId, int limit) throws Exception {
+        return getPage(afterId, limit, null);
+    }
+
+    /** Página de envíos filtrada opcionalmente por estado (null = todos). */
+    public List<Envio> getPage(long afterId, int limit, EstadoEnvio estado) throws Exception {
+        return M_GET_PAGE.time(() -> {
+            validatePage(afterId, limit);
+            return envioDAO.getPage(afterId, limit, estado);
+        }, List::size);
+    }
+
+    @Override
+    public Stream<Envio> stream() throws Exception {
+        return M_STREAM.timeStream(envioDAO::stream);
+    }
+
+    /* ================== Snapshot columnar ================== */
+
+    /** Construye (o reconstruye) la copia columnar leyendo todos los envíos activos en streaming. */
+    public void habilitarSnapshot() throws Exception {
+        cargaSnapshot.lock();
+        try {
+            EnvioSnapshot snap = new EnvioSnapshot(envioDAO);
+            snap.cargar();
+            this.snapshot = snap;
+        } finally {
+            cargaSnapshot.unlock();
+        }
+    }
+
+    /**
+     * Costo agregado de los envíos que cumplen la consulta, calculado sobre la copia columnar.
+     * La primera llamada la construye; las siguientes aplican antes el feed de cambios (refrescar).
+     */
+    public List<EnvioSnapshot.Grupo> consultarSnapshot(ConsultaEnvios consulta, EnvioSnapshot.Agrupacion agrupacion) throws Exception {
+        return M_CONSULTAR_SNAPSHOT.time(() -> {
+            if (consulta == null) throw new IllegalArgumentException("La consulta no puede ser null");
+            if (agrupacion == null) throw new IllegalArgumentException("La agrupacion no puede ser null");
+            EnvioSnapshot snap = snapshot;
+            if (snap == null) {
+                cargaSnapshot.lock();
+                try {
+                    if (snapshot == null) habilitarSnapshot();
+                    snap = snapshot;
+                } finally {
+                    cargaSnapshot.unlock();
+                }
+            } else {
+                snap.refrescar();
+            }
+            return snap.consultar(consulta, agrupacion);
+        }, List::size);
+    }
+
+    /** Estado de la copia columnar ("deshabilitado" si no se construyó). */
+    public String getSnapshotStats() {
+        EnvioSnapshot snap = snapshot;
+        return snap == null ? "deshabilitado" : snap.toString();
+    }
+
+    /** Contadores de la caché de getById. */
+    public CacheStats getCacheStats() {
+        return cache.getStats();
     }
 
     /* ================== Validaciones de negocio ================== */
@@ -85,6 +285,11 @@ public class EnvioServiceImpl implements GenericService<Envio> {
         }
     }
 
+    private void validatePage(long afterId, int limit) {
+        if (afterId < 0) throw new IllegalArgumentException("afterId no puede ser negativo");
+        if (limit <= 0) throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0");
+    }
+
     private <E extends Enum<E>> void ensureEnum(E value, Class<E> type, String msgOnError) {
         try {
             Enum.valueOf(type, value.name());
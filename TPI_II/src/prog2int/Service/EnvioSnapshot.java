@@ -0,0 +1,457 @@
+package prog2int.Service;
+
+import prog2int.Dao.EnvioDAO;
+import prog2int.Models.Empresa;
+import prog2int.Models.Envio;
+import prog2int.Models.EstadoEnvio;
+import prog2int.Models.TipoEnvio;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Copia columnar en memoria de los envíos activos, para consultas analíticas (filtro + agrupación)
+ * sin ir a la BD ni materializar objetos Envio.
+ *
+ * Una fila por envío, una columna por campo (arreglos primitivos paralelos, ordenados por id):
+ * - costo: double[]
+ * - empresa / tipo / estado: byte[] con el ordinal del enum
+ * - fechaDespacho / fechaEstimada: int[] en epoch-day (SIN_FECHA = null)
+ * - activo: boolean[] (una baja deja la fila marcada, no reacomoda las columnas)
+ *
+ * Las consultas recorren las columnas en paralelo con fork-join (tramos de UMBRAL_PARALELO filas
+ * por tarea; cada tarea acumula sus grupos y se combinan al final).
+ *
+ * Actualización incremental:
+ * - refrescar(): lee el feed de cambios (EnvioDAO.getChangedSince, en la primaria) desde el último
+ *   cambio visto menos MARGEN_MS: altas, modificaciones y bajas hechas por cualquier proceso, en
+ *   O(cambios). Garantía: no se pierde un cambio cuya transacción confirma menos de MARGEN_MS
+ *   después de la sentencia que lo escribió (las transacciones de los servicios duran
+ *   milisegundos; subir snapshot.margenMs si hay procesos con transacciones más largas)
+ * - aplicar / quitar / aplicarEstado: las escrituras de EnvioServiceImpl se reflejan en el acto,
+ *   sin esperar al próximo refrescar
+ *
+ * Thread-safe: consultas concurrentes, escrituras exclusivas (ReentrantReadWriteLock).
+ */
+public class EnvioSnapshot {
+
+    /** Criterio de agrupación de consultar. */
+    public enum Agrupacion { NINGUNA, EMPRESA, TIPO, ESTADO, EMPRESA_TIPO }
+
+    /** Agregado de costo de un grupo; clave = valores del grupo separados por "/" ("TOTAL" sin agrupar). */
+    public record Grupo(String clave, long envios, double costoTotal, double costoMin, double costoMax) {
+        public double costoPromedio() {
+            return envios == 0 ? 0 : costoTotal / envios;
+        }
+    }
+
+    /** epoch-day de una fecha null (nunca pasa un filtro de fechas). */
+    private static final int SIN_FECHA = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Filas por tarea de fork-join: por debajo de esto se recorre en el mismo hilo. */
+    private static final int UMBRAL_PARALELO = Integer.getInteger("snapshot.umbralParalelo", 1 << 15);
+    /** Tamaño de página de refrescar(). */
+    private static final int LOTE_REFRESCO = 1000;
+    /** Margen hacia atrás con que refrescar() relee el feed (los cambios releídos son idempotentes). */
+    private static final long MARGEN_MS = Long.getLong("snapshot.margenMs", 5000L);
+
+    private static final Empresa[] EMPRESAS = Empresa.values();
+    private static final TipoEnvio[] TIPOS = TipoEnvio.values();
+    private static final EstadoEnvio[] ESTADOS = EstadoEnvio.values();
+
+    private final EnvioDAO envioDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /* ===================== Columnas ===================== */
+    private long[] ids;
+    private double[] costo;
+    private byte[] empresa;
+    private byte[] tipo;
+    private byte[] estado;
+    private int[] despacho;
+    private int[] estimada;
+    private boolean[] activo;
+    private int size;
+    private int activos;
+    /** updatedAt más reciente visto (carga o feed); null = nada cargado todavía. */
+    private Instant ultimoCambio;
+
+    public EnvioSnapshot(EnvioDAO envioDAO) {
+        if (envioDAO == null) throw new IllegalArgumentException("EnvioDAO no puede ser null");
+        this.envioDAO = envioDAO;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /* ===================== Carga y refresco ===================== */
+
+    /** Descarta el contenido y vuelve a cargar todos los envíos activos (streaming, ordenados por id). */
+    public void cargar() throws Exception {
+        lock.writeLock().lock();
+        try {
+            allocate(INITIAL_CAPACITY);
+            ultimoCambio = null;
+            try (Stream<Envio> envios = envioDAO.stream()) {
+                envios.forEach(e -> {
+                    upsert(e);
+                    verCambio(e);
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Aplica los cambios del feed posteriores al último visto (menos el margen); devuelve cuántos leyó. */
+    public int refrescar() throws Exception {
+        lock.writeLock().lock();
+        try {
+            int leidos = 0;
+            Instant since = ultimoCambio == null ? Instant.EPOCH : ultimoCambio.minusMillis(MARGEN_MS);
+            long afterId = 0;
+            while (true) {
+                List<Envio> page = envioDAO.getChangedSince(since, afterId, LOTE_REFRESCO);
+                for (Envio e : page) {
+                    if (e.isEliminado()) {
+                        int row = find(e.getId());
+                        if (row >= 0) baja(row);
+                    } else {
+                        upsert(e);
+                    }
+                    verCambio(e);
+                }
+                leidos += page.size();
+                if (page.size() < LOTE_REFRESCO) return leidos;
+                Envio last = page.get(page.size() - 1);
+                since = last.getUpdatedAt();
+                afterId = last.getId();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Refleja un Envio ya persistido si su fila está cargada (las altas llegan con refrescar). */
+    public void aplicar(Envio e) {
+        if (e == null || e.getId() <= 0) return;
+        lock.writeLock().lock();
+        try {
+            int row = find(e.getId());
+            if (row < 0) return;
+            if (e.isEliminado()) baja(row);
+            else write(row, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Cambio de estado de una fila cargada (actualizarEstado masivo). */
+    public void aplicarEstado(long id, EstadoEnvio nuevo) {
+        lock.writeLock().lock();
+        try {
+            int row = find(id);
+            if (row >= 0 && activo[row]) estado[row] = (byte) nuevo.ordinal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Baja de una fila cargada. */
+    public void quitar(long id) {
+        lock.writeLock().lock();
+        try {
+            int row = find(id);
+            if (row >= 0) baja(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* ===================== Consultas ===================== */
+
+    /**
+     * Costo agregado de los envíos activos que cumplen la consulta, agrupado según agrupacion.
+     * Solo aparecen los grupos con al menos un envío, en orden de ordinales.
+     */
+    public List<Grupo> consultar(ConsultaEnvios consulta, Agrupacion agrupacion) {
+        if (consulta == null) throw new IllegalArgumentException("La consulta no puede ser null");
+        if (agrupacion == null) throw new IllegalArgumentException("La agrupacion no puede ser null");
+        Acumulado total;
+        lock.readLock().lock();
+        try {
+            Scan scan = new Scan(this, consulta, agrupacion, 0, size);
+            total = size <= UMBRAL_PARALELO ? scan.compute() : scan.invoke();
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Grupo> result = new ArrayList<>();
+        for (int g = 0; g < total.envios.length; g++) {
+            if (total.envios[g] == 0) continue;
+            result.add(new Grupo(clave(agrupacion, g), total.envios[g], total.suma[g], total.min[g], total.max[g]));
+        }
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return activos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return "EnvioSnapshot{activos=" + activos + ", filas=" + size + ", capacidad=" + ids.length +
+                    ", ultimoCambio=" + ultimoCambio + "}";
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* ===================== Scan fork-join ===================== */
+
+    /** Acumuladores por grupo (índice = clave numérica del grupo). */
+    private static final class Acumulado {
+        final long[] envios;
+        final double[] suma;
+        final double[] min;
+        final double[] max;
+
+        Acumulado(int grupos) {
+            envios = new long[grupos];
+            suma = new double[grupos];
+            min = new double[grupos];
+            max = new double[grupos];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        Acumulado merge(Acumulado o) {
+            for (int g = 0; g < envios.length; g++) {
+                envios[g] += o.envios[g];
+                suma[g] += o.suma[g];
+                min[g] = Math.min(min[g], o.min[g]);
+                max[g] = Math.max(max[g], o.max[g]);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Recorre las filas [lo, hi). Clave de grupo = empresa * mulEmpresa + tipo * mulTipo +
+     * estado * mulEstado, con multiplicador 0 en las columnas que no agrupan.
+     * Se ejecuta con el read lock del llamador tomado: las columnas no cambian durante el scan.
+     */
+    private static final class Scan extends RecursiveTask<Acumulado> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient EnvioSnapshot s;
+        private final transient ConsultaEnvios q;
+        private final Agrupacion agrupacion;
+        private final int lo;
+        private final int hi;
+
+        Scan(EnvioSnapshot s, ConsultaEnvios q, Agrupacion agrupacion, int lo, int hi) {
+            this.s = s;
+            this.q = q;
+            this.agrupacion = agrupacion;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Acumulado compute() {
+            if (hi - lo <= UMBRAL_PARALELO) return scan();
+            int mid = (lo + hi) >>> 1;
+            Scan left = new Scan(s, q, agrupacion, lo, mid);
+            left.fork();
+            Acumulado right = new Scan(s, q, agrupacion, mid, hi).compute();
+            return left.join().merge(right);
+        }
+
+        private Acumulado scan() {
+            int mulEmpresa = 0, mulTipo = 0, mulEstado = 0;
+            switch (agrupacion) {
+                case EMPRESA: mulEmpresa = 1; break;
+                case TIPO: mulTipo = 1; break;
+                case ESTADO: mulEstado = 1; break;
+                case EMPRESA_TIPO: mulEmpresa = TIPOS.length; mulTipo = 1; break;
+                default: break;
+            }
+            Acumulado acc = new Acumulado(grupos(agrupacion));
+
+            boolean[] activo = s.activo;
+            byte[] empresa = s.empresa;
+            byte[] tipo = s.tipo;
+            byte[] estado = s.estado;
+            int[] despacho = s.despacho;
+            int[] estimada = s.estimada;
+            double[] costo = s.costo;
+            int empresas = q.empresas;
+            int tipos = q.tipos;
+            int estados = q.estados;
+            boolean filtraDespacho = q.despachoDesde != Integer.MIN_VALUE || q.despachoHasta != Integer.MAX_VALUE;
+            int desde = q.despachoDesde;
+            int hasta = q.despachoHasta;
+            boolean filtraEstimada = q.estimadaDesde != Integer.MIN_VALUE || q.estimadaHasta != Integer.MAX_VALUE;
+            int estimadaDesde = q.estimadaDesde;
+            int estimadaHasta = q.estimadaHasta;
+            double costoMin = q.costoMin;
+            double costoMax = q.costoMax;
+
+            for (int i = lo; i < hi; i++) {
+                if (!activo[i]) continue;
+                if ((empresas >>> empresa[i] & 1) == 0) continue;
+                if ((tipos >>> tipo[i] & 1) == 0) continue;
+                if ((estados >>> estado[i] & 1) == 0) continue;
+                if (filtraDespacho) {
+                    int d = despacho[i];
+                    if (d == SIN_FECHA || d < desde || d > hasta) continue;
+                }
+                if (filtraEstimada) {
+                    int d = estimada[i];
+                    if (d == SIN_FECHA || d < estimadaDesde || d > estimadaHasta) continue;
+                }
+                double c = costo[i];
+                if (c < costoMin || c > costoMax) continue;
+                int g = empresa[i] * mulEmpresa + tipo[i] * mulTipo + estado[i] * mulEstado;
+                acc.envios[g]++;
+                acc.suma[g] += c;
+                if (c < acc.min[g]) acc.min[g] = c;
+                if (c > acc.max[g]) acc.max[g] = c;
+            }
+            return acc;
+        }
+    }
+
+    private static int grupos(Agrupacion agrupacion) {
+        switch (agrupacion) {
+            case EMPRESA: return EMPRESAS.length;
+            case TIPO: return TIPOS.length;
+            case ESTADO: return ESTADOS.length;
+            case EMPRESA_TIPO: return EMPRESAS.length * TIPOS.length;
+            default: return 1;
+        }
+    }
+
+    private static String clave(Agrupacion agrupacion, int g) {
+        switch (agrupacion) {
+            case EMPRESA: return EMPRESAS[g].name();
+            case TIPO: return TIPOS[g].name();
+            case ESTADO: return ESTADOS[g].name();
+            case EMPRESA_TIPO: return EMPRESAS[g / TIPOS.length].name() + "/" + TIPOS[g % TIPOS.length].name();
+            default: return "TOTAL";
+        }
+    }
+
+    /* ===================== Helpers (con write lock) ===================== */
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        costo = new double[capacity];
+        empresa = new byte[capacity];
+        tipo = new byte[capacity];
+        estado = new byte[capacity];
+        despacho = new int[capacity];
+        estimada = new int[capacity];
+        activo = new boolean[capacity];
+        size = 0;
+        activos = 0;
+    }
+
+    /** Fila del id (búsqueda binaria sobre ids ordenados) o -1. */
+    private int find(long id) {
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        return row >= 0 ? row : -1;
+    }
+
+    /** Escribe e en su fila; si no existe la agrega manteniendo el orden por id. */
+    private void upsert(Envio e) {
+        long id = e.getId();
+        int row;
+        if (size == 0 || id > ids[size - 1]) {
+            row = size;
+            makeRoom(row);
+        } else {
+            row = Arrays.binarySearch(ids, 0, size, id);
+            if (row < 0) {
+                row = -row - 1;
+                makeRoom(row);
+            } else if (activo[row]) {
+                activos--;
+            }
+        }
+        ids[row] = id;
+        activo[row] = false;
+        write(row, e);
+    }
+
+    /** Abre un hueco en la posición row (al final, salvo ids fuera de orden). */
+    private void makeRoom(int row) {
+        if (size == ids.length) grow();
+        int tail = size - row;
+        if (tail > 0) {
+            System.arraycopy(ids, row, ids, row + 1, tail);
+            System.arraycopy(costo, row, costo, row + 1, tail);
+            System.arraycopy(empresa, row, empresa, row + 1, tail);
+            System.arraycopy(tipo, row, tipo, row + 1, tail);
+            System.arraycopy(estado, row, estado, row + 1, tail);
+            System.arraycopy(despacho, row, despacho, row + 1, tail);
+            System.arraycopy(estimada, row, estimada, row + 1, tail);
+            System.arraycopy(activo, row, activo, row + 1, tail);
+        }
+        activo[row] = false;
+        size++;
+    }
+
+    private void write(int row, Envio e) {
+        costo[row] = e.getCosto();
+        empresa[row] = (byte) e.getEmpresa().ordinal();
+        tipo[row] = (byte) e.getTipo().ordinal();
+        estado[row] = (byte) e.getEstado().ordinal();
+        despacho[row] = epochDay(e.getFechaDespacho());
+        estimada[row] = epochDay(e.getFechaEstimada());
+        if (!activo[row]) {
+            activo[row] = true;
+            activos++;
+        }
+    }
+
+    private void baja(int row) {
+        if (activo[row]) {
+            activo[row] = false;
+            activos--;
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        costo = Arrays.copyOf(costo, capacity);
+        empresa = Arrays.copyOf(empresa, capacity);
+        tipo = Arrays.copyOf(tipo, capacity);
+        estado = Arrays.copyOf(estado, capacity);
+        despacho = Arrays.copyOf(despacho, capacity);
+        estimada = Arrays.copyOf(estimada, capacity);
+        activo = Arrays.copyOf(activo, capacity);
+    }
+
+    private void verCambio(Envio e) {
+        Instant t = e.getUpdatedAt();
+        if (t != null && (ultimoCambio == null || t.isAfter(ultimoCambio))) ultimoCambio = t;
+    }
+
+    private static int epochDay(LocalDate d) {
+        return d == null ? SIN_FECHA : (int) d.toEpochDay();
+    }
+}
@@ -1,11 +1,36 @@
 package prog2int.Service;
 
+import java.sql.Connection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface GenericService<T> {
     void insertar(T entidad) throws Exception;
+
+    /** Aplica las reglas de negocio de insertar sin persistir (IllegalArgumentException si no cumple). */
+    void validar(T entidad);
+
+    /** Inserción validada dentro de una transacción externa (NO cierra conn); asigna el ID. */
+    void insertarTx(T entidad, Connection conn) throws Exception;
+
+    /** Inserción masiva validada dentro de una transacción externa (NO cierra conn); asigna los IDs. */
+    void insertarLote(List<T> entidades, Connection conn) throws Exception;
     void actualizar(T entidad) throws Exception;
     void eliminar(int id) throws Exception;
     T getById(int id) throws Exception;
     List<T> getAll() throws Exception;
+
+    /** Página de entidades activas con id > afterId (0 para la primera página). */
+    List<T> getPage(long afterId, int limit) throws Exception;
+
+    /** Stream perezoso de entidades activas; cerrar el Stream libera la conexión. */
+    Stream<T> stream() throws Exception;
+
+    /** Recorre las entidades activas en memoria constante. */
+    default void forEach(Consumer<? super T> action) throws Exception {
+        try (Stream<T> rows = stream()) {
+            rows.forEach(action);
+        }
+    }
 }
@@ -0,0 +1,181 @@
+package prog2int.Service;
+
+import prog2int.Config.DatabaseConnection;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché read-through de entidades por id (long), usada por los servicios delante del DAO.
+ * Mismo contrato que EntityCache (copias defensivas, TTL, no cachea null, una carga que compite
+ * con una invalidación no queda cacheada) pero sobre ConcurrentLongMap:
+ * - sin boxing de la clave ni nodo por entrada
+ * - sin lock global: lecturas y escrituras de ids distintos van a franjas distintas
+ *
+ * Las cargas (loader) corren con DatabaseConnection.readFromPrimary: la caché la comparten
+ * todos los hilos y read-your-writes es por hilo, así que una fila leída de una réplica
+ * atrasada podría quedar cacheada después de la invalidación de otro hilo que acaba de
+ * escribirla (y servírsele a ese mismo hilo). Los hits no tocan la BD.
+ *
+ * Desalojo por tamaño aproximado a LRU: al superar maxSize se descarta, entre 8 entradas
+ * vecinas a la recién agregada, la de acceso más antiguo.
+ *
+ * @param <V> tipo de entidad
+ */
+public class IdCache<V> {
+
+    /** Carga de varias entidades en una consulta (ej. WHERE id IN (...)); las inexistentes no vienen. */
+    @FunctionalInterface
+    public interface BatchLoader<V> {
+        List<V> load(long[] ids) throws Exception;
+    }
+
+    /** Entradas comparadas por desalojo. */
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final UnaryOperator<V> copier;
+    private final ConcurrentLongMap<Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    /** Se incrementa en cada invalidación; evita cachear una carga que compitió con una escritura. */
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * @param maxSize   máximo de entradas (0 deshabilita la caché)
+     * @param ttlMillis tiempo de vida de cada entrada (0 = sin expiración)
+     * @param copier    copia defensiva de la entidad (ej. Pedido::new)
+     */
+    public IdCache(int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+        if (maxSize < 0) throw new IllegalArgumentException("maxSize no puede ser negativo");
+        if (ttlMillis < 0) throw new IllegalArgumentException("ttlMillis no puede ser negativo");
+        if (copier == null) throw new IllegalArgumentException("copier no puede ser null");
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.copier = copier;
+        this.entries = new ConcurrentLongMap<>(maxSize, ConcurrentLongMap.DEFAULT_STRIPES);
+    }
+
+    /** Devuelve una copia de la entidad cacheada o la carga con loader (y la cachea si no es null). */
+    public V getOrLoad(long id, EntityCache.Loader<V> loader) throws Exception {
+        V cached = get(id);
+        if (cached != null) return cached;
+        long stamp = epoch.get();
+        V loaded = DatabaseConnection.readFromPrimary(loader::load);
+        if (loaded != null) putIfCurrent(id, loaded, stamp);
+        return loaded;
+    }
+
+    /**
+     * Entidades de ids (sin duplicados): las cacheadas se copian y las demás se cargan juntas con
+     * una sola llamada a loader y se cachean. Los ids que no existen quedan fuera del resultado.
+     *
+     * @param idOf id de cada entidad cargada (ej. Pedido::getId)
+     */
+    public LongMap<V> getOrLoadAll(long[] ids, BatchLoader<V> loader, ToLongFunction<? super V> idOf) throws Exception {
+        long[] unique = ids.clone();
+        Arrays.sort(unique);
+        LongMap<V> result = new LongMap<>(unique.length);
+        long[] missing = new long[unique.length];
+        int n = 0;
+        for (int i = 0; i < unique.length; i++) {
+            if (i > 0 && unique[i] == unique[i - 1]) continue;
+            V cached = get(unique[i]);
+            if (cached != null) result.put(unique[i], cached);
+            else missing[n++] = unique[i];
+        }
+        if (n == 0) return result;
+
+        long stamp = epoch.get();
+        long[] toLoad = Arrays.copyOf(missing, n);
+        for (V loaded : DatabaseConnection.readFromPrimary(() -> loader.load(toLoad))) {
+            long id = idOf.applyAsLong(loaded);
+            result.put(id, loaded);
+            putIfCurrent(id, loaded, stamp);
+        }
+        return result;
+    }
+
+    /** Copia de la entidad cacheada o null si no está (o venció). Cuenta hit/miss. */
+    public V get(long id) {
+        Entry<V> e = entries.get(id);
+        long now = System.currentTimeMillis();
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        if (isExpired(e, now)) {
+            if (entries.remove(id, e)) expirations.increment();
+            misses.increment();
+            return null;
+        }
+        e.lastAccess = System.nanoTime();
+        hits.increment();
+        return copier.apply(e.value);
+    }
+
+    public void put(long id, V value) {
+        if (value != null) putIfCurrent(id, value, epoch.get());
+    }
+
+    /** Elimina la entrada de id (si existe). */
+    public void invalidate(long id) {
+        epoch.incrementAndGet();
+        if (entries.remove(id) != null) invalidations.increment();
+    }
+
+    public void clear() {
+        epoch.incrementAndGet();
+        invalidations.add(entries.size());
+        entries.clear();
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(entries.size(), maxSize, hits.sum(), misses.sum(), evictions.sum(),
+                expirations.sum(), invalidations.sum());
+    }
+
+    /**
+     * Guarda value si no hubo invalidaciones desde stamp. Se guarda primero y se verifica después:
+     * una invalidación concurrente, o ve la entrada y la borra, o incrementa epoch antes de la
+     * verificación y la entrada se retira aquí.
+     */
+    private void putIfCurrent(long id, V value, long stamp) {
+        if (maxSize == 0) return;
+        Entry<V> e = new Entry<>(copier.apply(value), System.currentTimeMillis());
+        entries.put(id, e);
+        if (epoch.get() != stamp) {
+            entries.remove(id, e);
+            return;
+        }
+        if (entries.size() > maxSize && entries.evictSampled(id, EVICTION_SAMPLE, x -> x.lastAccess)) {
+            evictions.increment();
+        }
+    }
+
+    private boolean isExpired(Entry<V> e, long now) {
+        return ttlMillis > 0 && now - e.loadedAt >= ttlMillis;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt;
+        /** System.nanoTime del último acceso (orden de desalojo; carreras benignas). */
+        volatile long lastAccess;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+}
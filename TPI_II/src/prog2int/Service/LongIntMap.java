@@ -0,0 +1,154 @@
+package prog2int.Service;
+
+/**
+ * Variante de LongMap con valores int (long -> int sin boxing): claves en long[] y valores en
+ * int[] paralelos, misma dispersión (LongMap.mix), sondeo lineal y borrado sin lápidas.
+ *
+ * Los valores son >= 0: get/remove devuelven ABSENT (-1) si la clave no está. La clave 0 marca
+ * celda libre en la tabla y se guarda aparte.
+ *
+ * No es thread-safe.
+ */
+public class LongIntMap {
+
+    /** Resultado de get/remove para una clave ausente. */
+    public static final int ABSENT = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int size;                 // entradas en la tabla (sin contar la clave 0)
+    private int zeroValue = ABSENT;   // valor de la clave 0
+
+    public LongIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /** @param expected entradas esperadas (se dimensiona para no redimensionar hasta ese tamaño) */
+    public LongIntMap(int expected) {
+        if (expected < 0) throw new IllegalArgumentException("expected no puede ser negativo");
+        allocate(capacityFor(expected));
+    }
+
+    public int get(long key) {
+        if (key == 0) return zeroValue;
+        int i = find(key);
+        return i < 0 ? ABSENT : values[i];
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != ABSENT;
+    }
+
+    /** Asocia value (>= 0) a key; devuelve el valor anterior o ABSENT. */
+    public int put(long key, int value) {
+        if (value < 0) throw new IllegalArgumentException("El valor no puede ser negativo");
+        if (key == 0) {
+            int old = zeroValue;
+            zeroValue = value;
+            return old;
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                int old = values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 4L > keys.length * 3L) rehash(keys.length * 2);
+        return ABSENT;
+    }
+
+    /** Quita key; devuelve su valor o ABSENT si no estaba. */
+    public int remove(long key) {
+        if (key == 0) {
+            int old = zeroValue;
+            zeroValue = ABSENT;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0) return ABSENT;
+        int old = values[i];
+        removeSlot(i);
+        return old;
+    }
+
+    public int size() {
+        return size + (zeroValue != ABSENT ? 1 : 0);
+    }
+
+    /** Vacía el mapa y vuelve a la capacidad mínima. */
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        zeroValue = ABSENT;
+    }
+
+    /* ===================== Helpers ===================== */
+
+    private static int slot(long key, int mask) {
+        return (int) LongMap.mix(key) & mask;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    /** Borra la celda i reubicando las claves siguientes del cluster (sondeo lineal). */
+    private void removeSlot(int i) {
+        int mask = keys.length - 1;
+        size--;
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long k = oldKeys[j];
+            if (k == 0) continue;
+            int i = slot(k, mask);
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = k;
+            values[i] = oldValues[j];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        size = 0;
+    }
+
+    private static int capacityFor(int expected) {
+        long needed = Math.max(MIN_CAPACITY, (expected * 4L + 2) / 3 + 1);
+        if (needed > 1 << 30) throw new IllegalArgumentException("Demasiadas entradas: " + expected);
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LongIntMap{size=" + size() + ", capacidad=" + keys.length + "}";
+    }
+}
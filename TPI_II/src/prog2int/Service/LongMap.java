@@ -0,0 +1,251 @@
+package prog2int.Service;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Mapa long -> V de direccionamiento abierto (sondeo lineal), pensado para entidades por id.
+ *
+ * Frente a HashMap&lt;Long, V&gt; no crea un Long ni un nodo por entrada: claves en long[] y valores
+ * en Object[] paralelos, potencia de dos de capacidad y carga máxima 3/4. El borrado desplaza
+ * el cluster (sin lápidas), así que la tabla no se degrada con altas y bajas repetidas.
+ *
+ * La clave 0 marca celda libre en la tabla y se guarda aparte. Los valores no pueden ser null
+ * (get devuelve null = ausente). Los valores se comparan por identidad (remove(key, value)).
+ *
+ * No es thread-safe: ver ConcurrentLongMap. Para valores int sin boxing: LongIntMap.
+ *
+ * @param <V> tipo de valor
+ */
+public class LongMap<V> {
+
+    /** Recorrido de entradas (forEach). */
+    @FunctionalInterface
+    public interface Visitor<V> {
+        void accept(long key, V value);
+    }
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;           // entradas en la tabla (sin contar la clave 0)
+    private Object zeroValue;   // valor de la clave 0 (null = ausente)
+
+    public LongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /** @param expected entradas esperadas (se dimensiona para no redimensionar hasta ese tamaño) */
+    public LongMap(int expected) {
+        if (expected < 0) throw new IllegalArgumentException("expected no puede ser negativo");
+        allocate(capacityFor(expected));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) return (V) zeroValue;
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return (V) values[i];
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /** Asocia value a key; devuelve el valor anterior o null. */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) throw new IllegalArgumentException("El valor no puede ser null");
+        if (key == 0) {
+            Object old = zeroValue;
+            zeroValue = value;
+            return (V) old;
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                Object old = values[i];
+                values[i] = value;
+                return (V) old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 4L > keys.length * 3L) rehash(keys.length * 2);
+        return null;
+    }
+
+    /** Asocia value solo si key no tiene valor; devuelve el valor existente o null si se insertó. */
+    public V putIfAbsent(long key, V value) {
+        V current = get(key);
+        if (current != null) return current;
+        put(key, value);
+        return null;
+    }
+
+    /** Quita key; devuelve su valor o null si no estaba. */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            Object old = zeroValue;
+            zeroValue = null;
+            return (V) old;
+        }
+        int i = find(key);
+        if (i < 0) return null;
+        Object old = values[i];
+        removeSlot(i);
+        return (V) old;
+    }
+
+    /** Quita key solo si su valor es (por identidad) value. */
+    public boolean remove(long key, V value) {
+        if (key == 0) {
+            if (zeroValue != value || value == null) return false;
+            zeroValue = null;
+            return true;
+        }
+        int i = find(key);
+        if (i < 0 || values[i] != value) return false;
+        removeSlot(i);
+        return true;
+    }
+
+    public int size() {
+        return size + (zeroValue != null ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** Vacía el mapa y vuelve a la capacidad mínima. */
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        zeroValue = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        if (zeroValue != null) visitor.accept(0, (V) zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) visitor.accept(keys[i], (V) values[i]);
+        }
+    }
+
+    /** Claves presentes, en orden de la tabla (no ordenadas). */
+    public long[] keys() {
+        long[] out = new long[size()];
+        int n = 0;
+        if (zeroValue != null) out[n++] = 0;
+        for (long k : keys) {
+            if (k != 0) out[n++] = k;
+        }
+        return out;
+    }
+
+    /**
+     * Desalojo aproximado (para cachés acotadas): entre las primeras sample entradas ocupadas a
+     * partir de la celda de near, quita la de menor orden (ej. último acceso). near nunca se
+     * elige. Devuelve true si quitó una entrada.
+     */
+    @SuppressWarnings("unchecked")
+    boolean evictSampled(long near, int sample, ToLongFunction<? super V> orden) {
+        if (size == 0) return false;
+        int mask = keys.length - 1;
+        int victim = -1;
+        long best = Long.MAX_VALUE;
+        int seen = 0;
+        for (int k = 0, i = slot(near, mask); k <= mask && seen < sample; k++, i = (i + 1) & mask) {
+            if (keys[i] == 0 || keys[i] == near) continue;
+            seen++;
+            long o = orden.applyAsLong((V) values[i]);
+            if (victim < 0 || o < best) {
+                best = o;
+                victim = i;
+            }
+        }
+        if (victim < 0) return false;
+        removeSlot(victim);
+        return true;
+    }
+
+    /** Finalizador de MurmurHash3 (dispersa ids consecutivos). */
+    static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /* ===================== Helpers ===================== */
+
+    private static int slot(long key, int mask) {
+        return (int) mix(key) & mask;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    /** Borra la celda i reubicando las claves siguientes del cluster (sondeo lineal). */
+    private void removeSlot(int i) {
+        int mask = keys.length - 1;
+        size--;
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long k = oldKeys[j];
+            if (k == 0) continue;
+            int i = slot(k, mask);
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = k;
+            values[i] = oldValues[j];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+    }
+
+    private static int capacityFor(int expected) {
+        long needed = Math.max(MIN_CAPACITY, (expected * 4L + 2) / 3 + 1);
+        if (needed > 1 << 30) throw new IllegalArgumentException("Demasiadas entradas: " + expected);
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LongMap{size=" + size() + ", capacidad=" + keys.length + "}";
+    }
+}
@@ -0,0 +1,22 @@
+package prog2int.Service;
+
+import prog2int.Models.Pedido;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fachada asíncrona de PedidoServiceImpl; agrega la búsqueda por número.
+ */
+public class PedidoAsyncService extends AsyncService<Pedido> {
+
+    private final PedidoServiceImpl pedidoService;
+
+    public PedidoAsyncService(PedidoServiceImpl pedidoService, AsyncExecutor executor) {
+        super(pedidoService, executor);
+        this.pedidoService = pedidoService;
+    }
+
+    public CompletableFuture<Pedido> getByNumero(String numero) {
+        return executor.submit(() -> pedidoService.getByNumero(numero));
+    }
+}
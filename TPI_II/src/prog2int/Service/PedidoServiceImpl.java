@@ -1,68 +1,375 @@
 package prog2int.Service;
 
+import prog2int.Config.DatabaseConnection;
+import prog2int.Config.TransactionManager;
 import prog2int.Dao.PedidoDAO;
+import prog2int.Dao.PedidoFiltro;
+import prog2int.Dao.ConflictoVersionException;
+import prog2int.Dao.ResultadoTransicion;
+import prog2int.Metrics.LatencyRecorder;
+import prog2int.Metrics.Metrics;
+import prog2int.Models.Envio;
+import prog2int.Models.EstadoPedido;
 import prog2int.Models.Pedido;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 /**
  * Servicio de negocio para Pedido.
  * Responsabilidades:
  * - Validar campos obligatorios y reglas de consistencia (RN de dominio)
- * - Garantizar unicidad de "numero" (campo único de negocio)
+ * - Garantizar unicidad de "numero" (campo único de negocio) mediante el UNIQUE de la BD:
+ *   la violación de clave duplicada se traduce a IllegalArgumentException
+ * - Opcional: filtro de Bloom de números conocidos para adelantar el error sin ir a la BD
+ * - Opcional: índice de trigramas de clienteNombre para búsquedas "contiene" en memoria
+ * - Cachear getById / getByNumero (IdCache / EntityCache); actualizar/eliminar invalidan la entrada del id
+ * - Carga por lote de varios ids (getByIds): una consulta para todos los que no están en caché
+ * - Alta de Pedido + Envio nuevo en una sola transacción (crearPedidoConEnvio)
  */
 public class PedidoServiceImpl implements GenericService<Pedido> {
 
     private final PedidoDAO pedidoDAO;
+    private final EnvioServiceImpl envioService;
+    private final IdCache<Pedido> cache =
+            new IdCache<>(EntityCache.DEFAULT_MAX_SIZE, EntityCache.DEFAULT_TTL_MILLIS, Pedido::new);
+    /**
+     * Índice numero -> id. No necesita invalidación exacta: getByNumero verifica
+     * el número del Pedido obtenido por id y descarta la entrada si no coincide.
+     */
+    private final EntityCache<String, Long> numeroIndex =
+            new EntityCache<>(EntityCache.DEFAULT_MAX_SIZE, EntityCache.DEFAULT_TTL_MILLIS, UnaryOperator.identity());
+
+    /** Números conocidos (null = filtro deshabilitado). Ver habilitarFiltroNumeros. */
+    private volatile BloomFilter numerosConocidos;
+
+    /** clienteNombre -> ids (null = índice sin construir). Ver habilitarIndiceClientes. */
+    private volatile TrigramIndex indiceClientes;
+
+    /** Índice que se está construyendo (null fuera de habilitarIndiceClientes); ya recibe los cambios. */
+    private volatile TrigramIndex indiceEnConstruccion;
+
+    /** Serializa las construcciones del índice (lock y no synchronized: recorre la BD en hilos virtuales). */
+    private final ReentrantLock construccionIndice = new ReentrantLock();
+
+    /* ================== Métricas ================== */
+    private static final LatencyRecorder M_INSERTAR = Metrics.recorder("PedidoService.insertar");
+    private static final LatencyRecorder M_INSERTAR_TX = Metrics.recorder("PedidoService.insertarTx");
+    private static final LatencyRecorder M_INSERTAR_LOTE = Metrics.recorder("PedidoService.insertarLote");
+    private static final LatencyRecorder M_CREAR_CON_ENVIO = Metrics.recorder("PedidoService.crearPedidoConEnvio");
+    private static final LatencyRecorder M_ACTUALIZAR = Metrics.recorder("PedidoService.actualizar");
+    private static final LatencyRecorder M_ACTUALIZAR_CON_REINTENTO = Metrics.recorder("PedidoService.actualizarConReintento");
+    private static final LatencyRecorder M_ACTUALIZAR_ESTADO = Metrics.recorder("PedidoService.actualizarEstado");
+    private static final LatencyRecorder M_ELIMINAR = Metrics.recorder("PedidoService.eliminar");
+    private static final LatencyRecorder M_GET_BY_ID = Metrics.recorder("PedidoService.getById");
+    private static final LatencyRecorder M_GET_BY_IDS = Metrics.recorder("PedidoService.getByIds");
+    private static final LatencyRecorder M_GET_ALL = Metrics.recorder("PedidoService.getAll");
+    private static final LatencyRecorder M_GET_PAGE = Metrics.recorder("PedidoService.getPage");
+    private static final LatencyRecorder M_BUSCAR = Metrics.recorder("PedidoService.buscar");
+    private static final LatencyRecorder M_BUSCAR_POR_CLIENTE = Metrics.recorder("PedidoService.buscarPorCliente");
+    private static final LatencyRecorder M_STREAM = Metrics.recorder("PedidoService.stream");
+    private static final LatencyRecorder M_GET_BY_NUMERO = Metrics.recorder("PedidoService.getByNumero");
+    private static final LatencyRecorder M_GET_BY_ID_WITH_ENVIO = Metrics.recorder("PedidoService.getByIdWithEnvio");
+    private static final LatencyRecorder M_GET_ALL_WITH_ENVIO = Metrics.recorder("PedidoService.getAllWithEnvio");
+    private static final LatencyRecorder M_GET_BY_NUMERO_WITH_ENVIO = Metrics.recorder("PedidoService.getByNumeroWithEnvio");
 
     /**
      * @param pedidoDAO    DAO concreto de Pedido
-     * @param envioService
+     * @param envioService servicio de Envio (requerido por crearPedidoConEnvio)
      */
     public PedidoServiceImpl(PedidoDAO pedidoDAO, EnvioServiceImpl envioService) {
         if (pedidoDAO == null) throw new IllegalArgumentException("PedidoDAO no puede ser null");
         this.pedidoDAO = pedidoDAO;
+        this.envioService = envioService;
     }
 
     @Override
     public void insertar(Pedido p) throws Exception {
+        M_INSERTAR.time(() -> {
+            validatePedido(p);
+            precheckNumero(p.getNumero());
+            try {
+                pedidoDAO.insertar(p);
+            } catch (SQLException e) {
+                throw translateDuplicate(e, p.getNumero());
+            }
+            registrarNumero(p.getNumero());
+            indexarCliente(p);
+        }, 1);
+    }
+
+    @Override
+    public void validar(Pedido p) {
         validatePedido(p);
-        validateNumeroUnique(p.getNumero(), null);
-        pedidoDAO.insertar(p);
+    }
+
+    @Override
+    public void insertarTx(Pedido p, Connection conn) throws Exception {
+        M_INSERTAR_TX.time(() -> {
+            validatePedido(p);
+            // Sin precheckNumero: getByNumero pediría otra conexión al pool mientras esta transacción
+            // retiene la suya (con el pool agotado, se bloquean entre sí). El duplicado lo traduce
+            // translateDuplicate a partir del UNIQUE.
+            try {
+                pedidoDAO.insertTx(p, conn);
+            } catch (SQLException e) {
+                throw translateDuplicate(e, p.getNumero());
+            }
+            registrarNumero(p.getNumero());
+            indexarCliente(p);
+        }, 1);
+    }
+
+    @Override
+    public void insertarLote(List<Pedido> pedidos, Connection conn) throws Exception {
+        M_INSERTAR_LOTE.time(() -> {
+            if (pedidos == null || pedidos.isEmpty()) return;
+            for (Pedido p : pedidos) validatePedido(p);
+            try {
+                pedidoDAO.insertAllTx(pedidos, conn);
+            } catch (SQLException e) {
+                throw translateDuplicate(e, null);
+            }
+            for (Pedido p : pedidos) {
+                registrarNumero(p.getNumero());
+                indexarCliente(p);
+            }
+        }, pedidos == null ? 0 : pedidos.size());
     }
 
     @Override
     public void actualizar(Pedido p) throws Exception {
+        M_ACTUALIZAR.time(() -> doActualizar(p), 1);
+    }
+
+    private void doActualizar(Pedido p) throws Exception {
         validatePedido(p);
         if (p.getId() <= 0) throw new IllegalArgumentException("El ID del Pedido debe ser > 0 para actualizar");
-        validateNumeroUnique(p.getNumero(), (int) p.getId());
-        pedidoDAO.actualizar(p);
+        try {
+            pedidoDAO.actualizar(p);
+            registrarNumero(p.getNumero());
+            indexarCliente(p);
+        } catch (SQLException e) {
+            throw translateDuplicate(e, p.getNumero());
+        } finally {
+            cache.invalidate(p.getId());
+        }
+    }
+
+    /**
+     * Actualización con reintento ante conflicto de versión: lee Pedido id de la BD (sin caché),
+     * le aplica cambios y lo actualiza; si otro lo modificó entretanto (ConflictoVersionException)
+     * vuelve a leer y a aplicar cambios, hasta maxIntentos veces.
+     * cambios debe poder aplicarse más de una vez (se ejecuta sobre cada lectura).
+     *
+     * @return Pedido actualizado (con la nueva versión)
+     */
+    public Pedido actualizarConReintento(long id, Consumer<Pedido> cambios, int maxIntentos) throws Exception {
+        return M_ACTUALIZAR_CON_REINTENTO.time(() -> {
+            if (id <= 0) throw new IllegalArgumentException("El ID debe ser mayor a 0");
+            if (cambios == null) throw new IllegalArgumentException("Los cambios no pueden ser null");
+            if (maxIntentos <= 0) throw new IllegalArgumentException("maxIntentos debe ser > 0");
+            for (int intento = 1; ; intento++) {
+                Pedido actual = pedidoDAO.getById(id);
+                if (actual == null) throw new IllegalArgumentException("No existe Pedido activo con id " + id);
+                cambios.accept(actual);
+                try {
+                    doActualizar(actual);
+                    return actual;
+                } catch (ConflictoVersionException e) {
+                    if (intento >= maxIntentos) throw e;
+                }
+            }
+        }, r -> 1);
+    }
+
+    /**
+     * Cambio de estado masivo en una transacción: se escriben estado y version (updatedAt lo
+     * actualiza la BD), no el resto de las columnas, y solo avanzan los ids que están en el estado
+     * inmediato anterior. Un id null o <= 0 se rechaza antes de tocar la BD. Devuelve el resultado por id.
+     */
+    public Map<Long, ResultadoTransicion> actualizarEstado(Collection<Long> ids, EstadoPedido nuevo) throws Exception {
+        return M_ACTUALIZAR_ESTADO.time(() -> {
+            if (nuevo == null) throw new IllegalArgumentException("El nuevo estado es obligatorio");
+            if (ids == null || ids.isEmpty()) throw new IllegalArgumentException("Debe indicar al menos un ID");
+            for (Long id : ids) {
+                if (id == null || id <= 0) throw new IllegalArgumentException("Los IDs deben ser mayores a 0");
+            }
+            try {
+                return pedidoDAO.actualizarEstado(ids, nuevo);
+            } finally {
+                for (Long id : ids) cache.invalidate(id);
+            }
+        }, Map::size);
     }
 
     @Override
     public void eliminar(int id) throws Exception {
-        if (id <= 0) throw new IllegalArgumentException("El ID debe ser mayor a 0");
-        pedidoDAO.eliminar(id);
+        M_ELIMINAR.time(() -> {
+            if (id <= 0) throw new IllegalArgumentException("El ID debe ser mayor a 0");
+            try {
+                pedidoDAO.eliminar(id);
+                desindexarCliente(id);
+            } finally {
+                cache.invalidate((long) id);
+            }
+        }, 1);
     }
 
     @Override
     public Pedido getById(int id) throws Exception {
-        if (id <= 0) throw new IllegalArgumentException("El ID debe ser mayor a 0");
-        return pedidoDAO.getById(id);
+        return M_GET_BY_ID.time(() -> {
+            if (id <= 0) throw new IllegalArgumentException("El ID debe ser mayor a 0");
+            return cache.getOrLoad((long) id, () -> pedidoDAO.getById(id));
+        }, r -> r == null ? 0 : 1);
+    }
+
+    /** Pedidos activos de ids, indexados por id (los inexistentes o eliminados no aparecen). */
+    public LongMap<Pedido> getByIds(long[] ids) throws Exception {
+        return M_GET_BY_IDS.time(() -> {
+            if (ids == null) throw new IllegalArgumentException("Los IDs no pueden ser null");
+            for (long id : ids) {
+                if (id <= 0) throw new IllegalArgumentException("Los IDs deben ser mayores a 0");
+            }
+            return cache.getOrLoadAll(ids, pedidoDAO::getByIds, Pedido::getId);
+        }, LongMap::size);
     }
 
     @Override
     public List<Pedido> getAll() throws Exception {
-        return pedidoDAO.getAll();
+        return M_GET_ALL.time(pedidoDAO::getAll, List::size);
+    }
+
+    @Override
+    public List<Pedido> getPage(long afterId, int limit) throws Exception {
+        return getPage(afterId, limit, null);
+    }
+
+    /** Página de pedidos filtrada opcionalmente por estado (null = todos). */
+    public List<Pedido> getPage(long afterId, int limit, EstadoPedido estado) throws Exception {
+        return M_GET_PAGE.time(() -> {
+            validatePage(afterId, limit);
+            return pedidoDAO.getPage(afterId, limit, estado);
+        }, List::size);
+    }
+
+    /**
+     * Búsqueda por criterios combinados (ver PedidoFiltro), paginada por clave en el orden del
+     * índice que usa el filtro: para la página siguiente pasar el último pedido devuelto (null
+     * para la primera).
+     */
+    public List<Pedido> buscar(PedidoFiltro filtro, Pedido despuesDe, int limit) throws Exception {
+        return M_BUSCAR.time(() -> {
+            if (filtro == null) throw new IllegalArgumentException("El filtro no puede ser null");
+            validatePage(despuesDe == null ? 0 : despuesDe.getId(), limit);
+            if (filtro.getFechaDesde() != null && filtro.getFechaHasta() != null
+                    && filtro.getFechaHasta().isBefore(filtro.getFechaDesde())) {
+                throw new IllegalArgumentException("La fecha hasta no puede ser anterior a la fecha desde");
+            }
+            if ((filtro.getTotalMin() != null && filtro.getTotalMin() < 0)
+                    || (filtro.getTotalMax() != null && filtro.getTotalMax() < 0)) {
+                throw new IllegalArgumentException("Los limites de total no pueden ser negativos");
+            }
+            if (filtro.getTotalMin() != null && filtro.getTotalMax() != null && filtro.getTotalMax() < filtro.getTotalMin()) {
+                throw new IllegalArgumentException("El total maximo no puede ser menor que el minimo");
+            }
+            return pedidoDAO.buscar(filtro, despuesDe, limit);
+        }, List::size);
+    }
+
+    @Override
+    public Stream<Pedido> stream() throws Exception {
+        return M_STREAM.timeStream(pedidoDAO::stream);
     }
 
     /* ================== Métodos de negocio adicionales ================== */
 
+    /**
+     * Crea el Envio y el Pedido que lo referencia en una sola transacción
+     * (una conexión, un commit). Si algo falla no queda ninguno de los dos y
+     * ambos vuelven a tener id = 0.
+     */
+    public void crearPedidoConEnvio(Pedido p, Envio envio) throws Exception {
+        M_CREAR_CON_ENVIO.time(() -> {
+            if (envioService == null) throw new IllegalStateException("EnvioService no configurado");
+            if (envio == null) throw new IllegalArgumentException("El envio no puede ser null");
+            validatePedido(p);
+            envioService.validar(envio);
+
+            boolean committed = false;
+            try (TransactionManager tx = new TransactionManager(DatabaseConnection.getConnection())) {
+                tx.startTransaction();
+                envioService.insertarTx(envio, tx.getConnection());
+                p.setEnvio(envio);
+                insertarTx(p, tx.getConnection());
+                tx.commit();
+                committed = true;
+            } finally {
+                if (!committed) {
+                    envio.setId(0);
+                    p.setId(0);
+                }
+            }
+        }, 2);
+    }
+
     /** Búsqueda por número (campo único de negocio). */
     public Pedido getByNumero(String numero) throws Exception {
-        if (numero == null || numero.trim().isEmpty())
-            throw new IllegalArgumentException("El numero no puede estar vacío");
-        return pedidoDAO.getByNumero(numero.trim());
+        return M_GET_BY_NUMERO.time(() -> {
+            if (numero == null || numero.trim().isEmpty())
+                throw new IllegalArgumentException("El numero no puede estar vacío");
+            String key = numero.trim();
+
+            Long id = numeroIndex.get(key);
+            if (id != null) {
+                Pedido p = cache.getOrLoad(id, () -> pedidoDAO.getById(id));
+                if (p != null && key.equals(p.getNumero())) return p;
+                numeroIndex.invalidate(key); // el número cambió o el pedido fue eliminado
+            }
+
+            Pedido p = pedidoDAO.getByNumero(key);
+            if (p != null) numeroIndex.put(key, p.getId());
+            return p;
+        }, r -> r == null ? 0 : 1);
+    }
+
+    /** Contadores de las cachés por id y por número. */
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
+    public CacheStats getNumeroIndexStats() {
+        return numeroIndex.getStats();
+    }
+
+    /** Pedido con su Envio completo (una sola consulta con JOIN). */
+    public Pedido getByIdWithEnvio(int id) throws Exception {
+        return M_GET_BY_ID_WITH_ENVIO.time(() -> {
+            if (id <= 0) throw new IllegalArgumentException("El ID debe ser mayor a 0");
+            return pedidoDAO.getByIdWithEnvio(id);
+        }, r -> r == null ? 0 : 1);
+    }
+
+    /** Todos los pedidos activos con su Envio completo (una sola consulta con JOIN). */
+    public List<Pedido> getAllWithEnvio() throws Exception {
+        return M_GET_ALL_WITH_ENVIO.time(pedidoDAO::getAllWithEnvio, List::size);
+    }
+
+    /** Búsqueda por número con el Envio completo (una sola consulta con JOIN). */
+    public Pedido getByNumeroWithEnvio(String numero) throws Exception {
+        return M_GET_BY_NUMERO_WITH_ENVIO.time(() -> {
+            if (numero == null || numero.trim().isEmpty())
+                throw new IllegalArgumentException("El numero no puede estar vacío");
+            return pedidoDAO.getByNumeroWithEnvio(numero.trim());
+        }, r -> r == null ? 0 : 1);
     }
 
     /* ================== Validaciones de negocio ================== */
@@ -89,17 +396,142 @@ public class PedidoServiceImpl implements GenericService<Pedido> {
         }
     }
 
+    private void validatePage(long afterId, int limit) {
+        if (afterId < 0) throw new IllegalArgumentException("afterId no puede ser negativo");
+        if (limit <= 0) throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0");
+    }
+
+    /**
+     * Habilita el filtro de Bloom de números conocidos, precargado con todos los números de la BD.
+     * Con el filtro, insertar solo consulta la BD antes de escribir cuando el número "quizás existe";
+     * el resto de los casos va directo al INSERT (la unicidad la garantiza igual el UNIQUE).
+     *
+     * @param expectedInsertions cantidad de números esperada (dimensiona el filtro)
+     * @param fpp                tasa de falsos positivos deseada (ej. 0.01)
+     */
+    public void habilitarFiltroNumeros(long expectedInsertions, double fpp) throws Exception {
+        BloomFilter filtro = new BloomFilter(expectedInsertions, fpp);
+        try (Stream<String> numeros = pedidoDAO.streamNumeros()) {
+            numeros.forEach(filtro::add);
+        }
+        this.numerosConocidos = filtro;
+    }
+
+    /* ===================== Índice de clientes ===================== */
+
+    /**
+     * Construye el índice de trigramas de clienteNombre recorriendo los pedidos activos con el
+     * cursor de streaming. Desde entonces insertar/actualizar/eliminar lo mantienen al día.
+     * El índice nuevo recibe esos cambios desde antes de abrir el cursor y la carga no los pisa
+     * (TrigramIndex.cargar): un alta, cambio o baja durante la construcción no se pierde.
+     * Recién completo reemplaza al anterior para las búsquedas.
+     */
+    public void habilitarIndiceClientes() throws Exception {
+        construccionIndice.lock();
+        try {
+            TrigramIndex indice = new TrigramIndex();
+            indice.iniciarCarga();
+            this.indiceEnConstruccion = indice;
+            try (Stream<Pedido> pedidos = pedidoDAO.stream()) {
+                pedidos.forEach(p -> indice.cargar(p.getId(), p.getClienteNombre()));
+                indice.terminarCarga();
+                this.indiceClientes = indice;
+            } finally {
+                this.indiceEnConstruccion = null;
+            }
+        } finally {
+            construccionIndice.unlock();
+        }
+    }
+
     /**
-     * Garantiza unicidad del campo número.
-     * @param numero número a validar
-     * @param pedidoId Id actual si es UPDATE; null si es INSERT
+     * Pedidos cuyo clienteNombre contiene el texto (sin distinguir mayúsculas ni acentos),
+     * a lo sumo limit, por id ascendente. La primera llamada construye el índice si no estaba.
+     * Los ids del índice se resuelven juntos con getByIds (caché + una consulta); los que ya no existen se descartan
+     * (ej. alta en una transacción que después se revirtió).
      */
-    private void validateNumeroUnique(String numero, Integer pedidoId) throws Exception {
-        Pedido existente = pedidoDAO.getByNumero(numero);
-        if (existente != null) {
-            if (pedidoId == null || existente.getId() != pedidoId) {
-                throw new IllegalArgumentException("Ya existe un pedido con el numero: " + numero);
+    public List<Pedido> buscarPorCliente(String texto, int limit) throws Exception {
+        return M_BUSCAR_POR_CLIENTE.time(() -> {
+            if (texto == null || texto.isBlank()) throw new IllegalArgumentException("El texto a buscar no puede estar vacío");
+            if (limit <= 0) throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0");
+            TrigramIndex indice = indiceClientes;
+            if (indice == null) {
+                construccionIndice.lock();
+                try {
+                    if (indiceClientes == null) habilitarIndiceClientes();
+                    indice = indiceClientes;
+                } finally {
+                    construccionIndice.unlock();
+                }
             }
+            long[] ids = indice.buscar(texto, limit);
+            LongMap<Pedido> encontrados = getByIds(ids);
+            List<Pedido> result = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                Pedido p = encontrados.get(id);
+                if (p != null) result.add(p);
+                else indice.remove(id);
+            }
+            return result;
+        }, List::size);
+    }
+
+    /** Estado del índice de clientes ("deshabilitado" si no se construyó). */
+    public String getIndiceClientesStats() {
+        TrigramIndex indice = indiceClientes;
+        return indice == null ? "deshabilitado" : indice.toString();
+    }
+
+    /*
+     * Los cambios van al índice en uso y al que se está construyendo. Se lee primero
+     * indiceEnConstruccion: si ya terminó, indiceClientes es el nuevo; si todavía no empezó,
+     * el cursor de la construcción lee el cambio (ya confirmado) de la BD.
+     */
+    private void indexarCliente(Pedido p) {
+        if (p.getId() <= 0) return;
+        TrigramIndex nuevo = indiceEnConstruccion;
+        TrigramIndex indice = indiceClientes;
+        if (nuevo != null) nuevo.put(p.getId(), p.getClienteNombre());
+        if (indice != null && indice != nuevo) indice.put(p.getId(), p.getClienteNombre());
+    }
+
+    private void desindexarCliente(long id) {
+        TrigramIndex nuevo = indiceEnConstruccion;
+        TrigramIndex indice = indiceClientes;
+        if (nuevo != null) nuevo.remove(id);
+        if (indice != null && indice != nuevo) indice.remove(id);
+    }
+
+    /**
+     * Chequeo previo opcional: si el filtro indica que el número quizás existe, se confirma
+     * con la BD para dar el error de negocio sin intentar el INSERT. Sin filtro no hace nada.
+     * Solo fuera de transacciones (usa su propia conexión del pool).
+     * No reemplaza al UNIQUE: un número agregado por otro proceso lo detecta igual la BD.
+     */
+    private void precheckNumero(String numero) throws Exception {
+        BloomFilter filtro = numerosConocidos;
+        if (filtro == null || !filtro.mightContain(numero.trim())) return;
+        if (pedidoDAO.getByNumero(numero) != null) {
+            throw new IllegalArgumentException("Ya existe un pedido con el numero: " + numero);
+        }
+    }
+
+    private void registrarNumero(String numero) {
+        BloomFilter filtro = numerosConocidos;
+        if (filtro != null) filtro.add(numero.trim());
+    }
+
+    /**
+     * Traduce la violación de UNIQUE(numero) a la excepción de negocio; el resto se propaga igual.
+     * numero = null cuando el INSERT es de un lote (la BD no informa cuál fila chocó).
+     */
+    private Exception translateDuplicate(SQLException e, String numero) {
+        if (PedidoDAO.isDuplicateNumero(e)) {
+            String msg = numero != null
+                    ? "Ya existe un pedido con el numero: " + numero
+                    : "Ya existe un pedido con alguno de los numeros del lote";
+            return new IllegalArgumentException(msg, e);
         }
+        return e;
     }
 }
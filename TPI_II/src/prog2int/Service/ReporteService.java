@@ -0,0 +1,55 @@
+package prog2int.Service;
+
+import prog2int.Dao.ReporteDAO;
+import prog2int.Dao.ReporteDAO.CostoPorEmpresaTipo;
+import prog2int.Dao.ReporteDAO.IngresoPorEstado;
+import prog2int.Dao.ReporteDAO.PedidosPorDia;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Servicio de reportes sobre Pedido/Envio.
+ * Los agregados los calcula la base (ver ReporteDAO); aquí solo se validan los rangos.
+ * Fechas inclusive; null = sin límite.
+ */
+public class ReporteService {
+
+    private final ReporteDAO reporteDAO;
+
+    public ReporteService(ReporteDAO reporteDAO) {
+        if (reporteDAO == null) throw new IllegalArgumentException("ReporteDAO no puede ser null");
+        this.reporteDAO = reporteDAO;
+    }
+
+    /** Cantidad de pedidos e importe total por EstadoPedido (sobre Pedido.fecha). */
+    public List<IngresoPorEstado> ingresosPorEstado(LocalDate desde, LocalDate hasta) throws Exception {
+        validateRango(desde, hasta);
+        return reporteDAO.ingresosPorEstado(desde, hasta);
+    }
+
+    /** Cantidad, costo total y promedio de envíos por Empresa y TipoEnvio (sobre Envio.fechaDespacho). */
+    public List<CostoPorEmpresaTipo> costoPorEmpresaTipo(LocalDate desde, LocalDate hasta) throws Exception {
+        validateRango(desde, hasta);
+        return reporteDAO.costoPorEmpresaTipo(desde, hasta);
+    }
+
+    /** Pedidos e importe por día (sobre Pedido.fecha). */
+    public List<PedidosPorDia> pedidosPorDia(LocalDate desde, LocalDate hasta) throws Exception {
+        validateRango(desde, hasta);
+        return reporteDAO.pedidosPorDia(desde, hasta);
+    }
+
+    /** Pedidos por día de un mes calendario. */
+    public List<PedidosPorDia> pedidosPorDia(YearMonth mes) throws Exception {
+        if (mes == null) throw new IllegalArgumentException("El mes es obligatorio");
+        return reporteDAO.pedidosPorDia(mes.atDay(1), mes.atEndOfMonth());
+    }
+
+    private void validateRango(LocalDate desde, LocalDate hasta) {
+        if (desde != null && hasta != null && hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("La fecha hasta no puede ser anterior a la fecha desde");
+        }
+    }
+}
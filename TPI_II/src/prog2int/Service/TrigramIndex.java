@@ -0,0 +1,320 @@
+package prog2int.Service;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido de trigramas en memoria: texto -> ids que lo contienen (búsqueda "contiene",
+ * equivalente a LIKE '%texto%' pero sin recorrer la tabla).
+ *
+ * Estructura (solo arreglos primitivos, sin boxing por entrada):
+ * - Documentos con id interno denso (doc): doc -> id de la entidad y texto normalizado
+ * - id de la entidad -> doc: LongIntMap
+ * - trigrama (3 chars empaquetados en un long) -> índice denso (LongIntMap) -> postings:
+ *   int[] de docs en orden creciente
+ *
+ * Consulta: se intersectan las postings de los trigramas del texto empezando por la más corta
+ * y cada candidato se confirma con contains (dos trigramas presentes no implican que estén
+ * contiguos). Textos de menos de 3 caracteres recorren los documentos.
+ *
+ * Actualizar o borrar deja una lápida en el doc anterior; cuando las lápidas superan la mitad
+ * de los docs se compacta. Normalización: minúsculas y sin acentos ("José" == "jose").
+ *
+ * Carga inicial (iniciarCarga / cargar / terminarCarga): mientras se recorre la BD, put y remove
+ * marcan el id como tocado y cargar no lo pisa; la fila leída puede ser anterior a ese cambio.
+ *
+ * Thread-safe: lecturas concurrentes, escrituras exclusivas (ReentrantReadWriteLock).
+ */
+public class TrigramIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_POSTING = 4;
+    /** Lápidas mínimas antes de compactar (evita compactar índices chicos a cada borrado). */
+    private static final int MIN_COMPACT = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /* ===================== Documentos ===================== */
+    private long[] docIds;
+    private String[] docTexts;        // null = lápida
+    private int docCount;
+    private int deleted;
+
+    /* ===================== id -> doc ===================== */
+    private LongIntMap idDocs;
+
+    /* ===================== trigrama -> postings ===================== */
+    private LongIntMap gramIds;       // trigrama -> índice en postings / postingSizes
+    private int[][] postings;
+    private int[] postingSizes;
+    private int gramCount;
+    private long postingCount;
+
+    /* ===================== Carga inicial ===================== */
+    private LongMap<Boolean> tocados;  // null = no hay carga en curso
+
+    public TrigramIndex() {
+        reset();
+    }
+
+    /** Indexa (o reindexa) el texto de id. Texto null o vacío equivale a remove. */
+    public void put(long id, String texto) {
+        if (id <= 0) throw new IllegalArgumentException("El id debe ser > 0");
+        lock.writeLock().lock();
+        try {
+            if (tocados != null) tocados.put(id, Boolean.TRUE);
+            removeInternal(id);
+            String norm = normalize(texto);
+            if (!norm.isEmpty()) addDoc(id, norm);
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (tocados != null) tocados.put(id, Boolean.TRUE);
+            removeInternal(id);
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Empieza la carga inicial: desde ahora put y remove tienen prioridad sobre cargar. */
+    public void iniciarCarga() {
+        lock.writeLock().lock();
+        try {
+            tocados = new LongMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Indexa un texto leído de la BD, salvo que id se haya modificado o borrado desde iniciarCarga. */
+    public void cargar(long id, String texto) {
+        if (id <= 0) throw new IllegalArgumentException("El id debe ser > 0");
+        lock.writeLock().lock();
+        try {
+            if (tocados == null) throw new IllegalStateException("No hay una carga en curso");
+            if (tocados.containsKey(id)) return;
+            removeInternal(id);
+            String norm = normalize(texto);
+            if (!norm.isEmpty()) addDoc(id, norm);
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void terminarCarga() {
+        lock.writeLock().lock();
+        try {
+            tocados = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids cuyo texto contiene el de la consulta (sin distinguir mayúsculas ni acentos),
+     * a lo sumo limit, ordenados de forma ascendente.
+     */
+    public long[] buscar(String texto, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit debe ser > 0");
+        String q = normalize(texto);
+        if (q.isEmpty()) throw new IllegalArgumentException("El texto a buscar no puede estar vacío");
+        lock.readLock().lock();
+        try {
+            long[] out = new long[Math.min(limit, Math.max(idDocs.size(), 1))];
+            int n = q.length() < 3 ? scan(q, out) : intersect(q, out);
+            long[] result = Arrays.copyOf(out, n);
+            Arrays.sort(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Cantidad de ids indexados. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return idDocs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return "TrigramIndex{ids=" + idDocs.size() + ", trigramas=" + gramCount + ", postings=" + postingCount +
+                    ", lapidas=" + deleted + "}";
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* ===================== Consulta ===================== */
+
+    private int scan(String q, long[] out) {
+        int n = 0;
+        for (int doc = 0; doc < docCount && n < out.length; doc++) {
+            String text = docTexts[doc];
+            if (text != null && text.contains(q)) out[n++] = docIds[doc];
+        }
+        return n;
+    }
+
+    private int intersect(String q, long[] out) {
+        long[] grams = distinctGrams(q);
+        int[][] lists = new int[grams.length][];
+        int[] sizes = new int[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            int g = gramIds.get(grams[i]);
+            if (g == LongIntMap.ABSENT) return 0; // algún trigrama no aparece en ningún texto
+            lists[i] = postings[g];
+            sizes[i] = postingSizes[g];
+        }
+        sortBySize(lists, sizes);
+
+        int[] cursors = new int[lists.length];
+        int n = 0;
+        outer:
+        for (int i = 0; i < sizes[0] && n < out.length; i++) {
+            int doc = lists[0][i];
+            for (int k = 1; k < lists.length; k++) {
+                int[] list = lists[k];
+                int c = cursors[k];
+                while (c < sizes[k] && list[c] < doc) c++;
+                cursors[k] = c;
+                if (c == sizes[k]) break outer; // una lista se agotó: no hay más candidatos
+                if (list[c] != doc) continue outer;
+            }
+            String text = docTexts[doc];
+            if (text != null && text.contains(q)) out[n++] = docIds[doc];
+        }
+        return n;
+    }
+
+    private static void sortBySize(int[][] lists, int[] sizes) {
+        for (int i = 1; i < lists.length; i++) {
+            int[] l = lists[i];
+            int s = sizes[i];
+            int j = i - 1;
+            while (j >= 0 && sizes[j] > s) {
+                lists[j + 1] = lists[j];
+                sizes[j + 1] = sizes[j];
+                j--;
+            }
+            lists[j + 1] = l;
+            sizes[j + 1] = s;
+        }
+    }
+
+    /* ===================== Escritura ===================== */
+
+    private void addDoc(long id, String norm) {
+        if (docCount == docIds.length) {
+            docIds = Arrays.copyOf(docIds, docCount * 2);
+            docTexts = Arrays.copyOf(docTexts, docCount * 2);
+        }
+        int doc = docCount++;
+        docIds[doc] = id;
+        docTexts[doc] = norm;
+        idDocs.put(id, doc);
+        for (int i = 0; i + 3 <= norm.length(); i++) addPosting(gram(norm, i), doc);
+    }
+
+    /** Agrega doc a la posting del trigrama; doc es siempre el mayor, así la lista queda ordenada. */
+    private void addPosting(long gram, int doc) {
+        int g = gramIds.get(gram);
+        if (g == LongIntMap.ABSENT) {
+            if (gramCount == postings.length) {
+                postings = Arrays.copyOf(postings, gramCount * 2);
+                postingSizes = Arrays.copyOf(postingSizes, gramCount * 2);
+            }
+            g = gramCount++;
+            gramIds.put(gram, g);
+            postings[g] = new int[INITIAL_POSTING];
+        }
+        int size = postingSizes[g];
+        int[] list = postings[g];
+        if (size > 0 && list[size - 1] == doc) return; // trigrama repetido en el mismo texto
+        if (size == list.length) postings[g] = list = Arrays.copyOf(list, size * 2);
+        list[size] = doc;
+        postingSizes[g] = size + 1;
+        postingCount++;
+    }
+
+    private void removeInternal(long id) {
+        int doc = idDocs.remove(id);
+        if (doc == LongIntMap.ABSENT) return;
+        docTexts[doc] = null;
+        deleted++;
+    }
+
+    /** Reconstruye sin lápidas cuando superan la mitad de los docs. */
+    private void maybeCompact() {
+        if (deleted < MIN_COMPACT || deleted * 2 < docCount) return;
+        long[] ids = docIds;
+        String[] texts = docTexts;
+        int count = docCount;
+        reset();
+        for (int doc = 0; doc < count; doc++) {
+            if (texts[doc] != null) addDoc(ids[doc], texts[doc]);
+        }
+    }
+
+    private void reset() {
+        docIds = new long[INITIAL_CAPACITY];
+        docTexts = new String[INITIAL_CAPACITY];
+        docCount = 0;
+        deleted = 0;
+        idDocs = new LongIntMap(INITIAL_CAPACITY);
+        gramIds = new LongIntMap(INITIAL_CAPACITY);
+        postings = new int[INITIAL_CAPACITY][];
+        postingSizes = new int[INITIAL_CAPACITY];
+        gramCount = 0;
+        postingCount = 0;
+    }
+
+    /* ===================== Helpers ===================== */
+
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static long[] distinctGrams(String q) {
+        long[] grams = new long[q.length() - 2];
+        for (int i = 0; i < grams.length; i++) grams[i] = gram(q, i);
+        Arrays.sort(grams);
+        int n = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) grams[n++] = grams[i];
+        }
+        return Arrays.copyOf(grams, n);
+    }
+
+    /** Minúsculas, sin marcas diacríticas y sin espacios en los extremos. */
+    static String normalize(String s) {
+        if (s == null) return "";
+        String t = s.trim().toLowerCase(Locale.ROOT);
+        boolean ascii = true;
+        for (int i = 0; i < t.length() && ascii; i++) ascii = t.charAt(i) < 0x80;
+        if (ascii) return t;
+        String nfd = Normalizer.normalize(t, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(nfd.length());
+        for (int i = 0; i < nfd.length(); i++) {
+            char c = nfd.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) sb.append(c);
+        }
+        return sb.toString();
+    }
+}